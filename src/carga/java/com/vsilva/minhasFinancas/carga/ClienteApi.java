@@ -0,0 +1,65 @@
+package com.vsilva.minhasFinancas.carga;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cliente HTTP da carga. Respostas de erro não lançam exceção: o status volta
+ * para quem chamou e é contado como erro nas estatísticas.
+ */
+public class ClienteApi {
+
+	private final RestTemplate rest;
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final String base;
+
+	public ClienteApi(String base) {
+		SimpleClientHttpRequestFactory fabrica = new SimpleClientHttpRequestFactory();
+		fabrica.setConnectTimeout(5_000);
+		fabrica.setReadTimeout(60_000);
+		this.rest = new RestTemplate(fabrica);
+		this.rest.setErrorHandler(new ResponseErrorHandler() {
+
+			@Override
+			public boolean hasError(ClientHttpResponse response) {
+				return false;
+			}
+
+			@Override
+			public void handleError(ClientHttpResponse response) {
+			}
+		});
+		this.base = base;
+	}
+
+	public ResponseEntity<String> executar(HttpMethod metodo, String caminho, Object corpo, String token) {
+		HttpHeaders cabecalhos = new HttpHeaders();
+		cabecalhos.setContentType(MediaType.APPLICATION_JSON);
+		cabecalhos.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+		if (token != null) {
+			cabecalhos.setBearerAuth(token);
+		}
+		return rest.exchange(base + caminho, metodo, new HttpEntity<>(corpo, cabecalhos), String.class);
+	}
+
+	public JsonNode ler(ResponseEntity<String> resposta) {
+		try {
+			return mapper.readTree(resposta.getBody() == null ? "null" : resposta.getBody());
+		} catch (IOException e) {
+			throw new IllegalStateException("Resposta inesperada: " + resposta.getBody(), e);
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package com.vsilva.minhasFinancas.carga;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import lombok.Getter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Compara a busca de lançamentos pelo JPA ({@code /api/lancamentos}) e pelo
+ * R2DBC ({@code /api/reativo/lancamentos}) com milhares de leitores
+ * simultâneos, cada um repetindo a busca de um usuário sorteado. Além de vazão
+ * e latência, registra o pico de threads do Tomcat ocupadas, de threads da JVM
+ * e de conexões em uso e em espera em cada pool, que é o que define quantos
+ * leitores um nó aguenta:
+ *
+ * <pre>
+ * mvn -Pcarga verify -Dcarga.cenario=leitura                      # 5000 leitores
+ * mvn -Pcarga verify -Dcarga.cenario=leitura -Dcarga.leitores=1000
+ * </pre>
+ *
+ * O cliente usa o Reactor Netty, com poucas threads, para que as threads
+ * contadas sejam as do servidor. A admissão é desligada para medir o custo
+ * real de cada caminho em vez das recusas. Só funciona com a aplicação no
+ * mesmo processo, porque lê os pools diretamente.
+ */
+public class ComparacaoLeitura {
+
+	private static final String JDBC = "jdbc";
+	private static final String REATIVO = "reativo";
+
+	private final ConfigurableApplicationContext contexto;
+	private final HttpClient http;
+	private final int leitores;
+	private volatile boolean executando;
+
+	ComparacaoLeitura(ConfigurableApplicationContext contexto, String alvo, int leitores) {
+		this.contexto = contexto;
+		this.leitores = leitores;
+		this.http = HttpClient.create(ConnectionProvider.fixed("leitores", leitores, 60_000)).baseUrl(alvo);
+	}
+
+	static void executar(String banco, int usuarios, int lancamentosIniciais, int threads, int aquecimento,
+			int duracao, long semente, Path relatorio) throws Exception {
+		int leitores = Integer.getInteger("carga.leitores", 5000);
+		ConfigurableApplicationContext contexto = GeradorCarga.iniciarAplicacao(banco,
+				"minhasfinancas.reativo.habilitado=true",
+				"minhasfinancas.admissao.habilitada=false",
+				"server.tomcat.max-connections=" + Math.max(10_000, leitores * 2),
+				"server.tomcat.accept-count=" + leitores);
+		try {
+			String alvo = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+			System.out.println(String.format("Preparando %d usuarios com %d lancamentos cada em %s", usuarios,
+					lancamentosIniciais, alvo));
+			List<Long> ids = new GeradorCarga(new ClienteApi(alvo), threads, 0, semente)
+					.preparar(usuarios, lancamentosIniciais)
+					.stream().map(UsuarioSimulado::getId).collect(Collectors.toList());
+
+			ComparacaoLeitura comparacao = new ComparacaoLeitura(contexto, alvo, leitores);
+			List<Resultado> resultados = new ArrayList<>();
+			resultados.add(comparacao.medir(JDBC, "/api/lancamentos", ids, aquecimento, duracao));
+			resultados.add(comparacao.medir(REATIVO, "/api/reativo/lancamentos", ids, aquecimento, duracao));
+
+			System.out.println();
+			System.out.println(Resultado.cabecalho());
+			resultados.forEach(System.out::println);
+
+			Map<String, Object> configuracao = new LinkedHashMap<>();
+			configuracao.put("banco", banco);
+			configuracao.put("leitores", leitores);
+			configuracao.put("usuarios", usuarios);
+			configuracao.put("lancamentosIniciais", lancamentosIniciais);
+			configuracao.put("aquecimentoSegundos", aquecimento);
+			configuracao.put("duracaoSegundos", duracao);
+			Map<String, Object> conteudo = new LinkedHashMap<>();
+			conteudo.put("configuracao", configuracao);
+			conteudo.put("resultados", resultados);
+			Files.createDirectories(relatorio.toAbsolutePath().getParent());
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(relatorio.toFile(), conteudo);
+			System.out.println("Relatorio gravado em " + relatorio);
+		} finally {
+			contexto.close();
+		}
+	}
+
+	Resultado medir(String nome, String caminho, List<Long> usuarios, int aquecimento, int duracao)
+			throws InterruptedException {
+		System.out.println(String.format("%s: %d leitores em %s, %ds de aquecimento, %ds de medicao", nome, leitores,
+				caminho, aquecimento, duracao));
+		Estatisticas estatisticas = new Estatisticas(Collections.singletonList(nome));
+		executando = true;
+		Mono<Void> leitura = Flux.range(0, leitores)
+				.flatMap(i -> leitor(nome, caminho, usuarios, estatisticas), leitores)
+				.then()
+				.cache();
+		leitura.subscribe();
+
+		TimeUnit.SECONDS.sleep(aquecimento);
+		Picos picos = new Picos();
+		ScheduledExecutorService amostragem = Executors.newSingleThreadScheduledExecutor();
+		amostragem.scheduleAtFixedRate(picos::amostrar, 0, 50, TimeUnit.MILLISECONDS);
+		estatisticas.iniciarMedicao();
+		TimeUnit.SECONDS.sleep(duracao);
+		estatisticas.encerrarMedicao();
+		amostragem.shutdownNow();
+		executando = false;
+		leitura.block(Duration.ofMinutes(2));
+
+		return new Resultado(estatisticas.resumir().get(0), picos);
+	}
+
+	private Mono<Void> leitor(String nome, String caminho, List<Long> usuarios, Estatisticas estatisticas) {
+		return Mono.defer(() -> {
+			long inicio = System.nanoTime();
+			Long usuario = usuarios.get(ThreadLocalRandom.current().nextInt(usuarios.size()));
+			return http.get().uri(caminho + "?usuario=" + usuario)
+					.responseSingle((resposta, corpo) -> corpo.asString().defaultIfEmpty("")
+							.thenReturn(resposta.status().code() >= 400))
+					.timeout(Duration.ofSeconds(60))
+					.onErrorReturn(true)
+					.doOnNext(erro -> estatisticas.registrar(nome, System.nanoTime() - inicio, erro));
+		}).repeat(() -> executando).then();
+	}
+
+	/**
+	 * Picos amostrados durante a medição. As threads da JVM usam o pico do
+	 * próprio ThreadMXBean, zerado no início.
+	 */
+	@Getter
+	private class Picos {
+
+		private final ThreadMXBean threadsJvm = ManagementFactory.getThreadMXBean();
+		private final IntSupplier tomcatOcupadas;
+		private final AtomicInteger threadsTomcat = new AtomicInteger();
+		private final AtomicInteger conexoesHikari = new AtomicInteger();
+		private final AtomicInteger esperandoHikari = new AtomicInteger();
+		private final AtomicInteger conexoesR2dbc = new AtomicInteger();
+		private final AtomicInteger esperandoR2dbc = new AtomicInteger();
+
+		Picos() {
+			threadsJvm.resetPeakThreadCount();
+			Executor executor = ((TomcatWebServer) ((ServletWebServerApplicationContext) contexto).getWebServer())
+					.getTomcat().getConnector().getProtocolHandler().getExecutor();
+			tomcatOcupadas = executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor)::getActiveCount
+					: () -> -1;
+		}
+
+		void amostrar() {
+			threadsTomcat.accumulateAndGet(tomcatOcupadas.getAsInt(), Math::max);
+			HikariDataSource hikari = contexto.getBean(HikariDataSource.class);
+			if (hikari.getHikariPoolMXBean() != null) {
+				conexoesHikari.accumulateAndGet(hikari.getHikariPoolMXBean().getActiveConnections(), Math::max);
+				esperandoHikari.accumulateAndGet(hikari.getHikariPoolMXBean().getThreadsAwaitingConnection(),
+						Math::max);
+			}
+			contexto.getBean(ConnectionPool.class).getMetrics().ifPresent((PoolMetrics metricas) -> {
+				conexoesR2dbc.accumulateAndGet(metricas.acquiredSize(), Math::max);
+				esperandoR2dbc.accumulateAndGet(metricas.pendingAcquireSize(), Math::max);
+			});
+		}
+	}
+
+	@Getter
+	public static class Resultado {
+
+		private final Estatisticas.Resumo leitura;
+		private final int threadsJvm;
+		private final int threadsTomcatOcupadas;
+		private final int conexoesHikari;
+		private final int esperandoHikari;
+		private final int conexoesR2dbc;
+		private final int esperandoR2dbc;
+
+		Resultado(Estatisticas.Resumo leitura, Picos picos) {
+			this.leitura = leitura;
+			this.threadsJvm = picos.getThreadsJvm().getPeakThreadCount();
+			this.threadsTomcatOcupadas = picos.getThreadsTomcat().get();
+			this.conexoesHikari = picos.getConexoesHikari().get();
+			this.esperandoHikari = picos.getEsperandoHikari().get();
+			this.conexoesR2dbc = picos.getConexoesR2dbc().get();
+			this.esperandoR2dbc = picos.getEsperandoR2dbc().get();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %8d %8d %8d %9d %8d %9d", leitura, threadsJvm, threadsTomcatOcupadas,
+					conexoesHikari, esperandoHikari, conexoesR2dbc, esperandoR2dbc);
+		}
+
+		public static String cabecalho() {
+			return String.format("%s %8s %8s %8s %9s %8s %9s", Estatisticas.Resumo.cabecalho(), "thr jvm",
+					"thr tomc", "hikari", "esp hik", "r2dbc", "esp r2dbc");
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.vsilva.minhasFinancas.carga;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import lombok.Getter;
+
+/**
+ * Latências e erros por endpoint, em histogramas HDR (microssegundos, 3
+ * dígitos significativos). Só conta o que é registrado depois de
+ * {@link #iniciarMedicao()}, para descartar o aquecimento.
+ */
+public class Estatisticas {
+
+	private static final long LATENCIA_MAXIMA = TimeUnit.MINUTES.toMicros(2);
+
+	private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+	private volatile boolean medindo;
+	private volatile long inicio;
+	private volatile long fim;
+
+	public Estatisticas(List<String> nomes) {
+		nomes.forEach(nome -> endpoints.put(nome, new Endpoint(nome)));
+	}
+
+	public void iniciarMedicao() {
+		inicio = System.nanoTime();
+		medindo = true;
+	}
+
+	public void encerrarMedicao() {
+		medindo = false;
+		fim = System.nanoTime();
+	}
+
+	public void registrar(String endpoint, long latenciaNanos, boolean erro) {
+		if (!medindo) {
+			return;
+		}
+		Endpoint estatistica = endpoints.get(endpoint);
+		estatistica.latencias.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latenciaNanos), LATENCIA_MAXIMA));
+		if (erro) {
+			estatistica.erros.increment();
+		}
+	}
+
+	public List<Resumo> resumir() {
+		double segundos = (fim - inicio) / 1e9;
+		List<Resumo> resumos = new ArrayList<>();
+		Histogram total = new Histogram(LATENCIA_MAXIMA, 3);
+		long errosTotal = 0;
+		for (Endpoint endpoint : endpoints.values()) {
+			if (endpoint.latencias.getTotalCount() > 0) {
+				resumos.add(new Resumo(endpoint.nome, endpoint.latencias, endpoint.erros.sum(), segundos));
+				total.add(endpoint.latencias);
+				errosTotal += endpoint.erros.sum();
+			}
+		}
+		resumos.add(new Resumo("total", total, errosTotal, segundos));
+		return resumos;
+	}
+
+	private static class Endpoint {
+
+		private final String nome;
+		private final ConcurrentHistogram latencias = new ConcurrentHistogram(LATENCIA_MAXIMA, 3);
+		private final LongAdder erros = new LongAdder();
+
+		Endpoint(String nome) {
+			this.nome = nome;
+		}
+	}
+
+	@Getter
+	public static class Resumo {
+
+		private final String endpoint;
+		private final long requisicoes;
+		private final double porSegundo;
+		private final double p50Ms;
+		private final double p99Ms;
+		private final double p999Ms;
+		private final double maximoMs;
+		private final double taxaErro;
+
+		Resumo(String endpoint, Histogram latencias, long erros, double segundos) {
+			this.endpoint = endpoint;
+			this.requisicoes = latencias.getTotalCount();
+			this.porSegundo = requisicoes / segundos;
+			this.p50Ms = latencias.getValueAtPercentile(50) / 1000.0;
+			this.p99Ms = latencias.getValueAtPercentile(99) / 1000.0;
+			this.p999Ms = latencias.getValueAtPercentile(99.9) / 1000.0;
+			this.maximoMs = latencias.getMaxValue() / 1000.0;
+			this.taxaErro = requisicoes == 0 ? 0 : (double) erros / requisicoes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-26s %9d %10.1f %9.2f %9.2f %9.2f %10.2f %8.2f%%", endpoint, requisicoes,
+					porSegundo, p50Ms, p99Ms, p999Ms, maximoMs, taxaErro * 100);
+		}
+
+		public static String cabecalho() {
+			return String.format("%-26s %9s %10s %9s %9s %9s %10s %9s", "endpoint", "req", "req/s", "p50 ms",
+					"p99 ms", "p99.9 ms", "max ms", "erros");
+		}
+	}
+}
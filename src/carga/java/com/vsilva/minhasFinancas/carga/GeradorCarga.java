@@ -0,0 +1,373 @@
+package com.vsilva.minhasFinancas.carga;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.vsilva.minhasFinancas.MinhasFinancasApplication;
+import com.vsilva.minhasFinancas.api.dto.AtualizaStatusDTO;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.api.dto.UsuarioDTO;
+
+/**
+ * Teste de carga de ponta a ponta pela API HTTP. Sobe a aplicação em uma
+ * porta aleatória (ou usa uma já no ar, com {@code carga.alvo}), cria os
+ * usuários e seus lançamentos iniciais e então executa, por um tempo fixo, uma
+ * mistura de autenticar, criar, atualizar, atualizar status, excluir, buscar e
+ * consultar saldo. Chamado pelo profile {@code carga} do Maven:
+ *
+ * <pre>
+ * mvn -Pcarga verify                                        # H2 em memória, 1000 usuários, 60s
+ * mvn -Pcarga verify -Dcarga.usuarios=5000 -Dcarga.threads=64
+ * mvn -Pcarga verify -Dcarga.banco=postgresql               # PostgreSQL local do application.properties
+ * mvn -Pcarga verify -Dcarga.taxa=500                       # taxa fixa de 500 req/s
+ * mvn -Pcarga verify -Dcarga.alvo=http://servidor:8080      # aplicação já no ar
+ * mvn -Pcarga verify -Dcarga.cenario=leitura               # JPA x R2DBC, ver ComparacaoLeitura
+ * </pre>
+ *
+ * Sem {@code carga.taxa} cada thread dispara a próxima requisição assim que a
+ * anterior volta (carga fechada, mede a vazão máxima). Com taxa, as
+ * requisições seguem um cronograma e a latência conta desde o horário
+ * previsto, para que uma resposta lenta não esconda as que ficaram esperando
+ * atrás dela.
+ * <p>
+ * O relatório traz vazão, p50, p99 e taxa de erro por endpoint, no console e
+ * em JSON; o processo termina com código 1 se a taxa de erro total passar de
+ * {@code carga.erro-maximo}.
+ */
+public class GeradorCarga {
+
+	private static final String AUTENTICAR = "POST /usuarios/autenticar";
+	private static final String CRIAR = "POST /lancamentos";
+	private static final String ATUALIZAR = "PUT /lancamentos/{id}";
+	private static final String STATUS = "PUT /{id}/atualiza-status";
+	private static final String EXCLUIR = "DELETE /lancamentos/{id}";
+	private static final String BUSCAR = "GET /lancamentos";
+	private static final String SALDO = "GET /usuarios/{id}/saldo";
+
+	/** Operações e seus pesos na mistura; somam 100. */
+	private static final String[] OPERACOES = { AUTENTICAR, CRIAR, ATUALIZAR, STATUS, EXCLUIR, BUSCAR, SALDO };
+	private static final int[] PESOS = { 5, 15, 10, 10, 5, 35, 20 };
+
+	private static final String[] DESCRICOES = { "mercado", "aluguel", "salario", "farmacia", "combustivel",
+			"internet", "restaurante", "academia" };
+	private static final String[] STATUS_LANCAMENTO = { "PENDENTE", "EFETIVADO", "CANCELADO" };
+	private static final int ANO_INICIAL = 2019;
+	private static final int ANOS = 3;
+
+	private final ClienteApi cliente;
+	private final Estatisticas estatisticas = new Estatisticas(Arrays.asList(OPERACOES));
+	private final int threads;
+	private final double taxa;
+	private final long semente;
+	private volatile boolean executando = true;
+
+	GeradorCarga(ClienteApi cliente, int threads, double taxa, long semente) {
+		this.cliente = cliente;
+		this.threads = threads;
+		this.taxa = taxa;
+		this.semente = semente;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String alvo = System.getProperty("carga.alvo", "");
+		String banco = System.getProperty("carga.banco", "h2");
+		int usuarios = Integer.getInteger("carga.usuarios", 1000);
+		int lancamentosIniciais = Integer.getInteger("carga.lancamentos-iniciais", 10);
+		int threads = Integer.getInteger("carga.threads", 32);
+		int aquecimento = Integer.getInteger("carga.aquecimento-segundos", 10);
+		int duracao = Integer.getInteger("carga.duracao-segundos", 60);
+		String taxaInformada = System.getProperty("carga.taxa", "");
+		double taxa = taxaInformada.isEmpty() ? 0 : Double.parseDouble(taxaInformada);
+		long semente = Long.getLong("carga.semente", 42L);
+		double erroMaximo = Double.parseDouble(System.getProperty("carga.erro-maximo", "0.01"));
+		Path relatorio = Paths.get(System.getProperty("carga.relatorio", "target/carga/relatorio.json"));
+
+		if ("leitura".equals(System.getProperty("carga.cenario", "mistura"))) {
+			ComparacaoLeitura.executar(banco, usuarios, lancamentosIniciais, threads, aquecimento, duracao, semente,
+					relatorio.resolveSibling("leitura.json"));
+			System.exit(0);
+		}
+
+		ConfigurableApplicationContext contexto = null;
+		if (alvo.isEmpty()) {
+			contexto = iniciarAplicacao(banco);
+			alvo = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+		}
+
+		try {
+			GeradorCarga gerador = new GeradorCarga(new ClienteApi(alvo), threads, taxa, semente);
+			System.out.println(String.format("Preparando %d usuarios com %d lancamentos cada em %s", usuarios,
+					lancamentosIniciais, alvo));
+			List<UsuarioSimulado> simulados = gerador.preparar(usuarios, lancamentosIniciais);
+
+			System.out.println(String.format("Carga com %d threads%s: %ds de aquecimento, %ds de medicao", threads,
+					taxa > 0 ? String.format(" a %.0f req/s", taxa) : "", aquecimento, duracao));
+			List<Estatisticas.Resumo> resumos = gerador.executar(simulados, aquecimento, duracao);
+
+			System.out.println();
+			System.out.println(Estatisticas.Resumo.cabecalho());
+			resumos.forEach(System.out::println);
+
+			Map<String, Object> configuracao = new LinkedHashMap<>();
+			configuracao.put("alvo", alvo);
+			configuracao.put("banco", banco);
+			configuracao.put("usuarios", usuarios);
+			configuracao.put("lancamentosIniciais", lancamentosIniciais);
+			configuracao.put("threads", threads);
+			configuracao.put("taxa", taxa);
+			configuracao.put("aquecimentoSegundos", aquecimento);
+			configuracao.put("duracaoSegundos", duracao);
+			Map<String, Object> conteudo = new LinkedHashMap<>();
+			conteudo.put("configuracao", configuracao);
+			conteudo.put("resultados", resumos);
+			Files.createDirectories(relatorio.toAbsolutePath().getParent());
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(relatorio.toFile(), conteudo);
+			System.out.println("Relatorio gravado em " + relatorio);
+
+			double taxaErro = resumos.get(resumos.size() - 1).getTaxaErro();
+			if (taxaErro > erroMaximo) {
+				System.err.println(String.format("Taxa de erro de %.2f%% acima do maximo de %.2f%%", taxaErro * 100,
+						erroMaximo * 100));
+				System.exit(1);
+			}
+		} finally {
+			if (contexto != null) {
+				contexto.close();
+			}
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * H2 usa o profile {@code test} com um banco exclusivo; PostgreSQL usa o
+	 * datasource do application.properties. Para outro servidor, suba a
+	 * aplicação à parte e aponte {@code carga.alvo} para ela. As propriedades
+	 * vão como argumentos, que têm precedência sobre os arquivos .properties.
+	 */
+	static ConfigurableApplicationContext iniciarAplicacao(String banco, String... propriedades) {
+		SpringApplicationBuilder builder = new SpringApplicationBuilder(MinhasFinancasApplication.class);
+		List<String> argumentos = new ArrayList<>(Arrays.asList("--server.port=0", "--spring.main.banner-mode=off",
+				"--logging.level.root=warn"));
+		if ("h2".equals(banco)) {
+			builder.profiles("test");
+			argumentos.add("--spring.datasource.url=jdbc:h2:mem:carga"
+					+ ";DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas");
+			argumentos.add("--minhasfinancas.reativo.url=r2dbc:h2:mem:///carga");
+		} else if (!"postgresql".equals(banco)) {
+			throw new IllegalArgumentException("carga.banco deve ser h2 ou postgresql: " + banco);
+		}
+		for (String propriedade : propriedades) {
+			argumentos.add("--" + propriedade);
+		}
+		return builder.run(argumentos.toArray(new String[0]));
+	}
+
+	/**
+	 * Cadastra e autentica os usuários e cria os lançamentos iniciais, em
+	 * paralelo. O e-mail leva o instante da execução para que rodadas seguidas
+	 * contra o mesmo PostgreSQL não colidam.
+	 */
+	List<UsuarioSimulado> preparar(int usuarios, int lancamentosIniciais) throws Exception {
+		long execucao = System.currentTimeMillis();
+		List<UsuarioSimulado> simulados = new ArrayList<>(usuarios);
+		List<Callable<Void>> tarefas = new ArrayList<>(usuarios);
+		for (int i = 0; i < usuarios; i++) {
+			UsuarioSimulado usuario = new UsuarioSimulado("carga-" + execucao + "-" + i + "@carga.local", "senha-" + i);
+			Random random = new Random(semente + i);
+			simulados.add(usuario);
+			tarefas.add(() -> {
+				ResponseEntity<String> cadastro = cliente.executar(HttpMethod.POST, "/api/usuarios",
+						UsuarioDTO.builder().nome("Carga").email(usuario.getEmail()).senha(usuario.getSenha()).build(),
+						null);
+				exigirSucesso(cadastro, "cadastrar " + usuario.getEmail());
+				usuario.setId(cliente.ler(cadastro).path("id").asLong());
+				exigirSucesso(autenticar(usuario), "autenticar " + usuario.getEmail());
+				for (int j = 0; j < lancamentosIniciais; j++) {
+					exigirSucesso(criar(usuario, random), "criar lancamento de " + usuario.getEmail());
+				}
+				return null;
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<Void> tarefa : executor.invokeAll(tarefas)) {
+				tarefa.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return simulados;
+	}
+
+	/**
+	 * Cada thread fica com os usuários de índice {@code i % threads == n}. O
+	 * aquecimento roda a mesma mistura, só que sem registrar as medições.
+	 */
+	List<Estatisticas.Resumo> executar(List<UsuarioSimulado> usuarios, int aquecimento, int duracao)
+			throws InterruptedException {
+		CountDownLatch fim = new CountDownLatch(threads);
+		for (int n = 0; n < threads; n++) {
+			List<UsuarioSimulado> proprios = new ArrayList<>();
+			for (int i = n; i < usuarios.size(); i += threads) {
+				proprios.add(usuarios.get(i));
+			}
+			Random random = new Random(semente * 31 + n);
+			Thread thread = new Thread(() -> {
+				try {
+					if (!proprios.isEmpty()) {
+						trabalhar(proprios, random);
+					}
+				} finally {
+					fim.countDown();
+				}
+			}, "carga-" + n);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		TimeUnit.SECONDS.sleep(aquecimento);
+		estatisticas.iniciarMedicao();
+		TimeUnit.SECONDS.sleep(duracao);
+		estatisticas.encerrarMedicao();
+		executando = false;
+		fim.await(2, TimeUnit.MINUTES);
+		return estatisticas.resumir();
+	}
+
+	private void trabalhar(List<UsuarioSimulado> usuarios, Random random) {
+		// com taxa fixa cada thread cuida da sua parte dela
+		long intervalo = taxa > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / taxa) : 0;
+		long previsto = System.nanoTime();
+		while (executando) {
+			if (intervalo > 0) {
+				previsto += intervalo;
+				long espera = previsto - System.nanoTime();
+				if (espera > 0) {
+					LockSupport.parkNanos(espera);
+				}
+			} else {
+				previsto = System.nanoTime();
+			}
+
+			UsuarioSimulado usuario = usuarios.get(random.nextInt(usuarios.size()));
+			String operacao = sortearOperacao(random, usuario);
+			boolean erro;
+			try {
+				erro = executar(operacao, usuario, random).getStatusCodeValue() >= 400;
+			} catch (RuntimeException e) {
+				erro = true;
+			}
+			estatisticas.registrar(operacao, System.nanoTime() - previsto, erro);
+		}
+	}
+
+	/** Sem lançamentos para alterar ou excluir, o usuário cria um. */
+	private static String sortearOperacao(Random random, UsuarioSimulado usuario) {
+		int sorteio = random.nextInt(100);
+		String operacao = OPERACOES[OPERACOES.length - 1];
+		for (int i = 0; i < PESOS.length; i++) {
+			if (sorteio < PESOS[i]) {
+				operacao = OPERACOES[i];
+				break;
+			}
+			sorteio -= PESOS[i];
+		}
+		boolean precisaLancamento = ATUALIZAR.equals(operacao) || STATUS.equals(operacao) || EXCLUIR.equals(operacao);
+		return precisaLancamento && !usuario.temLancamentos() ? CRIAR : operacao;
+	}
+
+	private ResponseEntity<String> executar(String operacao, UsuarioSimulado usuario, Random random) {
+		switch (operacao) {
+		case AUTENTICAR:
+			return autenticar(usuario);
+		case CRIAR:
+			return criar(usuario, random);
+		case ATUALIZAR:
+			return cliente.executar(HttpMethod.PUT, "/api/lancamentos/" + usuario.sortearLancamento(random),
+					lancamento(usuario, random), usuario.getToken());
+		case STATUS:
+			return cliente.executar(HttpMethod.PUT,
+					"/api/lancamentos/" + usuario.sortearLancamento(random) + "/atualiza-status",
+					new AtualizaStatusDTO(sortear(random, STATUS_LANCAMENTO)), usuario.getToken());
+		case EXCLUIR:
+			return cliente.executar(HttpMethod.DELETE, "/api/lancamentos/" + usuario.removerLancamento(random), null,
+					usuario.getToken());
+		case BUSCAR:
+			String filtro = "?ano=" + (ANO_INICIAL + random.nextInt(ANOS)) + "&mes=" + (1 + random.nextInt(12));
+			if (random.nextInt(4) == 0) {
+				filtro += "&descricao=" + sortear(random, DESCRICOES);
+			}
+			return cliente.executar(HttpMethod.GET, "/api/lancamentos" + filtro, null, usuario.getToken());
+		case SALDO:
+			return cliente.executar(HttpMethod.GET, "/api/usuarios/" + usuario.getId() + "/saldo", null,
+					usuario.getToken());
+		default:
+			throw new IllegalArgumentException(operacao);
+		}
+	}
+
+	/** Autentica e guarda o token novo, que passa a ser usado nas próximas chamadas. */
+	private ResponseEntity<String> autenticar(UsuarioSimulado usuario) {
+		ResponseEntity<String> resposta = cliente.executar(HttpMethod.POST, "/api/usuarios/autenticar",
+				UsuarioDTO.builder().email(usuario.getEmail()).senha(usuario.getSenha()).build(), null);
+		if (resposta.getStatusCode().is2xxSuccessful()) {
+			usuario.setToken(cliente.ler(resposta).path("token").asText());
+		}
+		return resposta;
+	}
+
+	private ResponseEntity<String> criar(UsuarioSimulado usuario, Random random) {
+		ResponseEntity<String> resposta = cliente.executar(HttpMethod.POST, "/api/lancamentos",
+				lancamento(usuario, random), usuario.getToken());
+		if (resposta.getStatusCode().is2xxSuccessful()) {
+			usuario.getLancamentos().add(cliente.ler(resposta).path("id").asLong());
+		}
+		return resposta;
+	}
+
+	private static LancamentoDTO lancamento(UsuarioSimulado usuario, Random random) {
+		return LancamentoDTO.builder()
+				.descricao(sortear(random, DESCRICOES) + " " + random.nextInt(1000))
+				.mes(1 + random.nextInt(12))
+				.ano(ANO_INICIAL + random.nextInt(ANOS))
+				.valor(BigDecimal.valueOf(1 + random.nextInt(500_000), 2))
+				.usuario(usuario.getId())
+				.tipo(random.nextBoolean() ? "RECEITA" : "DESPESA")
+				.status("PENDENTE")
+				.build();
+	}
+
+	private static String sortear(Random random, String[] valores) {
+		return valores[random.nextInt(valores.length)];
+	}
+
+	private static void exigirSucesso(ResponseEntity<String> resposta, String acao) {
+		if (!resposta.getStatusCode().is2xxSuccessful()) {
+			throw new IllegalStateException(
+					"Falha ao " + acao + ": " + resposta.getStatusCodeValue() + " " + resposta.getBody());
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.vsilva.minhasFinancas.carga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Usuário da carga e os lançamentos que ele criou. Cada usuário pertence a uma
+ * única thread, então a lista não precisa de sincronização e um usuário nunca
+ * disputa a versão de um lançamento consigo mesmo.
+ */
+@Getter
+public class UsuarioSimulado {
+
+	private final String email;
+	private final String senha;
+	@Setter
+	private Long id;
+	@Setter
+	private String token;
+	private final List<Long> lancamentos = new ArrayList<>();
+
+	public UsuarioSimulado(String email, String senha) {
+		this.email = email;
+		this.senha = senha;
+	}
+
+	public boolean temLancamentos() {
+		return !lancamentos.isEmpty();
+	}
+
+	public Long sortearLancamento(Random random) {
+		return lancamentos.get(random.nextInt(lancamentos.size()));
+	}
+
+	public Long removerLancamento(Random random) {
+		int ultimo = lancamentos.size() - 1;
+		int sorteado = random.nextInt(lancamentos.size());
+		Long id = lancamentos.get(sorteado);
+		lancamentos.set(sorteado, lancamentos.get(ultimo));
+		lancamentos.remove(ultimo);
+		return id;
+	}
+}
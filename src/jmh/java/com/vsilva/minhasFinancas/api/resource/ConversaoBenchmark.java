@@ -0,0 +1,115 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.service.UsuarioService;
+
+/**
+ * Conversões DTO/entidade de {@link LancamentoResource}, nos dois sentidos. O
+ * usuário vem de um serviço fixo, sem banco, como a referência sem SELECT que
+ * o serviço real devolve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConversaoBenchmark {
+
+	LancamentoResource resource;
+	LancamentoDTO dto;
+	Lancamento lancamento;
+
+	@Setup
+	public void iniciar() {
+		resource = new LancamentoResource(null, new UsuarioServiceFixo(), null, null);
+		dto = LancamentoDTO.builder()
+				.descricao("mercado do mes")
+				.mes(6)
+				.ano(2020)
+				.valor(BigDecimal.valueOf(150))
+				.usuario(1L)
+				.tipo("DESPESA")
+				.status("PENDENTE")
+				.build();
+		lancamento = Lancamento.builder()
+				.id(1L)
+				.descricao("mercado do mes")
+				.mes(6)
+				.ano(2020)
+				.valor(BigDecimal.valueOf(150))
+				.usuario(Usuario.builder().id(1L).build())
+				.tipo(Tipo_lancamento.DESPESA)
+				.status(StatusLancamento.PENDENTE)
+				.versao(0L)
+				.build();
+	}
+
+	@Benchmark
+	public Lancamento converterParaEntidade() {
+		return resource.converter(dto, 1L);
+	}
+
+	@Benchmark
+	public LancamentoDTO converterParaDTO() {
+		return resource.converter(lancamento);
+	}
+
+	private static class UsuarioServiceFixo implements UsuarioService {
+
+		@Override
+		public Usuario obterReferencia(long id) {
+			return Usuario.builder().id(id).build();
+		}
+
+		@Override
+		public Usuario autenticar(String email, String senha) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CompletableFuture<Usuario> autenticarAsync(String email, String senha) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Usuario salvarUsuario(Usuario usuario) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void validarEmail(String email) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Optional<Usuario> obterPorId(long id) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean existePorId(long id) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
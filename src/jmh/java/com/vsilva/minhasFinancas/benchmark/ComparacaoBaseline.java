@@ -0,0 +1,127 @@
+package com.vsilva.minhasFinancas.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Getter;
+
+/**
+ * Compara um resultado JSON do JMH com uma baseline no mesmo formato,
+ * benchmark a benchmark (nome e parâmetros).
+ * <p>
+ * Uma medição é regressão quando piora mais que a tolerância e a diferença
+ * também é maior que a soma das margens de erro das duas medições, para que o
+ * ruído de uma execução curta não reprove o build. Nos modos de tempo por
+ * operação piorar é aumentar; em vazão, diminuir.
+ */
+public class ComparacaoBaseline {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final double tolerancia;
+
+	public ComparacaoBaseline(double tolerancia) {
+		this.tolerancia = tolerancia;
+	}
+
+	public List<Comparacao> comparar(Path baseline, Path resultado) throws IOException {
+		Map<String, JsonNode> anteriores = indexar(baseline);
+		List<Comparacao> comparacoes = new ArrayList<>();
+		indexar(resultado).forEach((chave, atual) -> comparacoes.add(comparar(chave, anteriores.get(chave), atual)));
+		return comparacoes;
+	}
+
+	private Comparacao comparar(String chave, JsonNode anterior, JsonNode atual) {
+		JsonNode metricaAtual = atual.path("primaryMetric");
+		double scoreAtual = metricaAtual.path("score").asDouble();
+		String unidade = metricaAtual.path("scoreUnit").asText();
+		if (anterior == null) {
+			return new Comparacao(chave, Double.NaN, scoreAtual, unidade, Double.NaN, Situacao.NOVO);
+		}
+
+		JsonNode metricaAnterior = anterior.path("primaryMetric");
+		double scoreAnterior = metricaAnterior.path("score").asDouble();
+		double margem = erro(metricaAnterior) + erro(metricaAtual);
+		boolean vazao = "thrpt".equals(atual.path("mode").asText());
+
+		// piora positiva significa pior, nos dois modos
+		double piora = vazao ? scoreAnterior - scoreAtual : scoreAtual - scoreAnterior;
+		double variacao = (scoreAtual - scoreAnterior) / scoreAnterior;
+
+		Situacao situacao;
+		if (piora > scoreAnterior * tolerancia && piora > margem) {
+			situacao = Situacao.REGRESSAO;
+		} else if (-piora > scoreAnterior * tolerancia && -piora > margem) {
+			situacao = Situacao.MELHORA;
+		} else {
+			situacao = Situacao.ESTAVEL;
+		}
+		return new Comparacao(chave, scoreAnterior, scoreAtual, unidade, variacao, situacao);
+	}
+
+	private static double erro(JsonNode metrica) {
+		double erro = metrica.path("scoreError").asDouble(0);
+		return Double.isNaN(erro) ? 0 : erro;
+	}
+
+	private Map<String, JsonNode> indexar(Path arquivo) throws IOException {
+		Map<String, JsonNode> indice = new LinkedHashMap<>();
+		for (JsonNode execucao : mapper.readTree(arquivo.toFile())) {
+			indice.put(chave(execucao), execucao);
+		}
+		return indice;
+	}
+
+	private static String chave(JsonNode execucao) {
+		Map<String, String> parametros = new TreeMap<>();
+		Iterator<Map.Entry<String, JsonNode>> campos = execucao.path("params").fields();
+		while (campos.hasNext()) {
+			Map.Entry<String, JsonNode> campo = campos.next();
+			parametros.put(campo.getKey(), campo.getValue().asText());
+		}
+		String nome = execucao.path("benchmark").asText() + " [" + execucao.path("mode").asText() + "]";
+		return parametros.isEmpty() ? nome : nome + " " + parametros;
+	}
+
+	public enum Situacao {
+		NOVO, ESTAVEL, MELHORA, REGRESSAO
+	}
+
+	@Getter
+	public static class Comparacao {
+
+		private final String benchmark;
+		private final double anterior;
+		private final double atual;
+		private final String unidade;
+		private final double variacao;
+		private final Situacao situacao;
+
+		Comparacao(String benchmark, double anterior, double atual, String unidade, double variacao,
+				Situacao situacao) {
+			this.benchmark = benchmark;
+			this.anterior = anterior;
+			this.atual = atual;
+			this.unidade = unidade;
+			this.variacao = variacao;
+			this.situacao = situacao;
+		}
+
+		@Override
+		public String toString() {
+			if (situacao == Situacao.NOVO) {
+				return String.format("%-9s %s: %.3f %s (sem baseline)", situacao, benchmark, atual, unidade);
+			}
+			return String.format("%-9s %s: %.3f -> %.3f %s (%+.1f%%)", situacao, benchmark, anterior, atual, unidade,
+					variacao * 100);
+		}
+	}
+}
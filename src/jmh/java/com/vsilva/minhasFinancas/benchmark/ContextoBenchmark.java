@@ -0,0 +1,32 @@
+package com.vsilva.minhasFinancas.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.vsilva.minhasFinancas.MinhasFinancasApplication;
+
+/**
+ * Sobe a aplicação sem servidor web, sobre um H2 em memória exclusivo do
+ * benchmark, com os workers agendados desligados para não disputar CPU com as
+ * medições.
+ */
+public final class ContextoBenchmark {
+
+	private ContextoBenchmark() {
+	}
+
+	public static ConfigurableApplicationContext iniciar(String banco) {
+		return new SpringApplicationBuilder(MinhasFinancasApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("test")
+				.properties(
+						"spring.datasource.url=jdbc:h2:mem:" + banco
+								+ ";DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+						"spring.main.banner-mode=off",
+						"logging.level.root=warn",
+						"minhasfinancas.status.fila.intervalo-ms=3600000",
+						"minhasfinancas.saldo.reconciliacao.cron=-")
+				.run();
+	}
+}
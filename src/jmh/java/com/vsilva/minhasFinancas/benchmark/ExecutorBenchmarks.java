@@ -0,0 +1,84 @@
+package com.vsilva.minhasFinancas.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.vsilva.minhasFinancas.benchmark.ComparacaoBaseline.Comparacao;
+import com.vsilva.minhasFinancas.benchmark.ComparacaoBaseline.Situacao;
+
+/**
+ * Executa os benchmarks selecionados e compara o resultado com a baseline,
+ * encerrando com código 1 se houver regressão. Chamado pelo profile
+ * {@code benchmark} do Maven:
+ *
+ * <pre>
+ * mvn -Pbenchmark verify                                  # tudo, compara com a baseline
+ * mvn -Pbenchmark verify -Dbenchmark.filtro=Json          # só os que casam com a regex
+ * mvn -Pbenchmark verify -Dbenchmark.parametros="quantidade=10000,100000;tamanho=50"
+ * mvn -Pbenchmark verify -Dbenchmark.gravar-baseline=true # grava o resultado como baseline
+ * </pre>
+ *
+ * A baseline só vale para a máquina em que foi gravada; grave uma nova ao
+ * trocar de máquina ou de JDK. Sem baseline o resultado só é exibido.
+ */
+public class ExecutorBenchmarks {
+
+	public static void main(String[] args) throws Exception {
+		String filtro = System.getProperty("benchmark.filtro", ".*");
+		Path resultado = Paths.get(System.getProperty("benchmark.resultado", "target/jmh/resultado.json"));
+		Path baseline = Paths.get(System.getProperty("benchmark.baseline", "src/jmh/resources/baseline.json"));
+		double tolerancia = Double.parseDouble(System.getProperty("benchmark.tolerancia", "0.15"));
+		boolean falhar = Boolean.parseBoolean(System.getProperty("benchmark.falhar", "true"));
+		boolean gravarBaseline = Boolean.parseBoolean(System.getProperty("benchmark.gravar-baseline", "false"));
+
+		ChainedOptionsBuilder opcoes = new OptionsBuilder()
+				.include(filtro)
+				.resultFormat(ResultFormatType.JSON)
+				.result(resultado.toString());
+		// substitui os valores de @Param, ex.: quantidade=10000,100000;tamanho=50
+		for (String parametro : System.getProperty("benchmark.parametros", "").split(";")) {
+			String[] nomeEValores = parametro.split("=", 2);
+			if (nomeEValores.length == 2) {
+				opcoes.param(nomeEValores[0].trim(), nomeEValores[1].trim().split(","));
+			}
+		}
+
+		Files.createDirectories(resultado.toAbsolutePath().getParent());
+		new Runner(opcoes.build()).run();
+
+		if (gravarBaseline) {
+			Files.createDirectories(baseline.toAbsolutePath().getParent());
+			Files.copy(resultado, baseline, StandardCopyOption.REPLACE_EXISTING);
+			System.out.println("Baseline gravada em " + baseline);
+			return;
+		}
+		if (!Files.exists(baseline)) {
+			System.out.println("Sem baseline em " + baseline + "; use -Dbenchmark.gravar-baseline=true para gravar");
+			return;
+		}
+
+		List<Comparacao> comparacoes = new ComparacaoBaseline(tolerancia).comparar(baseline, resultado);
+		List<String> relatorio = comparacoes.stream().map(Comparacao::toString).collect(Collectors.toList());
+		Files.write(resultado.resolveSibling("comparacao.txt"), relatorio, StandardCharsets.UTF_8);
+
+		System.out.println();
+		System.out.println(String.format("Comparacao com %s (tolerancia %.0f%%):", baseline, tolerancia * 100));
+		relatorio.forEach(System.out::println);
+
+		long regressoes = comparacoes.stream().filter(c -> c.getSituacao() == Situacao.REGRESSAO).count();
+		if (regressoes > 0 && falhar) {
+			System.err.println(regressoes + " benchmark(s) com regressao");
+			System.exit(1);
+		}
+	}
+}
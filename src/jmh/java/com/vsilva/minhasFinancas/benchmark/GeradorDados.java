@@ -0,0 +1,86 @@
+package com.vsilva.minhasFinancas.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.vsilva.minhasFinancas.model.util.TextoBusca;
+
+/**
+ * Popula o banco dos benchmarks direto por JDBC, em lotes, com dados
+ * determinísticos: a mesma semente gera sempre os mesmos lançamentos, para que
+ * execuções diferentes sejam comparáveis.
+ * <p>
+ * Os lançamentos ficam distribuídos igualmente entre os usuários, em
+ * {@link #ANO_INICIAL}..{@link #ANO_FINAL}, e a tabela saldo_usuario é
+ * preenchida a partir deles, como a aplicação manteria.
+ */
+public final class GeradorDados {
+
+	public static final int ANO_INICIAL = 2015;
+	public static final int ANO_FINAL = 2024;
+
+	static final String[] PALAVRAS = { "mercado", "aluguel", "salario", "energia", "agua", "internet", "farmacia",
+			"combustivel", "restaurante", "academia", "escola", "viagem", "presente", "seguro", "imposto",
+			"condominio", "cinema", "livraria", "padaria", "manutencao" };
+
+	private static final int TAMANHO_LOTE = 10_000;
+
+	private GeradorDados() {
+	}
+
+	/**
+	 * @return ids dos usuários criados
+	 */
+	public static List<Long> gerar(JdbcTemplate jdbc, int quantidade, int usuarios, long semente) {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < usuarios; i++) {
+			jdbc.update("insert into financas.usuario (nome, email, senha) values (?, ?, ?)",
+					"usuario " + i, "usuario" + i + "@benchmark.com", "senha");
+			ids.add(jdbc.queryForObject("select max(id) from financas.usuario", Long.class));
+		}
+
+		Random aleatorio = new Random(semente);
+		List<Object[]> lote = new ArrayList<>(TAMANHO_LOTE);
+		for (long id = 1; id <= quantidade; id++) {
+			String descricao = PALAVRAS[aleatorio.nextInt(PALAVRAS.length)] + " "
+					+ PALAVRAS[aleatorio.nextInt(PALAVRAS.length)] + " " + aleatorio.nextInt(1000);
+			int ano = ANO_INICIAL + aleatorio.nextInt(ANO_FINAL - ANO_INICIAL + 1);
+			int mes = 1 + aleatorio.nextInt(12);
+
+			lote.add(new Object[] { id, descricao, TextoBusca.normalizar(descricao), mes, ano,
+					BigDecimal.valueOf(1 + aleatorio.nextInt(100_000), 2),
+					aleatorio.nextInt(3) == 0 ? "RECEITA" : "DESPESA",
+					aleatorio.nextBoolean() ? "EFETIVADO" : "PENDENTE",
+					ids.get((int) (id % usuarios)),
+					Date.valueOf(LocalDate.of(ano, mes, 1)) });
+
+			if (lote.size() == TAMANHO_LOTE) {
+				inserir(jdbc, lote);
+			}
+		}
+		inserir(jdbc, lote);
+
+		// os ids foram gerados aqui; a sequence continua depois deles
+		jdbc.execute("alter sequence financas.lancamento_seq restart with " + (quantidade + 1));
+		jdbc.update("insert into financas.saldo_usuario (id_usuario, saldo, versao) "
+				+ "select id_usuario, sum(case when tipo = 'DESPESA' then -valor else valor end), 1 "
+				+ "from financas.lancamento group by id_usuario");
+		jdbc.execute("analyze");
+		return ids;
+	}
+
+	private static void inserir(JdbcTemplate jdbc, List<Object[]> lote) {
+		if (lote.isEmpty()) {
+			return;
+		}
+		jdbc.batchUpdate("insert into financas.lancamento (id, descricao, descricao_busca, mes, ano, valor, tipo, "
+				+ "status, id_usuario, data_cadastro, versao) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)", lote);
+		lote.clear();
+	}
+}
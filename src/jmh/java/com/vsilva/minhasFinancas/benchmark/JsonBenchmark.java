@@ -0,0 +1,92 @@
+package com.vsilva.minhasFinancas.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+
+/**
+ * Serialização JSON de listas de lançamentos, com um ObjectMapper configurado
+ * como o do Spring Boot: a projeção que a listagem devolve, o DTO dos demais
+ * endpoints e a entidade.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonBenchmark {
+
+	@Param({ "50", "1000" })
+	int tamanho;
+
+	ObjectMapper mapper;
+	List<LancamentoResumo> resumos;
+	List<LancamentoDTO> dtos;
+	List<Lancamento> entidades;
+
+	@Setup
+	public void iniciar() {
+		mapper = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+
+		resumos = new ArrayList<>(tamanho);
+		dtos = new ArrayList<>(tamanho);
+		entidades = new ArrayList<>(tamanho);
+		Usuario usuario = Usuario.builder().id(1L).nome("usuario").email("usuario@email.com").build();
+		for (long id = 1; id <= tamanho; id++) {
+			String descricao = GeradorDados.PALAVRAS[(int) (id % GeradorDados.PALAVRAS.length)] + " " + id;
+			BigDecimal valor = BigDecimal.valueOf(id * 137 % 100_000, 2);
+			int mes = (int) (id % 12) + 1;
+
+			resumos.add(new LancamentoResumo(id, descricao, mes, 2020, valor, LocalDate.of(2020, mes, 1),
+					Tipo_lancamento.DESPESA, StatusLancamento.PENDENTE, 1L));
+			dtos.add(LancamentoDTO.builder().id(id).descricao(descricao).mes(mes).ano(2020).valor(valor)
+					.usuario(1L).tipo("DESPESA").status("PENDENTE").versao(0L).build());
+			entidades.add(Lancamento.builder().id(id).descricao(descricao).mes(mes).ano(2020).valor(valor)
+					.dataCadastro(LocalDate.of(2020, mes, 1)).tipo(Tipo_lancamento.DESPESA)
+					.status(StatusLancamento.PENDENTE).usuario(usuario).versao(0L).build());
+		}
+	}
+
+	@Benchmark
+	public byte[] serializarResumos() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(resumos);
+	}
+
+	@Benchmark
+	public byte[] serializarDTOs() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(dtos);
+	}
+
+	@Benchmark
+	public byte[] serializarEntidades() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(entidades);
+	}
+}
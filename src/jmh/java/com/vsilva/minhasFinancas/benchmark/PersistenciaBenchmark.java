@@ -0,0 +1,145 @@
+package com.vsilva.minhasFinancas.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.service.LancamentoService;
+import com.vsilva.minhasFinancas.service.SaldoService;
+
+/**
+ * Consultas de lançamentos e saldo pelo serviço, com a aplicação completa
+ * sobre H2 em memória, para 10 mil, 100 mil e 1 milhão de lançamentos
+ * divididos entre 100 usuários. Cada operação usa o próximo usuário, para que
+ * as medições não dependam de um único usuário.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistenciaBenchmark {
+
+	private static final int USUARIOS = 100;
+
+	@Param({ "10000", "100000", "1000000" })
+	int quantidade;
+
+	ConfigurableApplicationContext contexto;
+	LancamentoService service;
+	SaldoService saldoService;
+	EntityManager entityManager;
+	List<Long> usuarios;
+	int proximo;
+
+	@Setup(Level.Trial)
+	public void iniciar() {
+		contexto = ContextoBenchmark.iniciar("persistencia" + quantidade);
+		usuarios = GeradorDados.gerar(contexto.getBean(JdbcTemplate.class), quantidade, USUARIOS, 42);
+		service = contexto.getBean(LancamentoService.class);
+		saldoService = contexto.getBean(SaldoService.class);
+		entityManager = contexto.getBean(EntityManager.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void encerrar() {
+		contexto.close();
+	}
+
+	@Benchmark
+	public List<LancamentoResumo> buscarPorAnoEMes() {
+		Lancamento filtro = filtro();
+		filtro.setAno(2020);
+		filtro.setMes(6);
+		return service.buscar(filtro);
+	}
+
+	@Benchmark
+	public Page<LancamentoResumo> buscarPrimeiraPagina() {
+		return service.buscar(filtro(), PageRequest.of(0, 50));
+	}
+
+	@Benchmark
+	public List<LancamentoResumo> buscarPorDescricao() {
+		Lancamento filtro = filtro();
+		filtro.setDescricao("merc");
+		return service.buscar(filtro, null, 50);
+	}
+
+	/**
+	 * A busca por descrição de antes dos termos normalizados: o QBE com
+	 * {@code CONTAINING} e {@code withIgnoreCase}, que gera
+	 * {@code lower(descricao) like '%merc%'} e não usa índice. Mesmo filtro e
+	 * limite de {@code buscarPorDescricao}, na ordem da listagem.
+	 */
+	@Benchmark
+	public List<Lancamento> buscarPorDescricaoContendo() {
+		Lancamento filtro = filtro();
+		filtro.setDescricao("merc");
+		Example<Lancamento> exemplo = Example.of(filtro,
+				ExampleMatcher.matching().withIgnoreCase().withStringMatcher(StringMatcher.CONTAINING));
+
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Lancamento> query = cb.createQuery(Lancamento.class);
+		Root<Lancamento> root = query.from(Lancamento.class);
+		query.where(QueryByExamplePredicateBuilder.getPredicate(root, cb, exemplo))
+				.orderBy(cb.asc(root.get("ano")), cb.asc(root.get("mes")), cb.asc(root.get("id")));
+		return entityManager.createQuery(query).setMaxResults(50).getResultList();
+	}
+
+	@Benchmark
+	public BigDecimal obterSaldoPorUsuario() {
+		return service.obterSaldoPorUsuario(proximoUsuario());
+	}
+
+	/**
+	 * O cálculo pelos lançamentos, que {@code obterSaldoPorUsuario} evita
+	 * graças à tabela saldo_usuario e ao cache.
+	 */
+	@Benchmark
+	public BigDecimal calcularSaldo() {
+		return saldoService.calcularSaldo(proximoUsuario());
+	}
+
+	private Lancamento filtro() {
+		Lancamento filtro = new Lancamento();
+		filtro.setUsuario(Usuario.builder().id(proximoUsuario()).build());
+		return filtro;
+	}
+
+	private Long proximoUsuario() {
+		proximo = (proximo + 1) % usuarios.size();
+		return usuarios.get(proximo);
+	}
+}
@@ -0,0 +1,60 @@
+package com.vsilva.minhasFinancas.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vsilva.minhasFinancas.service.impl.SenhaServiceImpl;
+
+/**
+ * Custo do BCrypt por fator de custo ({@code minhasfinancas.senha.custo}), em
+ * uma thread e sem o cache de credenciais verificadas. Serve para escolher o
+ * custo: cada login sem cache ocupa uma thread do pool de hash por esse tempo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class SenhaBenchmark {
+
+	@Param({ "10", "12" })
+	int custo;
+
+	SenhaServiceImpl service;
+	String hash;
+
+	@Setup(Level.Trial)
+	public void iniciar() {
+		service = new SenhaServiceImpl(custo, 1, 16, 0);
+		hash = service.codificar("senha do benchmark").join();
+	}
+
+	@TearDown(Level.Trial)
+	public void encerrar() {
+		service.encerrar();
+	}
+
+	@Benchmark
+	public String codificar() {
+		return service.codificar("senha do benchmark").join();
+	}
+
+	@Benchmark
+	public Boolean conferir() {
+		return service.conferir("senha do benchmark", hash).join();
+	}
+}
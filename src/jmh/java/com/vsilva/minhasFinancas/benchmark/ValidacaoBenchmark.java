@@ -0,0 +1,99 @@
+package com.vsilva.minhasFinancas.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.service.ParticionamentoService;
+import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
+import com.vsilva.minhasFinancas.service.impl.LancamentoServiceImpl;
+
+/**
+ * {@code LancamentoServiceImpl.validar} para um lançamento válido e um
+ * inválido (com o custo da exceção). A única dependência que a validação
+ * consulta é o {@link ParticionamentoService}, trocado aqui por um sem anos
+ * arquivados; em produção essa resposta também vem de cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidacaoBenchmark {
+
+	LancamentoServiceImpl service;
+	Lancamento valido;
+	Lancamento invalido;
+
+	@Setup
+	public void iniciar() {
+		service = new LancamentoServiceImpl(null, null, new SemAnosArquivados(), null);
+		valido = Lancamento.builder()
+				.descricao("mercado do mes")
+				.mes(6)
+				.ano(2020)
+				.usuario(Usuario.builder().id(1L).build())
+				.valor(BigDecimal.valueOf(150))
+				.tipo(Tipo_lancamento.DESPESA)
+				.build();
+		invalido = Lancamento.builder()
+				.descricao("mercado do mes")
+				.mes(13)
+				.build();
+	}
+
+	@Benchmark
+	public Lancamento validarLancamentoValido() {
+		service.validar(valido);
+		return valido;
+	}
+
+	@Benchmark
+	public String validarLancamentoInvalido() {
+		try {
+			service.validar(invalido);
+			return null;
+		} catch (RegraNegocioException e) {
+			return e.getMessage();
+		}
+	}
+
+	static class SemAnosArquivados implements ParticionamentoService {
+
+		@Override
+		public int criarParticoes() {
+			return 0;
+		}
+
+		@Override
+		public int arquivar(int ano, String tablespace) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean arquivado(Integer ano) {
+			return false;
+		}
+
+		@Override
+		public List<Integer> obterAnosArquivados() {
+			return Collections.emptyList();
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.vsilva.minhasFinancas.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Atualização de status em lote: informe os ids dos lançamentos ou um filtro
+ * (usuario, ano, mes, tipo e status atual).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtualizaStatusEmLoteDTO {
+
+	private String status;
+	private List<Long> ids;
+	private Long usuario;
+	private Integer ano;
+	private Integer mes;
+	private String tipo;
+	private String statusAtual;
+}
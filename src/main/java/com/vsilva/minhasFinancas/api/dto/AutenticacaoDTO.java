@@ -0,0 +1,15 @@
+package com.vsilva.minhasFinancas.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AutenticacaoDTO {
+
+	private Long id;
+	private String nome;
+	private String email;
+	private String token;
+	private long expiraEm;
+}
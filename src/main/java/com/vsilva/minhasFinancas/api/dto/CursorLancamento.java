@@ -0,0 +1,35 @@
+package com.vsilva.minhasFinancas.api.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
+
+/**
+ * Token opaco com a posição (ano, mes, id) do último lançamento de uma página.
+ */
+public final class CursorLancamento {
+
+	private CursorLancamento() {
+	}
+
+	public static String codificar(LancamentoResumo ultimo) {
+		String posicao = ultimo.getAno() + ":" + ultimo.getMes() + ":" + ultimo.getId();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(posicao.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static Lancamento decodificar(String token) {
+		try {
+			String[] posicao = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+			Lancamento cursor = new Lancamento();
+			cursor.setAno(Integer.valueOf(posicao[0]));
+			cursor.setMes(Integer.valueOf(posicao[1]));
+			cursor.setId(Long.valueOf(posicao[2]));
+			return cursor;
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			throw new RegraNegocioException("O cursor informado é inválido.");
+		}
+	}
+}
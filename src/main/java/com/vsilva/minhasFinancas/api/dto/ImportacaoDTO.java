@@ -0,0 +1,26 @@
+package com.vsilva.minhasFinancas.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ImportacaoDTO {
+
+	private int total;
+	private int inseridos;
+	private long duracaoMs;
+	private long linhasPorSegundo;
+	private List<ErroLinha> erros;
+
+	@Data
+	@AllArgsConstructor
+	public static class ErroLinha {
+
+		private int linha;
+		private String mensagem;
+	}
+}
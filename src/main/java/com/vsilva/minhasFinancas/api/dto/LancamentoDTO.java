@@ -17,5 +17,6 @@ public class LancamentoDTO {
 	private Long usuario;
 	private String tipo;
 	private String status;
+	private Long versao;
 	
 }
@@ -0,0 +1,21 @@
+package com.vsilva.minhasFinancas.api.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(Include.NON_NULL)
+public class PaginaDTO<T> {
+
+	private List<T> conteudo;
+	private Integer limit;
+	private String next;
+	private Integer page;
+	private Long total;
+}
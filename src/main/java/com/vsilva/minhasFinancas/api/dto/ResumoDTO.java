@@ -0,0 +1,18 @@
+package com.vsilva.minhasFinancas.api.dto;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Totais de lançamentos em formato de matriz: os nomes das colunas vão uma
+ * única vez e cada linha traz só os valores, na mesma ordem.
+ */
+@Data
+@Builder
+public class ResumoDTO {
+
+	private List<String> colunas;
+	private List<List<Object>> linhas;
+}
@@ -0,0 +1,19 @@
+package com.vsilva.minhasFinancas.api.dto;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SituacaoFilaDTO {
+
+	private int pendentes;
+	private int capacidade;
+	private long recebidas;
+	private long aplicadas;
+	private long recusadas;
+	private long falhas;
+	private Instant ultimoProcessamento;
+}
@@ -0,0 +1,142 @@
+package com.vsilva.minhasFinancas.api.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Limita as requisições da API em andamento a um múltiplo do pool de conexões.
+ * Acima do limite a requisição espera uma vaga por pouco tempo e, sem vaga, é
+ * recusada com 503 e Retry-After, em vez de ocupar uma thread do Tomcat
+ * esperando uma conexão do Hikari até o timeout.
+ * <p>
+ * Requisições assíncronas (autenticar, ou todos os handlers no modo
+ * assíncrono) só devolvem a vaga quando a resposta termina. As consultas
+ * reativas ficam de fora: não usam o Hikari, e o limite delas é o pool R2DBC.
+ */
+@Component
+public class AdmissaoFilter extends OncePerRequestFilter {
+
+	static final String METRICA_RECUSADAS = "minhasfinancas.admissao.recusadas";
+	static final String METRICA_EM_ANDAMENTO = "minhasfinancas.admissao.em-andamento";
+
+	private static final String PREFIXO_API = "/api/";
+	private static final String PREFIXO_REATIVO = "/api/reativo/";
+
+	private final boolean habilitada;
+	private final int limite;
+	private final Semaphore vagas;
+	private final long esperaMs;
+	private final String retryAfter;
+	private final Counter recusadas;
+
+	public AdmissaoFilter(@Value("${minhasfinancas.admissao.habilitada:true}") boolean habilitada,
+			@Value("${minhasfinancas.admissao.limite:0}") int limite,
+			@Value("${minhasfinancas.admissao.fator:4}") int fator,
+			@Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanhoPool,
+			@Value("${minhasfinancas.admissao.espera-ms:200}") long esperaMs,
+			@Value("${minhasfinancas.admissao.retry-after-segundos:1}") int retryAfter,
+			MeterRegistry registry) {
+		this.habilitada = habilitada;
+		this.limite = limite > 0 ? limite : tamanhoPool * fator;
+		this.vagas = new Semaphore(this.limite);
+		this.esperaMs = esperaMs;
+		this.retryAfter = String.valueOf(retryAfter);
+		this.recusadas = registry.counter(METRICA_RECUSADAS);
+		Gauge.builder(METRICA_EM_ANDAMENTO, vagas, v -> this.limite - v.availablePermits()).register(registry);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String caminho = request.getRequestURI().substring(request.getContextPath().length());
+		return !habilitada || !caminho.startsWith(PREFIXO_API) || caminho.startsWith(PREFIXO_REATIVO);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		if (!admitir()) {
+			recusadas.increment();
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+			response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+			response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+			response.getWriter().write("Servidor ocupado no momento. Tente novamente em instantes.");
+			return;
+		}
+
+		AtomicBoolean devolvida = new AtomicBoolean();
+		Runnable devolver = () -> {
+			if (devolvida.compareAndSet(false, true)) {
+				vagas.release();
+			}
+		};
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new DevolucaoVaga(devolver));
+			} else {
+				devolver.run();
+			}
+		}
+	}
+
+	private boolean admitir() {
+		try {
+			return vagas.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static class DevolucaoVaga implements AsyncListener {
+
+		private final Runnable devolver;
+
+		DevolucaoVaga(Runnable devolver) {
+			this.devolver = devolver;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			devolver.run();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			devolver.run();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			devolver.run();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// novo ciclo assincrono na mesma requisicao: continua ouvindo
+			event.getAsyncContext().addListener(this);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.vsilva.minhasFinancas.api.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.vsilva.minhasFinancas.service.TokenService;
+import com.vsilva.minhasFinancas.service.exception.ErroAutentiacao;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Valida o token enviado em {@code Authorization: Bearer} sem acessar o banco
+ * e disponibiliza o id do usuário no atributo {@link #USUARIO_AUTENTICADO} da
+ * requisição. Requisições sem token seguem sem usuário autenticado; um token
+ * inválido ou expirado é recusado com 401.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenAutenticacaoFilter extends OncePerRequestFilter {
+
+	public static final String USUARIO_AUTENTICADO = "usuarioAutenticado";
+
+	private static final String PREFIXO = "Bearer ";
+
+	private final TokenService tokenService;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String autorizacao = request.getHeader(HttpHeaders.AUTHORIZATION);
+
+		if (autorizacao != null && autorizacao.startsWith(PREFIXO)) {
+			try {
+				Long idUsuario = tokenService.validar(autorizacao.substring(PREFIXO.length()).trim());
+				request.setAttribute(USUARIO_AUTENTICADO, idUsuario);
+			} catch (ErroAutentiacao e) {
+				response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+				response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+				response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+				response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+				response.getWriter().write(e.getMessage());
+				return;
+			}
+		}
+
+		chain.doFilter(request, response);
+	}
+}
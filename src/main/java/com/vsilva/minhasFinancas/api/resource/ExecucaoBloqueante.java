@@ -0,0 +1,19 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca controllers cujos handlers bloqueiam esperando o banco. Com
+ * {@code minhasfinancas.execucao.modo=assincrono} esses handlers rodam no
+ * executor JDBC e a thread do Tomcat é liberada durante a consulta; handlers
+ * que já devolvem um resultado assíncrono não mudam.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ExecucaoBloqueante {
+}
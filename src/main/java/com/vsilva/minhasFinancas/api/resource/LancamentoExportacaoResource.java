@@ -0,0 +1,181 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.filter.TokenAutenticacaoFilter;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.service.LancamentoService;
+import com.vsilva.minhasFinancas.service.UsuarioService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/lancamentos/exportar")
+@RequiredArgsConstructor
+public class LancamentoExportacaoResource {
+
+	private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+	private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+	private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+	private final LancamentoService service;
+	private final UsuarioService usuarioService;
+	private final ObjectMapper objectMapper;
+
+	@GetMapping
+	public ResponseEntity<StreamingResponseBody> exportar(
+			@RequestParam(value = "usuario", required = false) Long usuarioInformado,
+			@RequestParam(value = "formato", defaultValue = "csv") String formato,
+			@RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+
+		if (outroUsuario(autenticado, usuarioInformado)) {
+			return erro(HttpStatus.FORBIDDEN, "Você não tem acesso aos lançamentos de outro usuário.");
+		}
+
+		if (!"csv".equals(formato) && !"ndjson".equals(formato)) {
+			return erro(HttpStatus.BAD_REQUEST, "Formato de exportação inválido. Use csv ou ndjson.");
+		}
+
+		// o usuário de um token válido existe; sem token é preciso consultar
+		Long idUsuario = autenticado != null ? autenticado : usuarioInformado;
+		if (idUsuario == null || autenticado == null && !usuarioService.existePorId(idUsuario)) {
+			return erro(HttpStatus.BAD_REQUEST, "Hey, não encontramos o seu usuário :(");
+		}
+
+		boolean csv = "csv".equals(formato);
+
+		StreamingResponseBody corpo = saida -> {
+			OutputStream destino = gzip ? new GZIPOutputStream(saida, 8192) : saida;
+			if (csv) {
+				escreverCsv(idUsuario, destino);
+			} else {
+				escreverNdjson(idUsuario, destino);
+			}
+			if (gzip) {
+				((GZIPOutputStream) destino).finish();
+			}
+		};
+
+		// o gzip e o proprio arquivo, e nao uma codificacao da resposta: com
+		// Content-Encoding o cliente descompactaria e salvaria texto num .gz
+		return ResponseEntity.ok()
+				.contentType(gzip ? APPLICATION_GZIP : csv ? TEXT_CSV : APPLICATION_NDJSON)
+				.header(HttpHeaders.CONTENT_DISPOSITION,
+						"attachment; filename=\"lancamentos-" + idUsuario + "." + formato + (gzip ? ".gz\"" : "\""))
+				.body(corpo);
+	}
+
+	private boolean outroUsuario(Long autenticado, Long informado) {
+		return autenticado != null && informado != null && !autenticado.equals(informado);
+	}
+
+	private ResponseEntity<StreamingResponseBody> erro(HttpStatus status, String mensagem) {
+		return ResponseEntity.status(status)
+				.contentType(MediaType.parseMediaType("text/plain;charset=UTF-8"))
+				.body(saida -> saida.write(mensagem.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private void escreverCsv(Long idUsuario, OutputStream saida) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+		writer.write("id,descricao,mes,ano,valor,tipo,status,data_cadastro,usuario\n");
+
+		try {
+			service.exportar(idUsuario, lancamento -> {
+				try {
+					writer.write(String.valueOf(lancamento.getId()));
+					writer.write(',');
+					writer.write(escaparCsv(lancamento.getDescricao()));
+					writer.write(',');
+					writer.write(valor(lancamento.getMes()));
+					writer.write(',');
+					writer.write(valor(lancamento.getAno()));
+					writer.write(',');
+					writer.write(lancamento.getValor() == null ? "" : lancamento.getValor().toPlainString());
+					writer.write(',');
+					writer.write(valor(lancamento.getTipo()));
+					writer.write(',');
+					writer.write(valor(lancamento.getStatus()));
+					writer.write(',');
+					writer.write(valor(lancamento.getDataCadastro()));
+					writer.write(',');
+					writer.write(valor(lancamento.getUsuarioId()));
+					writer.write('\n');
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		writer.flush();
+	}
+
+	private void escreverNdjson(Long idUsuario, OutputStream saida) throws IOException {
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(saida, JsonEncoding.UTF8);
+		generator.setRootValueSeparator(null);
+
+		try {
+			service.exportar(idUsuario, lancamento -> {
+				try {
+					generator.writeStartObject();
+					generator.writeObjectField("id", lancamento.getId());
+					generator.writeStringField("descricao", lancamento.getDescricao());
+					generator.writeObjectField("mes", lancamento.getMes());
+					generator.writeObjectField("ano", lancamento.getAno());
+					generator.writeObjectField("valor", lancamento.getValor());
+					generator.writeStringField("tipo", valorOuNulo(lancamento.getTipo()));
+					generator.writeStringField("status", valorOuNulo(lancamento.getStatus()));
+					generator.writeStringField("dataCadastro", valorOuNulo(lancamento.getDataCadastro()));
+					generator.writeObjectField("usuario", lancamento.getUsuarioId());
+					generator.writeEndObject();
+					generator.writeRaw('\n');
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		generator.flush();
+	}
+
+	private String valor(Object valor) {
+		return valor == null ? "" : valor.toString();
+	}
+
+	private String valorOuNulo(Object valor) {
+		return valor == null ? null : valor.toString();
+	}
+
+	private String escaparCsv(String texto) {
+		if (texto == null) {
+			return "";
+		}
+		if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+			return texto;
+		}
+		return '"' + texto.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,321 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.dto.ImportacaoDTO;
+import com.vsilva.minhasFinancas.api.dto.ImportacaoDTO.ErroLinha;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.api.filter.TokenAutenticacaoFilter;
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.service.LancamentoService;
+import com.vsilva.minhasFinancas.service.UsuarioService;
+import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
+
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/lancamentos/importar")
+@RequiredArgsConstructor
+public class LancamentoImportacaoResource {
+
+	private static final String CABECALHO_CSV = "descricao,mes,ano,valor,tipo";
+
+	private final LancamentoService service;
+	private final UsuarioService usuarioService;
+	private final ObjectMapper objectMapper;
+
+	@Value("${minhasfinancas.importacao.tamanho-lote:100}")
+	private int tamanhoLotePadrao;
+
+	@Value("${minhasfinancas.importacao.tamanho-lote-maximo:1000}")
+	private int tamanhoLoteMaximo;
+
+	@Value("${minhasfinancas.importacao.erros-maximo:100}")
+	private int errosMaximo;
+
+	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity importarJson(@RequestParam(value = "usuario", required = false) Long usuarioInformado,
+			@RequestParam(value = "lote", required = false) Integer lote, InputStream corpo,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado)
+			throws IOException {
+
+		if (outroUsuario(autenticado, usuarioInformado)) {
+			return acessoNegado();
+		}
+
+		return importar(autenticado, usuarioInformado, lote, new Leitor() {
+
+			private MappingIterator<LancamentoDTO> dtos;
+			private int numero;
+
+			@Override
+			Linha ler() throws IOException {
+				try {
+					if (dtos == null) {
+						dtos = objectMapper.readerFor(LancamentoDTO.class).readValues(corpo);
+					}
+					if (!dtos.hasNextValue()) {
+						return null;
+					}
+					LancamentoDTO dto = dtos.nextValue();
+					numero++;
+					return new Linha(numero, dto.getDescricao(), dto.getMes(), dto.getAno(), dto.getValor(),
+							dto.getTipo());
+				} catch (JsonProcessingException e) {
+					throw new RegraNegocioException("O item " + (numero + 1) + " da lista não é um lançamento válido.");
+				}
+			}
+		});
+	}
+
+	@PostMapping(consumes = "text/csv")
+	public ResponseEntity importarCsv(@RequestParam(value = "usuario", required = false) Long usuarioInformado,
+			@RequestParam(value = "lote", required = false) Integer lote, InputStream corpo,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado)
+			throws IOException {
+
+		if (outroUsuario(autenticado, usuarioInformado)) {
+			return acessoNegado();
+		}
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(corpo, StandardCharsets.UTF_8));
+		String cabecalho = reader.readLine();
+		if (cabecalho == null || !CABECALHO_CSV.equalsIgnoreCase(cabecalho.trim())) {
+			return ResponseEntity.badRequest().body("O arquivo deve iniciar com o cabeçalho " + CABECALHO_CSV);
+		}
+
+		return importar(autenticado, usuarioInformado, lote, new Leitor() {
+
+			private int numero = 1;
+
+			@Override
+			Linha ler() throws IOException {
+				String texto;
+				while ((texto = reader.readLine()) != null) {
+					numero++;
+					if (texto.trim().isEmpty()) {
+						continue;
+					}
+					try {
+						List<String> campos = separarCsv(texto);
+						if (campos.size() != 5) {
+							throw new IllegalArgumentException("A linha deve ter 5 campos: " + CABECALHO_CSV);
+						}
+						return new Linha(numero, campos.get(0), inteiro(campos.get(1)), inteiro(campos.get(2)),
+								campos.get(3).isEmpty() ? null : new BigDecimal(campos.get(3)), campos.get(4));
+					} catch (NumberFormatException e) {
+						recusar(numero, "A linha contém um número inválido.");
+					} catch (IllegalArgumentException e) {
+						recusar(numero, e.getMessage());
+					}
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * O leitor entrega as linhas ao serviço conforme o corpo é lido, e o
+	 * serviço insere um lote de cada vez; só os erros ficam em memória. Depois
+	 * do primeiro erro as linhas seguintes são apenas validadas, e ao fim da
+	 * leitura o {@link Leitor} lança {@link ImportacaoRecusadaException}, que
+	 * desfaz a transação da importação inteira. O lote é limitado a
+	 * {@code tamanho-lote-maximo} e os erros a {@code erros-maximo}: ao chegar
+	 * a esse número de erros a leitura para e a importação é recusada.
+	 */
+	private ResponseEntity importar(Long autenticado, Long usuarioInformado, Integer lote, Leitor leitor)
+			throws IOException {
+		if (lote != null && (lote < 1 || lote > tamanhoLoteMaximo)) {
+			return ResponseEntity.badRequest().body("Informe um tamanho de lote entre 1 e " + tamanhoLoteMaximo + ".");
+		}
+
+		// o usuário de um token válido existe; sem token é preciso consultar
+		Long idUsuario = autenticado != null ? autenticado : usuarioInformado;
+		if (idUsuario == null || autenticado == null && !usuarioService.existePorId(idUsuario)) {
+			return ResponseEntity.badRequest().body("Hey, não encontramos o seu usuário :(");
+		}
+		leitor.usuario = Usuario.builder().id(idUsuario).build();
+
+		try {
+			long inicio = System.nanoTime();
+			int inseridos = service.importar(idUsuario, leitor, lote != null ? lote : tamanhoLotePadrao);
+			long duracaoNanos = Math.max(System.nanoTime() - inicio, 1);
+
+			return ResponseEntity.ok(ImportacaoDTO.builder()
+					.total(leitor.total)
+					.inseridos(inseridos)
+					.duracaoMs(duracaoNanos / 1_000_000)
+					.linhasPorSegundo(inseridos * 1_000_000_000L / duracaoNanos)
+					.erros(leitor.erros)
+					.build());
+		} catch (ImportacaoRecusadaException e) {
+			return ResponseEntity.badRequest().body(ImportacaoDTO.builder()
+					.total(leitor.total)
+					.erros(leitor.erros)
+					.build());
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private boolean outroUsuario(Long autenticado, Long informado) {
+		return autenticado != null && informado != null && !autenticado.equals(informado);
+	}
+
+	private ResponseEntity acessoNegado() {
+		return new ResponseEntity("Você não tem acesso aos lançamentos de outro usuário.", HttpStatus.FORBIDDEN);
+	}
+
+	private Integer inteiro(String valor) {
+		return valor.isEmpty() ? null : Integer.valueOf(valor);
+	}
+
+	private List<String> separarCsv(String texto) {
+		List<String> campos = new ArrayList<>();
+		StringBuilder campo = new StringBuilder();
+		boolean entreAspas = false;
+
+		for (int i = 0; i < texto.length(); i++) {
+			char c = texto.charAt(i);
+			if (entreAspas) {
+				if (c == '"' && i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+					campo.append('"');
+					i++;
+				} else if (c == '"') {
+					entreAspas = false;
+				} else {
+					campo.append(c);
+				}
+			} else if (c == '"') {
+				entreAspas = true;
+			} else if (c == ',') {
+				campos.add(campo.toString().trim());
+				campo.setLength(0);
+			} else {
+				campo.append(c);
+			}
+		}
+		campos.add(campo.toString().trim());
+		return campos;
+	}
+
+	private abstract class Leitor implements Iterator<Lancamento> {
+
+		private final List<ErroLinha> erros = new ArrayList<>();
+		private Usuario usuario;
+		private int total;
+		private Lancamento proximo;
+
+		/**
+		 * Devolve a próxima linha do corpo, ou {@code null} no fim.
+		 */
+		abstract Linha ler() throws IOException;
+
+		void recusar(int numero, String mensagem) {
+			total++;
+			erros.add(new ErroLinha(numero, mensagem));
+			if (erros.size() >= errosMaximo) {
+				throw new ImportacaoRecusadaException();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (proximo == null) {
+				Linha linha;
+				try {
+					linha = ler();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				if (linha == null) {
+					if (!erros.isEmpty()) {
+						throw new ImportacaoRecusadaException();
+					}
+					return false;
+				}
+
+				try {
+					Lancamento lancamento = linha.converter(usuario);
+					service.validar(lancamento);
+					total++;
+					if (erros.isEmpty()) {
+						proximo = lancamento;
+					}
+				} catch (RegraNegocioException e) {
+					recusar(linha.numero, e.getMessage());
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Lancamento next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Lancamento lancamento = proximo;
+			proximo = null;
+			return lancamento;
+		}
+	}
+
+	private static class ImportacaoRecusadaException extends RuntimeException {
+	}
+
+	@AllArgsConstructor
+	private static class Linha {
+
+		private final int numero;
+		private final String descricao;
+		private final Integer mes;
+		private final Integer ano;
+		private final BigDecimal valor;
+		private final String tipo;
+
+		Lancamento converter(Usuario usuario) {
+			Lancamento lancamento = new Lancamento();
+			lancamento.setDescricao(descricao);
+			lancamento.setMes(mes);
+			lancamento.setAno(ano);
+			lancamento.setValor(valor);
+			lancamento.setUsuario(usuario);
+			if (tipo != null && !tipo.isEmpty()) {
+				try {
+					lancamento.setTipo(Tipo_lancamento.valueOf(tipo.trim().toUpperCase()));
+				} catch (IllegalArgumentException e) {
+					throw new RegraNegocioException("Tipo de Lancamento inválido: " + tipo);
+				}
+			}
+			return lancamento;
+		}
+	}
+}
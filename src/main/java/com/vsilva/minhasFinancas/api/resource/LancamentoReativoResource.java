@@ -0,0 +1,116 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import java.util.concurrent.TimeoutException;
+
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.vsilva.minhasFinancas.api.filter.TokenAutenticacaoFilter;
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.service.LancamentoQueryService;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Leituras de lançamentos e saldo pelo {@link LancamentoQueryService}, sem
+ * ocupar uma thread enquanto o banco responde. Ligado com
+ * {@code minhasfinancas.reativo.habilitado=true}, ao lado dos endpoints JPA.
+ * <p>
+ * A busca responde JSON, montado depois que todas as linhas chegam, ou
+ * {@code application/stream+json}, um objeto por linha enviado conforme o
+ * cliente consome. A exportação só existe no segundo formato. Não há 304 nem
+ * consulta de existência do usuário: sem lançamentos a lista vem vazia.
+ */
+@RestController
+@RequestMapping("/api/reativo")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "minhasfinancas.reativo.habilitado", havingValue = "true")
+public class LancamentoReativoResource {
+
+	private final LancamentoQueryService service;
+
+	// sem produces: com Accept */* a lista vai como JSON, e so um Accept
+	// application/stream+json explicito ativa o stream
+	@GetMapping("/lancamentos")
+	public ResponseEntity<Publisher<?>> buscar(@RequestParam(value = "descricao", required = false) String descricao,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "usuario", required = false) Long usuarioInformado,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		if (outroUsuario(autenticado, usuarioInformado)) {
+			return acessoNegado();
+		}
+		Long idUsuario = autenticado != null ? autenticado : usuarioInformado;
+		if (idUsuario == null) {
+			return usuarioNaoEncontrado();
+		}
+
+		Lancamento filtro = new Lancamento();
+		filtro.setDescricao(descricao);
+		filtro.setMes(mes);
+		filtro.setAno(ano);
+		filtro.setUsuario(Usuario.builder().id(idUsuario).build());
+		return ResponseEntity.ok(service.buscar(filtro));
+	}
+
+	@GetMapping(value = "/lancamentos/exportar", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+	public ResponseEntity<Publisher<?>> exportar(@RequestParam(value = "usuario", required = false) Long usuarioInformado,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		if (outroUsuario(autenticado, usuarioInformado)) {
+			return acessoNegado();
+		}
+		Long idUsuario = autenticado != null ? autenticado : usuarioInformado;
+		if (idUsuario == null) {
+			return usuarioNaoEncontrado();
+		}
+		return ResponseEntity.ok(service.exportar(idUsuario));
+	}
+
+	@GetMapping("/usuarios/{id}/saldo")
+	public ResponseEntity<Publisher<?>> obterSaldo(@PathVariable("id") Long id,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		if (outroUsuario(autenticado, id)) {
+			return acessoNegado();
+		}
+		return ResponseEntity.ok(service.obterSaldo(id));
+	}
+
+	/**
+	 * Pool R2DBC sem conexão livre. Numa exportação a resposta já começou e o
+	 * erro só encerra o stream.
+	 */
+	@ExceptionHandler(TimeoutException.class)
+	public ResponseEntity semConexao() {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.body("Servidor ocupado no momento. Tente novamente em instantes.");
+	}
+
+	private boolean outroUsuario(Long autenticado, Long informado) {
+		return autenticado != null && informado != null && !autenticado.equals(informado);
+	}
+
+	// o corpo declarado e um Publisher, para que o Spring MVC trate a resposta
+	// como reativa; as mensagens de erro tambem vao em um
+	private ResponseEntity<Publisher<?>> acessoNegado() {
+		return ResponseEntity.status(HttpStatus.FORBIDDEN)
+				.body(Mono.just("Você não tem acesso aos lançamentos de outro usuário."));
+	}
+
+	private ResponseEntity<Publisher<?>> usuarioNaoEncontrado() {
+		return ResponseEntity.badRequest().body(Mono.just("Hey, não encontramos o seu usuário :("));
+	}
+}
@@ -1,114 +1,390 @@
 package com.vsilva.minhasFinancas.api.resource;
 
-import java.util.Optional;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.vsilva.minhasFinancas.api.dto.AtualizaStatusDTO;
+import com.vsilva.minhasFinancas.api.dto.AtualizaStatusEmLoteDTO;
+import com.vsilva.minhasFinancas.api.dto.CursorLancamento;
 import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.api.dto.PaginaDTO;
+import com.vsilva.minhasFinancas.api.dto.ResumoDTO;
+import com.vsilva.minhasFinancas.api.filter.TokenAutenticacaoFilter;
 import com.vsilva.minhasFinancas.model.entity.Lancamento;
 import com.vsilva.minhasFinancas.model.entity.Usuario;
 import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
 import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.model.projection.TotalLancamentos;
+import com.vsilva.minhasFinancas.service.FilaStatusService;
 import com.vsilva.minhasFinancas.service.LancamentoService;
 import com.vsilva.minhasFinancas.service.UsuarioService;
+import com.vsilva.minhasFinancas.service.exception.FilaCheiaException;
 import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
 
 import lombok.RequiredArgsConstructor;
 
 @RestController
+@ExecucaoBloqueante
 @RequestMapping("/api/lancamentos")
 @RequiredArgsConstructor
 public class LancamentoResource {
 
+	private static final int TAMANHO_PAGINA_PADRAO = 50;
+
+	private static final List<String> COLUNAS_RESUMO_MENSAL = Arrays.asList("ano", "mes", "tipo", "status", "total",
+			"quantidade");
+	private static final List<String> COLUNAS_RESUMO_ANUAL = Arrays.asList("ano", "tipo", "status", "total",
+			"quantidade");
+
 	private final LancamentoService service;
 	private final UsuarioService usuarioService;
+	private final FilaStatusService filaStatusService;
+	private final RespostaCondicional respostaCondicional;
 
 	@GetMapping
 	public ResponseEntity buscar(@RequestParam(value = "descricao", required = false) String descricao,
 			@RequestParam(value = "mes", required = false) Integer mes,
-			@RequestParam(value = "ano", required = false) Integer ano, @RequestParam("usuario") Long idUsuario) {
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "usuario", required = false) Long usuarioInformado,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "next", required = false) String next,
+			@RequestParam(value = "page", required = false) Integer page,
+			@RequestParam(value = "size", required = false) Integer size,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado,
+			WebRequest request) {
+		if (outroUsuario(autenticado, usuarioInformado)) {
+			return acessoNegado();
+		}
+		Long idUsuario = autenticado != null ? autenticado : usuarioInformado;
+		if (idUsuario == null) {
+			return usuarioNaoEncontrado();
+		}
+		if (respostaCondicional.naoModificado(request, "lancamentos", service.obterVersaoPorUsuario(idUsuario))) {
+			return null;
+		}
+
 		Lancamento lancamentoFiltro = new Lancamento();
 		lancamentoFiltro.setDescricao(descricao);
 		lancamentoFiltro.setMes(mes);
 		lancamentoFiltro.setAno(ano);
 
-		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
-		if (!usuario.isPresent()) {
-			return ResponseEntity.badRequest().body("Hey, não encontramos o seu usuário :(");
-		} else {
-			lancamentoFiltro.setUsuario(usuario.get());
+		// o filtro so precisa do id; a existencia do usuario so e verificada
+		// quando a busca nao retorna nada e nao ha token
+		lancamentoFiltro.setUsuario(Usuario.builder().id(idUsuario).build());
+
+		try {
+			if (limit != null || next != null) {
+				PaginaDTO<LancamentoResumo> pagina = buscarPorCursor(lancamentoFiltro, limit, next);
+				return pagina.getConteudo().isEmpty() && usuarioInexistente(autenticado, idUsuario)
+						? usuarioNaoEncontrado()
+						: ResponseEntity.ok(pagina);
+			}
+			if (page != null || size != null) {
+				PaginaDTO<LancamentoResumo> pagina = buscarPorPagina(lancamentoFiltro, page, size);
+				return pagina.getConteudo().isEmpty() && usuarioInexistente(autenticado, idUsuario)
+						? usuarioNaoEncontrado()
+						: ResponseEntity.ok(pagina);
+			}
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+
+		List<LancamentoResumo> lancamentos = service.buscar(lancamentoFiltro);
+		if (lancamentos.isEmpty() && usuarioInexistente(autenticado, idUsuario)) {
+			return usuarioNaoEncontrado();
 		}
-		List<Lancamento> lancamentos = service.buscar(lancamentoFiltro);
 		return ResponseEntity.ok(lancamentos);
 	}
 
+	private PaginaDTO<LancamentoResumo> buscarPorCursor(Lancamento filtro, Integer limit, String next) {
+		int limite = limit != null ? limit : TAMANHO_PAGINA_PADRAO;
+		Lancamento cursor = next != null ? CursorLancamento.decodificar(next) : null;
+
+		List<LancamentoResumo> lancamentos = service.buscar(filtro, cursor, limite);
+
+		// pagina cheia indica que pode haver mais registros apos o ultimo item
+		String proximo = lancamentos.size() == limite
+				? CursorLancamento.codificar(lancamentos.get(lancamentos.size() - 1))
+				: null;
+
+		return PaginaDTO.<LancamentoResumo>builder()
+				.conteudo(lancamentos)
+				.limit(limite)
+				.next(proximo)
+				.build();
+	}
+
+	private PaginaDTO<LancamentoResumo> buscarPorPagina(Lancamento filtro, Integer page, Integer size) {
+		int pagina = page != null ? page : 0;
+		int tamanho = size != null ? size : TAMANHO_PAGINA_PADRAO;
+		if (pagina < 0 || tamanho < 1) {
+			throw new RegraNegocioException("Informe uma página e um tamanho de página válidos.");
+		}
+
+		Page<LancamentoResumo> resultado = service.buscar(filtro, PageRequest.of(pagina, tamanho));
+
+		return PaginaDTO.<LancamentoResumo>builder()
+				.conteudo(resultado.getContent())
+				.limit(resultado.getSize())
+				.page(resultado.getNumber())
+				.total(resultado.getTotalElements())
+				.build();
+	}
+
+	@GetMapping("/{id}")
+	public ResponseEntity obterPorId(@PathVariable("id") Long id,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		return service.obterPorId(id).map(entity -> outroUsuario(autenticado, entity)
+				? acessoNegado()
+				: comVersao(HttpStatus.OK, entity))
+				.orElseGet(() -> new ResponseEntity("Infelizmento não encontramos seu lançamento em nossa base :/",
+						HttpStatus.NOT_FOUND));
+	}
+
+	@GetMapping("/resumo")
+	public ResponseEntity resumir(@RequestParam(value = "usuario", required = false) Long usuarioInformado,
+			@RequestParam(value = "anoInicial", required = false) Integer anoInicial,
+			@RequestParam(value = "anoFinal", required = false) Integer anoFinal,
+			@RequestParam(value = "periodo", defaultValue = "mes") String periodo,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		if (outroUsuario(autenticado, usuarioInformado)) {
+			return acessoNegado();
+		}
+		Long idUsuario = autenticado != null ? autenticado : usuarioInformado;
+		if (idUsuario == null) {
+			return usuarioNaoEncontrado();
+		}
+		if (!"mes".equals(periodo) && !"ano".equals(periodo)) {
+			return ResponseEntity.badRequest().body("Informe o período do resumo: mes ou ano.");
+		}
+		boolean porMes = "mes".equals(periodo);
+
+		int anoAtual = LocalDate.now().getYear();
+		List<TotalLancamentos> totais;
+		try {
+			totais = service.resumir(idUsuario, anoInicial != null ? anoInicial : anoAtual,
+					anoFinal != null ? anoFinal : anoAtual, porMes);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+		if (totais.isEmpty() && usuarioInexistente(autenticado, idUsuario)) {
+			return usuarioNaoEncontrado();
+		}
+
+		List<List<Object>> linhas = totais.stream()
+				.map(total -> porMes
+						? Arrays.<Object>asList(total.getAno(), total.getMes(), total.getTipo(), total.getStatus(),
+								total.getTotal(), total.getQuantidade())
+						: Arrays.<Object>asList(total.getAno(), total.getTipo(), total.getStatus(),
+								total.getTotal(), total.getQuantidade()))
+				.collect(Collectors.toList());
+
+		return ResponseEntity.ok(ResumoDTO.builder()
+				.colunas(porMes ? COLUNAS_RESUMO_MENSAL : COLUNAS_RESUMO_ANUAL)
+				.linhas(linhas)
+				.build());
+	}
+
 	@PostMapping
-	public ResponseEntity salvar(@RequestBody LancamentoDTO dto) {
+	public ResponseEntity salvar(@RequestBody LancamentoDTO dto, @RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		if (outroUsuario(autenticado, dto.getUsuario())) {
+			return acessoNegado();
+		}
 		try {
-			Lancamento entidade = converter(dto);
+			Lancamento entidade = converter(dto, autenticado);
 			entidade = service.salvar(entidade);
-			return new ResponseEntity(entidade, HttpStatus.CREATED);
+			return comVersao(HttpStatus.CREATED, entidade);
 		} catch (RegraNegocioException e) {
 			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (DataIntegrityViolationException e) {
+			return usuarioNaoEncontrado();
 		}
 	}
 
 	@PutMapping("{id}")
-	public ResponseEntity atualizar(@PathVariable("id") Long id, @RequestBody LancamentoDTO dto) {
+	public ResponseEntity atualizar(@PathVariable("id") Long id, @RequestBody LancamentoDTO dto,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
 		return service.obterPorId(id).map(entity -> {
+			if (outroUsuario(autenticado, entity) || outroUsuario(autenticado, dto.getUsuario())) {
+				return acessoNegado();
+			}
+			if (!versaoConfere(ifMatch, entity)) {
+				return versaoDesatualizada();
+			}
 			try {
-				Lancamento lancamento = converter(dto);
+				Lancamento lancamento = converter(dto, autenticado);
 				lancamento.setId(entity.getId());
-				service.atualizar(lancamento);
-				return ResponseEntity.ok(lancamento);
+				if (lancamento.getStatus() == null) {
+					// status e obrigatorio no banco; sem status no corpo mantem o atual
+					lancamento.setStatus(entity.getStatus());
+				}
+				lancamento.setVersao(entity.getVersao());
+				return comVersao(HttpStatus.OK, service.atualizar(lancamento));
 			} catch (RegraNegocioException e) {
 				return ResponseEntity.badRequest().body(e.getMessage());
+			} catch (OptimisticLockingFailureException e) {
+				return versaoDesatualizada();
+			} catch (DataIntegrityViolationException e) {
+				return usuarioNaoEncontrado();
+			}
+		}).orElseGet(() -> new ResponseEntity("Infelizmento não encontramos seu lançamento em nossa base :/",
+				HttpStatus.BAD_REQUEST));
+	}
+
+	/**
+	 * Altera só os campos enviados. O lançamento lido aqui é o mesmo que o
+	 * serviço atualiza, então a alteração custa um SELECT, um UPDATE das
+	 * colunas alteradas e o UPDATE do saldo e da versão do usuário. Com
+	 * If-Match, uma versão diferente da atual é recusada com 412 sem gravar
+	 * nada; uma alteração concorrente entre a leitura e o UPDATE também
+	 * resulta em 412, e cabe ao cliente consultar de novo.
+	 */
+	@PatchMapping("{id}")
+	public ResponseEntity atualizarParcialmente(@PathVariable("id") Long id, @RequestBody LancamentoDTO dto,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		return service.obterPorId(id).map(entity -> {
+			if (outroUsuario(autenticado, entity) || outroUsuario(autenticado, dto.getUsuario())) {
+				return acessoNegado();
+			}
+			if (!versaoConfere(ifMatch, entity)) {
+				return versaoDesatualizada();
+			}
+			try {
+				return comVersao(HttpStatus.OK, service.atualizarParcialmente(entity, converterAlteracoes(dto)));
+			} catch (RegraNegocioException e) {
+				return ResponseEntity.badRequest().body(e.getMessage());
+			} catch (IllegalArgumentException e) {
+				return ResponseEntity.badRequest().body("Envie um tipo e um status de lançamento validos");
+			} catch (OptimisticLockingFailureException e) {
+				return versaoDesatualizada();
+			} catch (DataIntegrityViolationException e) {
+				return usuarioNaoEncontrado();
 			}
 		}).orElseGet(() -> new ResponseEntity("Infelizmento não encontramos seu lançamento em nossa base :/",
 				HttpStatus.BAD_REQUEST));
 	}
 
 	@PutMapping("/{id}/atualiza-status")
-	public ResponseEntity atualizarStatus(@PathVariable("id") Long id, @RequestBody AtualizaStatusDTO dto) {
+	public ResponseEntity atualizarStatus(@PathVariable("id") Long id, @RequestBody AtualizaStatusDTO dto,
+			@RequestParam(value = "async", defaultValue = "false") boolean async,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		StatusLancamento statusSelecionado = converterStatus(dto.getStatus());
+		if (statusSelecionado == null) {
+			return ResponseEntity.badRequest()
+					.body("Não foi possível atualizar o status do lançamento. Envie um status valido");
+		}
+
+		if (async) {
+			// sem leitura do lancamento: com token, o usuario entra no WHERE do update
+			try {
+				filaStatusService.enfileirar(id, autenticado, statusSelecionado);
+				return ResponseEntity.accepted().build();
+			} catch (FilaCheiaException e) {
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.header(HttpHeaders.RETRY_AFTER, "1")
+						.body(e.getMessage());
+			}
+		}
+
 		return service.obterPorId(id).map(entity -> {
-			StatusLancamento statusSelecionado = StatusLancamento.valueOf(dto.getStatus());
-			if (statusSelecionado == null) {
-				return ResponseEntity.badRequest()
-						.body("Não foi possível atualizar o status do lançamento. Envie um status valido");
+			if (outroUsuario(autenticado, entity)) {
+				return acessoNegado();
 			}
 			try {
 				entity.setStatus(statusSelecionado);
-				service.atualizar(entity);
-				return ResponseEntity.ok(entity);
+				return comVersao(HttpStatus.OK, service.atualizar(entity));
 			} catch (RegraNegocioException e) {
 				return ResponseEntity.badRequest().body(e.getMessage());
+			} catch (OptimisticLockingFailureException e) {
+				return versaoDesatualizada();
 			}
 		}).orElseGet(() -> new ResponseEntity("Infelizmento não encontramos seu lançamento em nossa base :/",
 				HttpStatus.BAD_REQUEST));
 	}
 
+	@PutMapping("/atualiza-status")
+	public ResponseEntity atualizarStatusEmLote(@RequestBody AtualizaStatusEmLoteDTO dto,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
+		StatusLancamento novoStatus = converterStatus(dto.getStatus());
+		if (novoStatus == null) {
+			return ResponseEntity.badRequest()
+					.body("Não foi possível atualizar o status dos lançamentos. Envie um status valido");
+		}
+		if (outroUsuario(autenticado, dto.getUsuario())) {
+			return acessoNegado();
+		}
+		Long idUsuario = autenticado != null ? autenticado : dto.getUsuario();
+
+		try {
+			int atualizados;
+			if (dto.getIds() != null) {
+				atualizados = service.atualizarStatus(dto.getIds(), idUsuario, novoStatus);
+			} else {
+				if (dto.getStatusAtual() != null && converterStatus(dto.getStatusAtual()) == null) {
+					return ResponseEntity.badRequest().body("Envie um status atual valido");
+				}
+				Lancamento filtro = new Lancamento();
+				filtro.setUsuario(idUsuario == null ? null : Usuario.builder().id(idUsuario).build());
+				filtro.setAno(dto.getAno());
+				filtro.setMes(dto.getMes());
+				filtro.setTipo(dto.getTipo() == null ? null : Tipo_lancamento.valueOf(dto.getTipo()));
+				atualizados = service.atualizarStatus(filtro, converterStatus(dto.getStatusAtual()), novoStatus);
+			}
+			return ResponseEntity.ok(Collections.singletonMap("atualizados", atualizados));
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Envie um tipo de lançamento valido");
+		}
+	}
+
+	@GetMapping("/atualiza-status/fila")
+	public ResponseEntity obterSituacaoDaFilaDeStatus() {
+		return ResponseEntity.ok(filaStatusService.obterSituacao());
+	}
+
 	@DeleteMapping("/{id}")
-	public ResponseEntity deletar(@PathVariable("id") Long id) {
+	public ResponseEntity deletar(@PathVariable("id") Long id,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado) {
 		return service.obterPorId(id).map(entidade -> {
+			if (outroUsuario(autenticado, entidade)) {
+				return acessoNegado();
+			}
 			service.deletar(entidade);
 			return new ResponseEntity(HttpStatus.NO_CONTENT);
 		}).orElseGet(() -> new ResponseEntity("Infelizmento não encontramos seu lançamento em nossa base :/",
 				HttpStatus.BAD_REQUEST));
 	}
 
-	private Lancamento converter(LancamentoDTO dto) {
+	// visibilidade de pacote para o ConversaoBenchmark
+	Lancamento converter(LancamentoDTO dto, Long autenticado) {
 		Lancamento lancamento = new Lancamento();
 		lancamento.setId(dto.getId());
 		lancamento.setDescricao(dto.getDescricao());
@@ -116,10 +392,13 @@ public class LancamentoResource {
 		lancamento.setMes(dto.getMes());
 		lancamento.setValor(dto.getValor());
 
-		Usuario usuario = usuarioService.obterPorId(dto.getUsuario())
-				.orElseThrow(() -> new RegraNegocioException("Hey, não encontramos o seu usuário :("));
+		Long idUsuario = autenticado != null ? autenticado : dto.getUsuario();
+		if (idUsuario == null) {
+			throw new RegraNegocioException("Hey, não encontramos o seu usuário :(");
+		}
 
-		lancamento.setUsuario(usuario);
+		// referencia sem SELECT; um usuario inexistente falha na chave estrangeira
+		lancamento.setUsuario(usuarioService.obterReferencia(idUsuario));
 		if (dto.getTipo() != null) {
 			lancamento.setTipo(Tipo_lancamento.valueOf(dto.getTipo()));
 		}
@@ -130,4 +409,94 @@ public class LancamentoResource {
 
 		return lancamento;
 	}
+
+	private Lancamento converterAlteracoes(LancamentoDTO dto) {
+		Lancamento alteracoes = new Lancamento();
+		alteracoes.setDescricao(dto.getDescricao());
+		alteracoes.setAno(dto.getAno());
+		alteracoes.setMes(dto.getMes());
+		alteracoes.setValor(dto.getValor());
+		if (dto.getUsuario() != null) {
+			alteracoes.setUsuario(usuarioService.obterReferencia(dto.getUsuario()));
+		}
+		if (dto.getTipo() != null) {
+			alteracoes.setTipo(Tipo_lancamento.valueOf(dto.getTipo()));
+		}
+		if (dto.getStatus() != null) {
+			alteracoes.setStatus(StatusLancamento.valueOf(dto.getStatus()));
+		}
+		return alteracoes;
+	}
+
+	LancamentoDTO converter(Lancamento lancamento) {
+		return LancamentoDTO.builder()
+				.id(lancamento.getId())
+				.descricao(lancamento.getDescricao())
+				.mes(lancamento.getMes())
+				.ano(lancamento.getAno())
+				.valor(lancamento.getValor())
+				.usuario(lancamento.getUsuario().getId())
+				.tipo(lancamento.getTipo() == null ? null : lancamento.getTipo().name())
+				.status(lancamento.getStatus() == null ? null : lancamento.getStatus().name())
+				.versao(lancamento.getVersao())
+				.build();
+	}
+
+	private ResponseEntity comVersao(HttpStatus status, Lancamento lancamento) {
+		return ResponseEntity.status(status)
+				.eTag(String.valueOf(lancamento.getVersao()))
+				.body(converter(lancamento));
+	}
+
+	/**
+	 * Sem If-Match, ou com {@code *}, qualquer versão serve. ETags fracas
+	 * ({@code W/}) nunca conferem, como manda a comparação forte do If-Match.
+	 */
+	private boolean versaoConfere(String ifMatch, Lancamento atual) {
+		if (ifMatch == null || ifMatch.trim().equals("*")) {
+			return true;
+		}
+		String etag = "\"" + atual.getVersao() + "\"";
+		return Arrays.stream(ifMatch.split(",")).map(String::trim).anyMatch(etag::equals);
+	}
+
+	private StatusLancamento converterStatus(String status) {
+		try {
+			return status == null ? null : StatusLancamento.valueOf(status);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Com token, o usuário é o do token e qualquer outro informado na requisição
+	 * é recusado; sem token vale o usuário informado.
+	 */
+	private boolean outroUsuario(Long autenticado, Long informado) {
+		return autenticado != null && informado != null && !autenticado.equals(informado);
+	}
+
+	private boolean outroUsuario(Long autenticado, Lancamento lancamento) {
+		return outroUsuario(autenticado, lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId());
+	}
+
+	/**
+	 * O usuário de um token válido existe; sem token é preciso consultar.
+	 */
+	private boolean usuarioInexistente(Long autenticado, Long idUsuario) {
+		return autenticado == null && !usuarioService.existePorId(idUsuario);
+	}
+
+	private ResponseEntity acessoNegado() {
+		return new ResponseEntity("Você não tem acesso aos lançamentos de outro usuário.", HttpStatus.FORBIDDEN);
+	}
+
+	private ResponseEntity versaoDesatualizada() {
+		return new ResponseEntity("O lançamento foi alterado por outra requisição. Consulte-o novamente antes de alterar.",
+				HttpStatus.PRECONDITION_FAILED);
+	}
+
+	private ResponseEntity usuarioNaoEncontrado() {
+		return ResponseEntity.badRequest().body("Hey, não encontramos o seu usuário :(");
+	}
 }
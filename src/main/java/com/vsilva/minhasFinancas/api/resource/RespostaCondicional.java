@@ -0,0 +1,44 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * GET condicional para as consultas que dependem só dos lançamentos de um
+ * usuário. A ETag e o Last-Modified vêm da versão em saldo_usuario, que muda a
+ * cada escrita nesses lançamentos, então um 304 é respondido sem consultar a
+ * tabela de lançamentos, e sem consultar o banco quando o saldo está em cache.
+ * <p>
+ * O contador {@code minhasfinancas.http.condicional} separa as respostas por
+ * recurso e resultado; a taxa de 304 é {@code resultado=nao-modificado} sobre
+ * o total. O Last-Modified tem resolução de segundos: clientes que só enviam
+ * If-Modified-Since podem perder escritas feitas no mesmo segundo, por isso a
+ * ETag tem precedência.
+ */
+@Component
+@RequiredArgsConstructor
+public class RespostaCondicional {
+
+	private static final String METRICA = "minhasfinancas.http.condicional";
+
+	private final MeterRegistry registry;
+
+	/**
+	 * @return {@code true} se o cliente já tem a versão atual; a resposta já
+	 *         está como 304 e o controller deve retornar {@code null}
+	 */
+	public boolean naoModificado(WebRequest request, String recurso, SaldoUsuario situacao) {
+		String etag = "\"" + situacao.getIdUsuario() + "-" + situacao.getVersao() + "\"";
+		long ultimaAlteracao = situacao.getAlteradoEm() == null ? -1 : situacao.getAlteradoEm().toEpochMilli();
+
+		boolean naoModificado = request.checkNotModified(etag, ultimaAlteracao);
+		registry.counter(METRICA, "recurso", recurso, "resultado", naoModificado ? "nao-modificado" : "completo")
+				.increment();
+		return naoModificado;
+	}
+}
@@ -1,41 +1,65 @@
 package com.vsilva.minhasFinancas.api.resource;
 
-import java.math.BigDecimal;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.vsilva.minhasFinancas.api.dto.AutenticacaoDTO;
 import com.vsilva.minhasFinancas.api.dto.UsuarioDTO;
+import com.vsilva.minhasFinancas.api.filter.TokenAutenticacaoFilter;
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
 import com.vsilva.minhasFinancas.model.entity.Usuario;
 import com.vsilva.minhasFinancas.service.LancamentoService;
+import com.vsilva.minhasFinancas.service.TokenService;
 import com.vsilva.minhasFinancas.service.UsuarioService;
 import com.vsilva.minhasFinancas.service.exception.ErroAutentiacao;
 
 import lombok.RequiredArgsConstructor;
 
 @RestController
+@ExecucaoBloqueante
 @RequestMapping("api/usuarios")//todas as requisições ira entrar neste controller
 @RequiredArgsConstructor
 public class UsuarioResource {
 
 	private final UsuarioService service;
 	private final LancamentoService lancamentoService;
+	private final TokenService tokenService;
+	private final RespostaCondicional respostaCondicional;
 	
+	/**
+	 * Responde de forma assincrona: a thread do Tomcat e liberada enquanto a
+	 * senha e conferida no pool de hash. O token devolvido identifica o usuario
+	 * nas proximas requisicoes sem consulta ao banco.
+	 */
 	@PostMapping("/autenticar")
-	public ResponseEntity autenticar( @RequestBody UsuarioDTO dto) {
-		try {
-		Usuario usuarioAutenticado = service.autenticar(dto.getEmail(), dto.getSenha());
-		return ResponseEntity.ok(usuarioAutenticado);
-		}catch (ErroAutentiacao e) {
-		return ResponseEntity.badRequest().body(e.getMessage());
-		}
+	public CompletableFuture<ResponseEntity> autenticar( @RequestBody UsuarioDTO dto) {
+		return service.autenticarAsync(dto.getEmail(), dto.getSenha())
+				.<ResponseEntity>thenApply(usuario -> ResponseEntity.ok(AutenticacaoDTO.builder()
+						.id(usuario.getId())
+						.nome(usuario.getNome())
+						.email(usuario.getEmail())
+						.token(tokenService.gerar(usuario.getId()))
+						.expiraEm(tokenService.getValidadeSegundos())
+						.build()))
+				.exceptionally(e -> {
+					Throwable causa = e instanceof CompletionException ? e.getCause() : e;
+					if (causa instanceof ErroAutentiacao) {
+						return ResponseEntity.badRequest().body(causa.getMessage());
+					}
+					throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+				});
 	}
 
 	@PostMapping
@@ -55,14 +79,25 @@ public class UsuarioResource {
 	}
 	
 	@GetMapping("{id}/saldo")
-	public ResponseEntity obterSaldo(@PathVariable("id") long id) {
-		Optional<Usuario> usuario = service.obterPorId(id);
-		
-		if(!usuario.isPresent()) {
-			return new ResponseEntity(HttpStatus.NOT_FOUND);
+	public ResponseEntity obterSaldo(@PathVariable("id") long id,
+			@RequestAttribute(value = TokenAutenticacaoFilter.USUARIO_AUTENTICADO, required = false) Long autenticado,
+			WebRequest request) {
+		if (autenticado != null && autenticado != id) {
+			return new ResponseEntity(HttpStatus.FORBIDDEN);
+		}
+
+		// com token o usuario ja esta identificado; sem token confere se existe
+		if (autenticado == null) {
+			Optional<Usuario> usuario = service.obterPorId(id);
+			if(!usuario.isPresent()) {
+				return new ResponseEntity(HttpStatus.NOT_FOUND);
+			}
 		}
 		
-		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(id);
-		return ResponseEntity.ok(saldo);
+		SaldoUsuario situacao = lancamentoService.obterSituacaoPorUsuario(id);
+		if (respostaCondicional.naoModificado(request, "saldo", situacao)) {
+			return null;
+		}
+		return ResponseEntity.ok(situacao.getSaldo());
 	}
 }
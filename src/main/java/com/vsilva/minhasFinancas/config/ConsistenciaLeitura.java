@@ -0,0 +1,153 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vsilva.minhasFinancas.api.filter.TokenAutenticacaoFilter;
+import com.vsilva.minhasFinancas.service.event.LancamentosAlteradosEvent;
+
+/**
+ * Decide se uma transação pode ler de uma réplica. Só transações somente
+ * leitura de requisições GET vão para as réplicas, e nunca as do usuário que
+ * escreveu há menos de {@code minhasfinancas.replicas.janela-ms}: ele lê da
+ * primária até a réplica ter tido tempo de receber a escrita. A janela deve
+ * ser maior que o atraso de replicação esperado.
+ * <p>
+ * O usuário da requisição é o autenticado, o parâmetro {@code usuario} ou o id
+ * em {@code /api/usuarios/{id}}, que em todos os endpoints é o dono dos dados
+ * lidos. Por isso um saldo lido da réplica nunca chega ao cache durante a
+ * janela de quem o alterou.
+ */
+public class ConsistenciaLeitura implements AsyncHandlerInterceptor {
+
+	private static final ThreadLocal<Leitura> LEITURA_ATUAL = new ThreadLocal<>();
+
+	private static final String PREFIXO_USUARIOS = "/api/usuarios/";
+
+	private final Cache<Long, Boolean> escritasRecentes;
+
+	public ConsistenciaLeitura(long janelaMs) {
+		this.escritasRecentes = Caffeine.newBuilder()
+				.expireAfterWrite(janelaMs, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	/**
+	 * Leva a leitura da thread atual para a tarefa, que roda em outra thread
+	 * (modo de execução assíncrono).
+	 */
+	public static Runnable propagar(Runnable tarefa) {
+		Leitura leitura = LEITURA_ATUAL.get();
+		if (leitura == null) {
+			return tarefa;
+		}
+		return () -> {
+			LEITURA_ATUAL.set(leitura);
+			try {
+				tarefa.run();
+			} finally {
+				LEITURA_ATUAL.remove();
+			}
+		};
+	}
+
+	public boolean podeUsarReplica() {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return false;
+		}
+		Leitura leitura = LEITURA_ATUAL.get();
+		return leitura != null
+				&& (leitura.usuario == null || escritasRecentes.getIfPresent(leitura.usuario) == null);
+	}
+
+	public void registrarEscrita(Collection<Long> usuarios) {
+		usuarios.stream().filter(usuario -> usuario != null).forEach(usuario -> escritasRecentes.put(usuario, true));
+	}
+
+	/**
+	 * Marca antes do commit: uma leitura que comece logo depois dele já vai
+	 * para a primária.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+	public void aoAlterarLancamentos(LancamentosAlteradosEvent evento) {
+		registrarEscrita(evento.getUsuarios());
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		Long usuario = usuario(request);
+		if (leitura(request)) {
+			LEITURA_ATUAL.set(new Leitura(usuario));
+		} else if (usuario != null) {
+			escritasRecentes.put(usuario, true);
+		}
+		return true;
+	}
+
+	/**
+	 * Escritas marcam o usuário de novo ao terminar, para que a janela conte
+	 * a partir do fim da requisição mesmo quando ela demora.
+	 */
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		LEITURA_ATUAL.remove();
+		Long usuario = usuario(request);
+		if (!leitura(request) && usuario != null) {
+			escritasRecentes.put(usuario, true);
+		}
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		LEITURA_ATUAL.remove();
+	}
+
+	private boolean leitura(HttpServletRequest request) {
+		return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Long usuario(HttpServletRequest request) {
+		Object autenticado = request.getAttribute(TokenAutenticacaoFilter.USUARIO_AUTENTICADO);
+		if (autenticado instanceof Long) {
+			return (Long) autenticado;
+		}
+
+		String valor = request.getParameter("usuario");
+		String caminho = request.getRequestURI().substring(request.getContextPath().length());
+		if (valor == null && caminho.startsWith(PREFIXO_USUARIOS)) {
+			Map<String, String> variaveis = (Map<String, String>) request
+					.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+			valor = variaveis == null ? null : variaveis.get("id");
+		}
+		try {
+			return valor == null ? null : Long.valueOf(valor);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static class Leitura {
+
+		private final Long usuario;
+
+		Leitura(Long usuario) {
+			this.usuario = usuario;
+		}
+	}
+}
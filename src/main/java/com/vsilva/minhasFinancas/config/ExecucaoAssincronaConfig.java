@@ -0,0 +1,136 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.util.Collections;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import com.vsilva.minhasFinancas.api.resource.ExecucaoBloqueante;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Modo de execução assíncrono, ligado com
+ * {@code minhasfinancas.execucao.modo=assincrono}. Os handlers dos controllers
+ * marcados com {@link ExecucaoBloqueante} que devolvem {@link ResponseEntity}
+ * passam a rodar em um executor com uma thread por conexão do pool, e a thread
+ * do Tomcat volta para o conector enquanto o handler espera o banco. Os
+ * controllers não mudam: o adaptador troca o retorno do handler por um
+ * {@link WebAsyncTask}, e o Spring MVC trata o resultado como se tivesse sido
+ * devolvido de forma síncrona, inclusive o open-in-view.
+ * <p>
+ * Com a fila do executor cheia, ou se o handler não terminar dentro de
+ * {@code minhasfinancas.execucao.tempo-limite-ms}, a resposta é 503 com
+ * Retry-After. A fila deve ser maior que o limite do {@code AdmissaoFilter}
+ * para que a recusa aconteça na admissão, antes de qualquer trabalho.
+ */
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.execucao.modo", havingValue = "assincrono")
+public class ExecucaoAssincronaConfig implements WebMvcRegistrations {
+
+	private final int threads;
+	private final int fila;
+	private final long tempoLimiteMs;
+	private final String retryAfter;
+	private final MeterRegistry registry;
+
+	public ExecucaoAssincronaConfig(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int tamanhoPool,
+			@Value("${minhasfinancas.execucao.fila:100}") int fila,
+			@Value("${minhasfinancas.execucao.tempo-limite-ms:30000}") long tempoLimiteMs,
+			@Value("${minhasfinancas.admissao.retry-after-segundos:1}") int retryAfter,
+			MeterRegistry registry) {
+		this.threads = tamanhoPool;
+		this.fila = fila;
+		this.tempoLimiteMs = tempoLimiteMs;
+		this.retryAfter = String.valueOf(retryAfter);
+		this.registry = registry;
+	}
+
+	@Override
+	public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(fila);
+		executor.setThreadNamePrefix("jdbc-");
+		executor.setDaemon(true);
+		// com replicas, a leitura da requisicao acompanha o handler
+		executor.setTaskDecorator(ConsistenciaLeitura::propagar);
+		executor.initialize();
+		new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "jdbc", Collections.emptyList())
+				.bindTo(registry);
+		return new AdaptadorAssincrono(executor);
+	}
+
+	/**
+	 * Registrado pelo Spring MVC como o {@code requestMappingHandlerAdapter};
+	 * encerra o executor junto com o contexto.
+	 */
+	class AdaptadorAssincrono extends RequestMappingHandlerAdapter implements DisposableBean {
+
+		private final ThreadPoolTaskExecutor executor;
+
+		AdaptadorAssincrono(ThreadPoolTaskExecutor executor) {
+			this.executor = executor;
+		}
+
+		@Override
+		protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+			return bloqueante(handlerMethod) ? new HandlerAssincrono(handlerMethod)
+					: super.createInvocableHandlerMethod(handlerMethod);
+		}
+
+		@Override
+		public void destroy() {
+			executor.shutdown();
+		}
+
+		private boolean bloqueante(HandlerMethod handlerMethod) {
+			return AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), ExecucaoBloqueante.class)
+					&& ResponseEntity.class.isAssignableFrom(handlerMethod.getMethod().getReturnType());
+		}
+
+		/**
+		 * Os argumentos são resolvidos na thread do Tomcat; só a chamada ao
+		 * controller vai para o executor. O valor devolvido é tratado pelo tipo
+		 * em tempo de execução, então o {@link WebAsyncTask} inicia o
+		 * processamento assíncrono e o resultado dele volta pelo tipo
+		 * declarado do handler.
+		 */
+		private class HandlerAssincrono extends ServletInvocableHandlerMethod {
+
+			HandlerAssincrono(HandlerMethod handlerMethod) {
+				super(handlerMethod);
+			}
+
+			@Override
+			protected Object doInvoke(Object... args) throws Exception {
+				if (executor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0) {
+					return ocupado();
+				}
+				WebAsyncTask<Object> tarefa = new WebAsyncTask<>(tempoLimiteMs, executor, () -> super.doInvoke(args));
+				tarefa.onTimeout(this::ocupado);
+				return tarefa;
+			}
+
+			private ResponseEntity<String> ocupado() {
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.header(HttpHeaders.RETRY_AFTER, retryAfter)
+						.body("Servidor ocupado no momento. Tente novamente em instantes.");
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mede o tempo de cada método público dos serviços de lançamentos e usuários
+ * ({@code minhasfinancas.servico}) e dos repositórios
+ * ({@code minhasfinancas.repositorio}), com as tags classe, metodo e excecao.
+ * Para métodos que retornam {@link CompletionStage} o tempo vai até a
+ * conclusão, não até o retorno. Os histogramas de percentis são ligados por
+ * configuração, em {@code management.metrics.distribution}.
+ * <p>
+ * Chamadas internas de um serviço para ele mesmo não passam pelo proxy e
+ * entram no tempo do método que as chamou.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MetricasAspect {
+
+	public static final String TIMER_SERVICO = "minhasfinancas.servico";
+	public static final String TIMER_REPOSITORIO = "minhasfinancas.repositorio";
+
+	private static final String PACOTE_REPOSITORIOS = "com.vsilva.minhasFinancas.model.repository.";
+
+	private final MeterRegistry registry;
+	private final ConcurrentMap<Class<?>, String> nomesRepositorios = new ConcurrentHashMap<>();
+
+	@Around("execution(public * com.vsilva.minhasFinancas.service.LancamentoService+.*(..)) "
+			+ "|| execution(public * com.vsilva.minhasFinancas.service.UsuarioService+.*(..))")
+	public Object medirServico(ProceedingJoinPoint ponto) throws Throwable {
+		return medir(ponto, TIMER_SERVICO, AopUtils.getTargetClass(ponto.getTarget()).getSimpleName());
+	}
+
+	/**
+	 * O proxy do Spring Data implementa a interface do repositório; os métodos
+	 * herdados de {@code JpaRepository} também são medidos.
+	 */
+	@Around("this(com.vsilva.minhasFinancas.model.repository.LancamentoRepository) "
+			+ "|| this(com.vsilva.minhasFinancas.model.repository.UsuarioRepository) "
+			+ "|| this(com.vsilva.minhasFinancas.model.repository.SaldoUsuarioRepository)")
+	public Object medirRepositorio(ProceedingJoinPoint ponto) throws Throwable {
+		return medir(ponto, TIMER_REPOSITORIO, nomeRepositorio(ponto.getThis().getClass()));
+	}
+
+	private Object medir(ProceedingJoinPoint ponto, String timer, String classe) throws Throwable {
+		String metodo = ponto.getSignature().getName();
+		Timer.Sample amostra = Timer.start(registry);
+
+		Object retorno;
+		try {
+			retorno = ponto.proceed();
+		} catch (Throwable e) {
+			registrar(amostra, timer, classe, metodo, e);
+			throw e;
+		}
+
+		if (retorno instanceof CompletionStage) {
+			((CompletionStage<?>) retorno).whenComplete((valor, erro) -> registrar(amostra, timer, classe, metodo, erro));
+		} else {
+			registrar(amostra, timer, classe, metodo, null);
+		}
+		return retorno;
+	}
+
+	private void registrar(Timer.Sample amostra, String timer, String classe, String metodo, Throwable erro) {
+		Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+		amostra.stop(Timer.builder(timer)
+				.tag("classe", classe)
+				.tag("metodo", metodo)
+				.tag("excecao", causa == null ? "none" : causa.getClass().getSimpleName())
+				.register(registry));
+	}
+
+	private String nomeRepositorio(Class<?> proxy) {
+		return nomesRepositorios.computeIfAbsent(proxy, classe -> Arrays.stream(classe.getInterfaces())
+				.filter(interfaceImplementada -> interfaceImplementada.getName().startsWith(PACOTE_REPOSITORIOS))
+				.map(Class::getSimpleName)
+				.findFirst()
+				.orElse(classe.getSimpleName()));
+	}
+}
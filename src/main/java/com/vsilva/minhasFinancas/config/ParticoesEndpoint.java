@@ -0,0 +1,46 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.vsilva.minhasFinancas.service.ParticionamentoService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Endpoint {@code particoes}: anos arquivados. A operação {@code arquivar}
+ * arquiva o ano, movendo a partição para o {@code tablespace} informado, se
+ * houver. Como altera dados, o endpoint fica só no JMX e não entra em
+ * {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "particoes")
+@ConditionalOnProperty(name = "minhasfinancas.particionamento.habilitado", havingValue = "true")
+@RequiredArgsConstructor
+public class ParticoesEndpoint {
+
+	private final ParticionamentoService particionamento;
+
+	@ReadOperation
+	public Map<String, Object> situacao() {
+		Map<String, Object> situacao = new LinkedHashMap<>();
+		situacao.put("arquivados", particionamento.obterAnosArquivados());
+		return situacao;
+	}
+
+	@WriteOperation
+	public Map<String, Object> arquivar(@Selector Integer ano, @Nullable String tablespace) {
+		Map<String, Object> resultado = new LinkedHashMap<>();
+		resultado.put("ano", ano);
+		resultado.put("lancamentos", particionamento.arquivar(ano, tablespace));
+		return resultado;
+	}
+}
@@ -0,0 +1,67 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.time.Duration;
+import java.util.function.ToIntFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * Pool de conexões R2DBC das consultas reativas, ligado com
+ * {@code minhasfinancas.reativo.habilitado=true}. Fica ao lado do Hikari, que
+ * continua atendendo o JPA; usuário e senha são os mesmos do datasource.
+ * <p>
+ * Sem conexão livre dentro de {@code espera-conexao-ms} a consulta falha com
+ * {@link java.util.concurrent.TimeoutException}, respondida com 503. O gauge
+ * {@code minhasfinancas.reativo.conexoes} mostra as conexões por estado.
+ */
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.reativo.habilitado", havingValue = "true")
+public class ReativoConfig {
+
+	static final String METRICA_CONEXOES = "minhasfinancas.reativo.conexoes";
+
+	@Bean(destroyMethod = "dispose")
+	public ConnectionPool connectionFactoryReativa(@Value("${minhasfinancas.reativo.url}") String url,
+			@Value("${spring.datasource.username:}") String usuario,
+			@Value("${spring.datasource.password:}") String senha,
+			@Value("${minhasfinancas.reativo.pool-inicial:2}") int inicial,
+			@Value("${minhasfinancas.reativo.pool-maximo:10}") int maximo,
+			@Value("${minhasfinancas.reativo.espera-conexao-ms:1000}") long esperaConexaoMs,
+			MeterRegistry registry) {
+		ConnectionFactoryOptions opcoes = ConnectionFactoryOptions.parse(url).mutate()
+				.option(ConnectionFactoryOptions.USER, usuario)
+				.option(ConnectionFactoryOptions.PASSWORD, senha)
+				.build();
+
+		ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(opcoes))
+				.name("reativo")
+				.initialSize(inicial)
+				.maxSize(maximo)
+				.maxAcquireTime(Duration.ofMillis(esperaConexaoMs))
+				.build());
+
+		registrar(registry, pool, "ativas", PoolMetrics::acquiredSize);
+		registrar(registry, pool, "ociosas", PoolMetrics::idleSize);
+		registrar(registry, pool, "pendentes", PoolMetrics::pendingAcquireSize);
+		return pool;
+	}
+
+	private static void registrar(MeterRegistry registry, ConnectionPool pool, String estado,
+			ToIntFunction<PoolMetrics> valor) {
+		Gauge.builder(METRICA_CONEXOES, pool,
+				p -> p.getMetrics().map(metricas -> (double) valor.applyAsInt(metricas)).orElse(0d))
+				.tag("estado", estado)
+				.register(registry);
+	}
+}
@@ -0,0 +1,91 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Réplicas de leitura, ligadas com {@code minhasfinancas.replicas.habilitadas=true}.
+ * O datasource do application.properties continua sendo a primária, com as
+ * mesmas propriedades {@code spring.datasource.*}; cada URL em
+ * {@code minhasfinancas.replicas.urls} ganha um pool com a mesma configuração,
+ * somente leitura. O JPA, o Flyway e tudo o que usa o {@link DataSource}
+ * recebem o {@link RoteamentoDataSource}, e fora das leituras de requisições
+ * GET tudo continua indo para a primária.
+ * <p>
+ * Uma requisição GET segura a conexão da primeira leitura até o fim (o
+ * open-in-view mantém a sessão aberta), então não pode escrever.
+ */
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.replicas.habilitadas", havingValue = "true")
+public class ReplicaConfig {
+
+	@Bean
+	public ConsistenciaLeitura consistenciaLeitura(@Value("${minhasfinancas.replicas.janela-ms:5000}") long janelaMs) {
+		return new ConsistenciaLeitura(janelaMs);
+	}
+
+	/**
+	 * Os pools não são beans: um {@link DataSource} a mais no contexto faria o
+	 * Spring Boot procurar o principal enquanto ele ainda está sendo criado.
+	 */
+	@Bean(destroyMethod = "fechar")
+	@Primary
+	public RoteamentoDataSource dataSource(DataSourceProperties properties, Environment environment,
+			ConsistenciaLeitura consistencia,
+			@Value("${minhasfinancas.replicas.urls}") String[] urls,
+			@Value("${minhasfinancas.replicas.selecao:rodizio}") String selecao,
+			@Value("${minhasfinancas.replicas.espera-conexao-ms:1000}") long esperaConexaoMs,
+			MeterRegistry registry) {
+		HikariDataSource primaria = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaria));
+		primaria.setPoolName(StringUtils.hasText(properties.getName()) ? properties.getName() : "primaria");
+		primaria.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+
+		List<HikariDataSource> replicas = new ArrayList<>();
+		for (int i = 0; i < urls.length; i++) {
+			// mesma configuracao da primaria, inclusive as metricas do pool
+			HikariConfig configuracao = new HikariConfig();
+			primaria.copyStateTo(configuracao);
+			configuracao.setJdbcUrl(urls[i].trim());
+			configuracao.setPoolName("replica-" + i);
+			configuracao.setReadOnly(true);
+			configuracao.setConnectionTimeout(esperaConexaoMs);
+			configuracao.setInitializationFailTimeout(-1);
+			replicas.add(new HikariDataSource(configuracao));
+		}
+		return new RoteamentoDataSource(primaria, replicas, consistencia,
+				RoteamentoDataSource.Selecao.valueOf(selecao.trim().toUpperCase().replace('-', '_')), registry);
+	}
+
+	@Bean
+	public WebMvcConfigurer interceptadorConsistenciaLeitura(ConsistenciaLeitura consistencia) {
+		return new WebMvcConfigurer() {
+
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				registry.addInterceptor(consistencia).addPathPatterns("/api/**");
+			}
+		};
+	}
+}
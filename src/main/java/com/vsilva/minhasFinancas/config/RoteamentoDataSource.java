@@ -0,0 +1,146 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entrega conexões da primária ou de uma das réplicas, conforme a
+ * {@link ConsistenciaLeitura}. É um {@link LazyConnectionDataSourceProxy}: o
+ * JPA pede a conexão ao iniciar a transação, antes de ela ser marcada como
+ * somente leitura, e a conexão real só é escolhida no primeiro comando.
+ * <p>
+ * A réplica é escolhida em rodízio ou pela que tem menos conexões em uso, entre
+ * as disponíveis. Uma réplica que falha ao entregar uma conexão fica fora até a
+ * próxima verificação bem-sucedida, e a leitura vai para a primária.
+ */
+@Slf4j
+public class RoteamentoDataSource extends LazyConnectionDataSourceProxy {
+
+	static final String METRICA_CONEXOES = "minhasfinancas.replicas.conexoes";
+	static final String METRICA_DISPONIVEL = "minhasfinancas.replicas.disponivel";
+	static final String PRIMARIA = "primaria";
+
+	public enum Selecao {
+		RODIZIO, MENOS_CARREGADA
+	}
+
+	private final HikariDataSource primaria;
+	private final List<Replica> replicas;
+	private final ConsistenciaLeitura consistencia;
+	private final Selecao selecao;
+	private final AtomicInteger proxima = new AtomicInteger();
+	private final Counter conexoesPrimaria;
+
+	public RoteamentoDataSource(HikariDataSource primaria, List<HikariDataSource> replicas,
+			ConsistenciaLeitura consistencia, Selecao selecao, MeterRegistry registry) {
+		this.primaria = primaria;
+		this.replicas = replicas.stream().map(dataSource -> new Replica(dataSource, registry))
+				.collect(Collectors.toList());
+		this.consistencia = consistencia;
+		this.selecao = selecao;
+		this.conexoesPrimaria = registry.counter(METRICA_CONEXOES, "destino", PRIMARIA);
+		setTargetDataSource(new AbstractDataSource() {
+
+			@Override
+			public Connection getConnection() throws SQLException {
+				return obterConexao();
+			}
+
+			@Override
+			public Connection getConnection(String username, String password) throws SQLException {
+				throw new UnsupportedOperationException("As credenciais vem da configuracao de cada pool");
+			}
+		});
+		afterPropertiesSet();
+	}
+
+	private Connection obterConexao() throws SQLException {
+		Replica replica = consistencia.podeUsarReplica() ? selecionar() : null;
+		if (replica != null) {
+			try {
+				Connection conexao = replica.dataSource.getConnection();
+				replica.conexoes.increment();
+				return conexao;
+			} catch (SQLException e) {
+				log.warn("Replica {} indisponivel, lendo da primaria: {}", replica.nome, e.getMessage());
+				replica.disponivel = false;
+			}
+		}
+		conexoesPrimaria.increment();
+		return primaria.getConnection();
+	}
+
+	/**
+	 * Devolve à seleção as réplicas que voltaram a responder e retira as que
+	 * pararam, mesmo sem leituras passando por elas.
+	 */
+	@Scheduled(fixedDelayString = "${minhasfinancas.replicas.verificacao-ms:5000}")
+	public void verificar() {
+		for (Replica replica : replicas) {
+			boolean disponivel;
+			try (Connection conexao = replica.dataSource.getConnection()) {
+				disponivel = conexao.isValid(1);
+			} catch (SQLException e) {
+				disponivel = false;
+			}
+			if (disponivel != replica.disponivel) {
+				log.info("Replica {} {}", replica.nome, disponivel ? "disponivel" : "indisponivel");
+			}
+			replica.disponivel = disponivel;
+		}
+	}
+
+	public void fechar() {
+		replicas.forEach(replica -> replica.dataSource.close());
+		primaria.close();
+	}
+
+	private Replica selecionar() {
+		List<Replica> disponiveis = replicas.stream().filter(replica -> replica.disponivel)
+				.collect(Collectors.toList());
+		if (disponiveis.isEmpty()) {
+			return null;
+		}
+		if (selecao == Selecao.MENOS_CARREGADA) {
+			return disponiveis.stream().min(Comparator.comparingInt(Replica::emUso)).get();
+		}
+		return disponiveis.get(Math.floorMod(proxima.getAndIncrement(), disponiveis.size()));
+	}
+
+	private static class Replica {
+
+		private final HikariDataSource dataSource;
+		private final String nome;
+		private final Counter conexoes;
+		private volatile boolean disponivel = true;
+
+		Replica(HikariDataSource dataSource, MeterRegistry registry) {
+			this.dataSource = dataSource;
+			this.nome = dataSource.getPoolName();
+			this.conexoes = registry.counter(METRICA_CONEXOES, "destino", nome);
+			Gauge.builder(METRICA_DISPONIVEL, this, replica -> replica.disponivel ? 1 : 0)
+					.tag("replica", nome)
+					.register(registry);
+		}
+
+		int emUso() {
+			return dataSource.getHikariPoolMXBean() == null ? 0
+					: dataSource.getHikariPoolMXBean().getActiveConnections();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.shard.ChaveShard;
+import com.vsilva.minhasFinancas.model.shard.DiretorioShards;
+import com.vsilva.minhasFinancas.model.shard.EmCadaShard;
+import com.vsilva.minhasFinancas.model.shard.Shards;
+import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Põe a thread no shard do usuário indicado por {@link ChaveShard}, ou repete
+ * a chamada em cada shard nos métodos {@link EmCadaShard}, antes de a
+ * transação começar: a ordem mais alta deixa este aspecto por fora do
+ * {@code @Transactional}, e a conexão é obtida já no shard certo.
+ * <p>
+ * Uma chamada para o usuário de outro shard dentro de uma transação em
+ * andamento é recusada, porque a conexão da transação é de um shard só. Pelo
+ * mesmo motivo um lançamento não pode passar para um usuário de outro shard.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "minhasfinancas.shards.habilitados", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardAspect {
+
+	private static final int SEM_CHAVE = -1;
+
+	private final DiretorioShards diretorio;
+	private final ConcurrentMap<Method, Integer> chaves = new ConcurrentHashMap<>();
+
+	@Around("execution(public * com.vsilva.minhasFinancas.service.impl.*.*(..))")
+	public Object rotear(ProceedingJoinPoint ponto) throws Throwable {
+		Method metodo = AopUtils.getMostSpecificMethod(((MethodSignature) ponto.getSignature()).getMethod(),
+				AopUtils.getTargetClass(ponto.getTarget()));
+		int indice = chaves.computeIfAbsent(metodo, ShardAspect::indiceDaChave);
+		Long idUsuario = indice == SEM_CHAVE ? null : idUsuario(ponto.getArgs()[indice]);
+
+		if (idUsuario != null) {
+			conferirOutrosUsuarios(ponto.getArgs(), indice, idUsuario);
+			return noShardDoUsuario(ponto, idUsuario);
+		}
+		if (Shards.atual() == null && AnnotatedElementUtils.hasAnnotation(metodo, EmCadaShard.class)) {
+			return emCadaShard(ponto, metodo);
+		}
+		return ponto.proceed();
+	}
+
+	private Object noShardDoUsuario(ProceedingJoinPoint ponto, Long idUsuario) throws Throwable {
+		Integer atual = Shards.atual();
+		int shard = diretorio.shardDo(idUsuario);
+		if (atual != null && atual != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+			throw new IllegalStateException("O usuario " + idUsuario + " esta no shard " + shard
+					+ ", mas a transacao em andamento e do shard " + atual);
+		}
+		return diretorio.executar(idUsuario, () -> prosseguir(ponto));
+	}
+
+	/**
+	 * Um lançamento não muda de shard: os demais lançamentos recebidos, como as
+	 * alterações de uma atualização parcial, devem ser de usuários do mesmo
+	 * shard.
+	 */
+	private void conferirOutrosUsuarios(Object[] argumentos, int indice, Long idUsuario) {
+		for (int i = 0; i < argumentos.length; i++) {
+			Long outro = i != indice && argumentos[i] instanceof Lancamento ? idUsuario(argumentos[i]) : null;
+			if (outro != null && diretorio.shardDo(outro) != diretorio.shardDo(idUsuario)) {
+				throw new RegraNegocioException("O lançamento só pode ser transferido para um usuário do mesmo shard.");
+			}
+		}
+	}
+
+	private Object emCadaShard(ProceedingJoinPoint ponto, Method metodo) throws Throwable {
+		Object[] argumentos = ponto.getArgs();
+		Integer primeiro = argumentos.length > 0 && argumentos[0] instanceof Long
+				? Shards.origem((Long) argumentos[0])
+				: null;
+		List<Integer> ordem = diretorio.ordem(primeiro);
+
+		if (Optional.class.equals(metodo.getReturnType())) {
+			for (Integer shard : ordem) {
+				Optional<?> encontrado = (Optional<?>) Shards.executar(shard, () -> prosseguir(ponto));
+				if (encontrado.isPresent()) {
+					return encontrado;
+				}
+			}
+			return Optional.empty();
+		}
+
+		int soma = 0;
+		for (Integer shard : ordem) {
+			Object resultado = Shards.executar(shard, () -> prosseguir(ponto));
+			if (resultado instanceof Integer) {
+				soma += (Integer) resultado;
+			}
+		}
+		return int.class.equals(metodo.getReturnType()) || Integer.class.equals(metodo.getReturnType()) ? soma : null;
+	}
+
+	private static Object prosseguir(ProceedingJoinPoint ponto) {
+		try {
+			return ponto.proceed();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static int indiceDaChave(Method metodo) {
+		Annotation[][] anotacoes = metodo.getParameterAnnotations();
+		for (int i = 0; i < anotacoes.length; i++) {
+			for (Annotation anotacao : anotacoes[i]) {
+				if (anotacao instanceof ChaveShard) {
+					return i;
+				}
+			}
+		}
+		return SEM_CHAVE;
+	}
+
+	private static Long idUsuario(Object chave) {
+		if (chave instanceof Long) {
+			return (Long) chave;
+		}
+		if (chave instanceof List) {
+			List<?> lista = (List<?>) chave;
+			return lista.isEmpty() ? null : idUsuario(lista.get(0));
+		}
+		if (chave instanceof Lancamento) {
+			Lancamento lancamento = (Lancamento) chave;
+			return lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId();
+		}
+		return null;
+	}
+}
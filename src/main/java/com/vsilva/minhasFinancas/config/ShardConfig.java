@@ -0,0 +1,114 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import com.vsilva.minhasFinancas.model.shard.AnelConsistente;
+import com.vsilva.minhasFinancas.model.shard.DiretorioShards;
+import com.vsilva.minhasFinancas.model.shard.ShardDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sharding dos lançamentos por usuário, ligado com
+ * {@code minhasfinancas.shards.habilitados=true}. O datasource do
+ * application.properties é o shard 0, que guarda também o catálogo de
+ * usuários; cada URL em {@code minhasfinancas.shards.urls} é um shard a mais,
+ * com pool próprio na mesma configuração e migrado pelo Flyway na subida.
+ * <p>
+ * Os lançamentos e o saldo de um usuário ficam todos no shard dele, e os
+ * métodos dos serviços marcados com {@code @ChaveShard} rodam inteiros lá
+ * (veja {@link ShardAspect}). Cada chamada a um serviço precisa da própria
+ * sessão, então o open-in-view deve estar desligado. A API reativa e as
+ * réplicas de leitura não conhecem os shards e não podem ser ligadas juntas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.shards.habilitados", havingValue = "true")
+public class ShardConfig {
+
+	/**
+	 * Como nas réplicas, os pools não são beans.
+	 */
+	@Bean(destroyMethod = "fechar")
+	@Primary
+	public ShardDataSource dataSource(DataSourceProperties properties, FlywayProperties flyway,
+			Environment environment,
+			@Value("${minhasfinancas.shards.urls}") String[] urls,
+			MeterRegistry registry) {
+		validar(environment);
+
+		HikariDataSource principal = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(principal));
+		principal.setPoolName(StringUtils.hasText(properties.getName()) ? properties.getName() : "shard-0");
+		principal.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+
+		List<HikariDataSource> shards = new ArrayList<>();
+		shards.add(principal);
+		for (int i = 0; i < urls.length; i++) {
+			HikariConfig configuracao = new HikariConfig();
+			principal.copyStateTo(configuracao);
+			configuracao.setJdbcUrl(urls[i].trim());
+			configuracao.setPoolName("shard-" + (i + 1));
+			HikariDataSource shard = new HikariDataSource(configuracao);
+			migrar(shard, urls[i].trim(), flyway);
+			shards.add(shard);
+		}
+		return new ShardDataSource(shards);
+	}
+
+	@Bean
+	public DiretorioShards diretorioShards(ShardDataSource dataSource,
+			@Value("${minhasfinancas.shards.virtuais:64}") int virtuais,
+			@Value("${minhasfinancas.shards.cache-diretorio-ms:60000}") long cacheDiretorioMs) {
+		return new DiretorioShards(dataSource, new AnelConsistente(dataSource.getQuantidade(), virtuais),
+				Duration.ofMillis(cacheDiretorioMs));
+	}
+
+	/**
+	 * O shard 0 é migrado pelo Flyway do Spring Boot; os demais recebem as
+	 * mesmas migrações aqui.
+	 */
+	private static void migrar(DataSource shard, String url, FlywayProperties flyway) {
+		String vendor = DatabaseDriver.fromJdbcUrl(url).getId();
+		Flyway.configure()
+				.dataSource(shard)
+				.locations(flyway.getLocations().stream().map(local -> local.replace("{vendor}", vendor))
+						.toArray(String[]::new))
+				.schemas(flyway.getSchemas().toArray(new String[0]))
+				.baselineOnMigrate(flyway.isBaselineOnMigrate())
+				.baselineVersion(flyway.getBaselineVersion())
+				.load()
+				.migrate();
+	}
+
+	private static void validar(Environment environment) {
+		if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+			throw new IllegalStateException("O sharding exige spring.jpa.open-in-view=false");
+		}
+		if (environment.getProperty("minhasfinancas.replicas.habilitadas", Boolean.class, false)
+				|| environment.getProperty("minhasfinancas.reativo.habilitado", Boolean.class, false)) {
+			throw new IllegalStateException(
+					"O sharding nao pode ser ligado junto com as replicas de leitura ou a API reativa");
+		}
+	}
+}
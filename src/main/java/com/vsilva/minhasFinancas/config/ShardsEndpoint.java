@@ -0,0 +1,54 @@
+package com.vsilva.minhasFinancas.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.vsilva.minhasFinancas.model.shard.DiretorioShards;
+import com.vsilva.minhasFinancas.service.RebalanceamentoService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Endpoint {@code shards}: usuários por shard e os próximos usuários a mover
+ * para o shard do anel. A operação {@code mover} move o usuário para o shard
+ * informado em {@code destino} ou, sem ele, para o do anel. Como altera dados,
+ * o endpoint fica só no JMX e não entra em
+ * {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "shards")
+@ConditionalOnProperty(name = "minhasfinancas.shards.habilitados", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardsEndpoint {
+
+	private static final int LIMITE_PLANO = 100;
+
+	private final RebalanceamentoService rebalanceamento;
+	private final DiretorioShards diretorio;
+
+	@ReadOperation
+	public Map<String, Object> situacao() {
+		Map<String, Object> situacao = new LinkedHashMap<>();
+		situacao.put("usuarios", rebalanceamento.contarUsuarios());
+		situacao.put("plano", rebalanceamento.planejar(LIMITE_PLANO));
+		return situacao;
+	}
+
+	@WriteOperation
+	public Map<String, Object> mover(@Selector Long idUsuario, @Nullable Integer destino) {
+		int shard = destino != null ? destino : diretorio.getAnel().shardDo(idUsuario);
+		Map<String, Object> resultado = new LinkedHashMap<>();
+		resultado.put("usuario", idUsuario);
+		resultado.put("shard", shard);
+		resultado.put("lancamentos", rebalanceamento.mover(idUsuario, shard));
+		return resultado;
+	}
+}
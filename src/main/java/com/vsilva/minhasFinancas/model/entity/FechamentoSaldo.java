@@ -0,0 +1,46 @@
+package com.vsilva.minhasFinancas.model.entity;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Último mês com {@link SaldoMensal} para todos os usuários que tinham
+ * lançamentos nele. Linha única, de id {@link #ID}.
+ */
+@Entity
+@Table(name = "fechamento_saldo", schema = "financas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FechamentoSaldo implements Serializable {
+
+	public static final int ID = 1;
+
+	@Id
+	@Column(name = "id")
+	private Integer id;
+
+	@Column(name = "ano")
+	private Integer ano;
+
+	@Column(name = "mes")
+	private Integer mes;
+
+	@Column(name = "fechado_em")
+	@Convert(converter = Jsr310JpaConverters.InstantConverter.class)
+	private Instant fechadoEm;
+}
@@ -8,17 +8,25 @@ import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
 import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.util.TextoBusca;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -31,6 +39,7 @@ import lombok.ToString;
 
 @Entity
 @Table(name = "lancamento", schema = "financas")
+@DynamicUpdate // o UPDATE inclui so as colunas alteradas
 @Getter
 @Setter
 @EqualsAndHashCode
@@ -43,7 +52,12 @@ public class Lancamento implements Serializable {
 
 	@Id // Informa que é chave primaria
 	@Column(name = "id")
-	@GeneratedValue(strategy = GenerationType.IDENTITY) // Informa que ela é Identity
+	@GeneratedValue(generator = "lancamento_seq") // Sequence com pool, permite inserts em lote; com sharding, uma por shard
+	@GenericGenerator(name = "lancamento_seq", strategy = "com.vsilva.minhasFinancas.model.shard.IdPorShard", parameters = {
+			@Parameter(name = "sequence_name", value = "lancamento_seq"),
+			@Parameter(name = "schema", value = "financas"),
+			@Parameter(name = "increment_size", value = "50"),
+			@Parameter(name = "optimizer", value = "pooled") })
 	private Long id;
 
 	@Column(name = "descricao")
@@ -55,14 +69,16 @@ public class Lancamento implements Serializable {
 	@Column(name = "ano")
 	private Integer ano;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "id_usuario")
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
 	private Usuario usuario;
 
 	@Column(name = "valor")
 	private BigDecimal valor;
 
-	@Column(name = "data_cadastro")
+	@Column(name = "data_cadastro", columnDefinition = "date")
 	@Convert(converter = Jsr310JpaConverters.LocalDateConverter.class)
 	private LocalDate dataCadastro;
 
@@ -73,4 +89,18 @@ public class Lancamento implements Serializable {
 	@Column(name = "status")
 	@Enumerated(value = EnumType.STRING)
 	private StatusLancamento status;
-}
\ No newline at end of file
+
+	@Column(name = "descricao_busca")
+	@JsonIgnore
+	private String descricaoBusca;
+
+	@Version // Controle de concorrencia otimista, exposto como ETag
+	@Column(name = "versao")
+	private Long versao;
+
+	@PrePersist
+	@PreUpdate
+	private void normalizarDescricao() {
+		this.descricaoBusca = TextoBusca.normalizar(descricao);
+	}
+}
@@ -0,0 +1,63 @@
+package com.vsilva.minhasFinancas.model.entity;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Total dos lançamentos de um usuário em um ano arquivado, por tipo. A
+ * partição do ano sai da tabela de lançamentos, e o saldo calculado soma
+ * estes totais no lugar dela. Gravado só pelo arquivamento, no banco.
+ */
+@Entity
+@Table(name = "saldo_arquivado", schema = "financas")
+@IdClass(SaldoArquivado.Chave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaldoArquivado implements Serializable {
+
+	@Id
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+
+	@Id
+	@Column(name = "ano")
+	private Integer ano;
+
+	@Id
+	@Column(name = "tipo")
+	@Enumerated(value = EnumType.STRING)
+	private Tipo_lancamento tipo;
+
+	@Column(name = "valor")
+	private BigDecimal valor;
+
+	@Column(name = "quantidade")
+	private Long quantidade;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Chave implements Serializable {
+
+		private Long idUsuario;
+		private Integer ano;
+		private Tipo_lancamento tipo;
+	}
+}
@@ -0,0 +1,69 @@
+package com.vsilva.minhasFinancas.model.entity;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totais dos lançamentos de um usuário em um mês já fechado, consolidados
+ * pelo job de saldo. Só valem para os meses anteriores ao
+ * {@link SaldoUsuario#getMesAlterado() mês alterado} do usuário.
+ */
+@Entity
+@Table(name = "saldo_mensal", schema = "financas")
+@IdClass(SaldoMensal.Chave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaldoMensal implements Serializable {
+
+	@Id
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+
+	@Id
+	@Column(name = "ano")
+	private Integer ano;
+
+	@Id
+	@Column(name = "mes")
+	private Integer mes;
+
+	@Column(name = "receitas")
+	private BigDecimal receitas;
+
+	@Column(name = "despesas")
+	private BigDecimal despesas;
+
+	@Column(name = "quantidade")
+	private Long quantidade;
+
+	@Column(name = "consolidado_em")
+	@Convert(converter = Jsr310JpaConverters.InstantConverter.class)
+	private Instant consolidadoEm;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Chave implements Serializable {
+
+		private Long idUsuario;
+		private Integer ano;
+		private Integer mes;
+	}
+}
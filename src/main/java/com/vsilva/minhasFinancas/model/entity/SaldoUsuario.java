@@ -0,0 +1,68 @@
+package com.vsilva.minhasFinancas.model.entity;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Saldo consolidado de um usuário, mantido por deltas a cada escrita em
+ * {@link Lancamento}. A consulta de saldo passa a ser uma leitura por chave.
+ * <p>
+ * {@code versao} e {@code alteradoEm} mudam a cada escrita nos lançamentos do
+ * usuário, inclusive as que não alteram o saldo, e servem de ETag e
+ * Last-Modified para as consultas que dependem só desses lançamentos.
+ * <p>
+ * {@code mesAlterado} é o mês encerrado mais antigo com escrita desde a última
+ * consolidação dos totais mensais do usuário, como {@code ano * 12 + mes - 1};
+ * a partir dele o saldo é somado dos lançamentos. {@code versaoMesAlterado}
+ * muda a cada escrita em mês encerrado.
+ */
+@Entity
+@Table(name = "saldo_usuario", schema = "financas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaldoUsuario implements Serializable {
+
+	@Id
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+
+	@Column(name = "saldo")
+	private BigDecimal saldo;
+
+	@Column(name = "versao")
+	private Long versao;
+
+	@Column(name = "alterado_em")
+	@Convert(converter = Jsr310JpaConverters.InstantConverter.class)
+	private Instant alteradoEm;
+
+	@Column(name = "mes_alterado")
+	private Integer mesAlterado;
+
+	@Column(name = "versao_mes_alterado")
+	private Long versaoMesAlterado;
+
+	/**
+	 * Linha nova: começa na versão 1, já que a versão 0 identifica um usuário
+	 * que ainda não tinha linha de saldo.
+	 */
+	public SaldoUsuario(Long idUsuario, BigDecimal saldo) {
+		this(idUsuario, saldo, 1L, Instant.now(), null, 0L);
+	}
+}
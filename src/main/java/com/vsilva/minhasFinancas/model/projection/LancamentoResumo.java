@@ -0,0 +1,32 @@
+package com.vsilva.minhasFinancas.model.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Projeção de {@link com.vsilva.minhasFinancas.model.entity.Lancamento} usada
+ * nas listagens: carrega só as colunas da tabela de lançamentos e traz o
+ * usuário apenas pelo id, sem join.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LancamentoResumo {
+
+	private Long id;
+	private String descricao;
+	private Integer mes;
+	private Integer ano;
+	private BigDecimal valor;
+	private LocalDate dataCadastro;
+	private Tipo_lancamento tipo;
+	private StatusLancamento status;
+	private Long usuarioId;
+}
@@ -0,0 +1,32 @@
+package com.vsilva.minhasFinancas.model.projection;
+
+import java.math.BigDecimal;
+
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Total e quantidade de lançamentos de um grupo (ano, mês, tipo, status),
+ * calculados no banco. Nos totais anuais o mês fica nulo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TotalLancamentos {
+
+	private Integer ano;
+	private Integer mes;
+	private Tipo_lancamento tipo;
+	private StatusLancamento status;
+	private BigDecimal total;
+	private Long quantidade;
+
+	public TotalLancamentos(Integer ano, Tipo_lancamento tipo, StatusLancamento status, BigDecimal total,
+			Long quantidade) {
+		this(ano, null, tipo, status, total, quantidade);
+	}
+}
@@ -0,0 +1,8 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.vsilva.minhasFinancas.model.entity.FechamentoSaldo;
+
+public interface FechamentoSaldoRepository extends JpaRepository<FechamentoSaldo, Integer> {
+}
@@ -1,15 +1,20 @@
 package com.vsilva.minhasFinancas.model.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
 import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.projection.TotalLancamentos;
 
-public interface LancamentoRepository extends JpaRepository<Lancamento, Long> {
+public interface LancamentoRepository extends JpaRepository<Lancamento, Long>, LancamentoRepositoryCustom {
 	
 	@Query(value = 
 			  " select sum (l.valor) from Lancamento l join l.usuario u "
@@ -17,4 +22,54 @@ public interface LancamentoRepository extends JpaRepository<Lancamento, Long> {
 	BigDecimal obterSaldoPorTipoLancamentoEUsuario( 
 			@Param("idUsuario") Long idUsuario, 
 			@Param("tipo") Tipo_lancamento tipo );
+
+	@Query(value = 
+			  " select u.id, l.tipo, sum (l.valor) from Lancamento l join l.usuario u "
+			+ "group by u.id, l.tipo")
+	List<Object[]> obterSaldosPorUsuarioETipoLancamento();
+
+	@Query(value =
+			  " select l.tipo, sum (l.valor) from Lancamento l "
+			+ "where l.usuario.id = :idUsuario and l.ano >= :ano and (l.ano > :ano or l.mes > :mes) "
+			+ "group by l.tipo")
+	List<Object[]> obterTotaisPorTipoAposMes(
+			@Param("idUsuario") Long idUsuario,
+			@Param("ano") Integer ano,
+			@Param("mes") Integer mes );
+
+	@Query(value = 
+			  " select new com.vsilva.minhasFinancas.model.projection.TotalLancamentos( "
+			+ "l.ano, l.mes, l.tipo, l.status, sum(l.valor), count(l)) from Lancamento l "
+			+ "where l.usuario.id = :idUsuario and l.ano between :anoInicial and :anoFinal "
+			+ "group by l.ano, l.mes, l.tipo, l.status order by l.ano, l.mes, l.tipo, l.status")
+	List<TotalLancamentos> obterTotaisMensais(
+			@Param("idUsuario") Long idUsuario,
+			@Param("anoInicial") Integer anoInicial,
+			@Param("anoFinal") Integer anoFinal );
+
+	@Query(value = 
+			  " select new com.vsilva.minhasFinancas.model.projection.TotalLancamentos( "
+			+ "l.ano, l.tipo, l.status, sum(l.valor), count(l)) from Lancamento l "
+			+ "where l.usuario.id = :idUsuario and l.ano between :anoInicial and :anoFinal "
+			+ "group by l.ano, l.tipo, l.status order by l.ano, l.tipo, l.status")
+	List<TotalLancamentos> obterTotaisAnuais(
+			@Param("idUsuario") Long idUsuario,
+			@Param("anoInicial") Integer anoInicial,
+			@Param("anoFinal") Integer anoFinal );
+
+	@Modifying
+	@Query(" update Lancamento l set l.status = :status, l.versao = l.versao + 1 where l.id in :ids")
+	int atualizarStatus(
+			@Param("ids") Collection<Long> ids,
+			@Param("status") StatusLancamento status );
+
+	@Modifying
+	@Query(" update Lancamento l set l.status = :status, l.versao = l.versao + 1 where l.id in :ids and l.usuario.id = :idUsuario")
+	int atualizarStatusDoUsuario(
+			@Param("ids") Collection<Long> ids,
+			@Param("idUsuario") Long idUsuario,
+			@Param("status") StatusLancamento status );
+
+	@Query(" select distinct l.usuario.id from Lancamento l where l.id in :ids")
+	List<Long> obterUsuariosDosLancamentos(@Param("ids") Collection<Long> ids);
 }
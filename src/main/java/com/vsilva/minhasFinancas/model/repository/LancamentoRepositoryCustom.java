@@ -0,0 +1,48 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+
+public interface LancamentoRepositoryCustom {
+
+	/**
+	 * Busca os lançamentos do usuário do filtro. Quando o filtro tem descrição,
+	 * cada termo informado precisa ser prefixo de algum termo da descrição e o
+	 * resultado vem ordenado por relevância; sem descrição, por (ano, mes, id).
+	 */
+	List<LancamentoResumo> buscar(Lancamento filtro, int primeiro, int limite);
+
+	long contar(Lancamento filtro);
+
+	/**
+	 * Busca os lançamentos do usuário do filtro ordenados por (ano, mes, id),
+	 * iniciando logo após a posição do cursor (keyset). Com cursor nulo, retorna
+	 * a primeira página.
+	 */
+	List<LancamentoResumo> buscarAposCursor(Lancamento filtro, Lancamento cursor, int limite);
+
+	/**
+	 * Altera o status dos lançamentos do usuário que atendem aos filtros
+	 * informados (os nulos são ignorados) e ainda não estão em
+	 * {@code novoStatus}, incrementando a versão de cada um.
+	 */
+	int atualizarStatusPorFiltro(Long idUsuario, Integer ano, Integer mes, Tipo_lancamento tipo,
+			StatusLancamento statusAtual, StatusLancamento novoStatus);
+
+	/**
+	 * Percorre todos os lançamentos do usuário com um cursor somente de avanço.
+	 * Deve ser consumido e fechado dentro de uma transação.
+	 */
+	Stream<LancamentoResumo> percorrerPorUsuario(Long idUsuario, int tamanhoLote);
+
+	/**
+	 * Persiste os lançamentos enviando os inserts ao banco em lotes JDBC de
+	 * {@code tamanhoLote} e limpando o contexto de persistência a cada lote.
+	 */
+	void inserirEmLote(List<Lancamento> lancamentos, int tamanhoLote);
+}
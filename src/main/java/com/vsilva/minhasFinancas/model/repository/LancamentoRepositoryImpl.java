@@ -0,0 +1,222 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CompoundSelection;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.model.util.TextoBusca;
+
+/**
+ * No PostgreSQL a tabela é particionada por ano. Os filtros por ano entram na
+ * consulta só quando informados e sempre como comparação direta com a coluna,
+ * nunca como {@code (:ano is null or l.ano = :ano)}, para que o planejador
+ * descarte as partições de outros anos.
+ */
+public class LancamentoRepositoryImpl implements LancamentoRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<LancamentoResumo> buscar(Lancamento filtro, int primeiro, int limite) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<LancamentoResumo> query = cb.createQuery(LancamentoResumo.class);
+		Root<Lancamento> root = query.from(Lancamento.class);
+
+		query.select(resumo(cb, root)).where(filtrar(cb, root, filtro).toArray(new Predicate[0]));
+
+		List<String> termos = TextoBusca.termos(filtro.getDescricao());
+		if (termos.isEmpty()) {
+			query.orderBy(cb.asc(root.get("ano")), cb.asc(root.get("mes")), cb.asc(root.get("id")));
+		} else {
+			query.orderBy(cb.desc(relevancia(cb, root, termos)), cb.asc(root.get("ano")), cb.asc(root.get("mes")),
+					cb.asc(root.get("id")));
+		}
+
+		return entityManager.createQuery(query)
+				.setFirstResult(primeiro)
+				.setMaxResults(limite)
+				.getResultList();
+	}
+
+	@Override
+	public long contar(Lancamento filtro) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> query = cb.createQuery(Long.class);
+		Root<Lancamento> root = query.from(Lancamento.class);
+
+		query.select(cb.count(root)).where(filtrar(cb, root, filtro).toArray(new Predicate[0]));
+
+		return entityManager.createQuery(query).getSingleResult();
+	}
+
+	@Override
+	public List<LancamentoResumo> buscarAposCursor(Lancamento filtro, Lancamento cursor, int limite) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<LancamentoResumo> query = cb.createQuery(LancamentoResumo.class);
+		Root<Lancamento> root = query.from(Lancamento.class);
+
+		List<Predicate> predicados = filtrar(cb, root, filtro);
+
+		if (cursor != null) {
+			// redundante com o OR abaixo, mas e o que permite descartar as particoes dos anos anteriores
+			predicados.add(cb.greaterThanOrEqualTo(root.get("ano"), cursor.getAno()));
+			predicados.add(cb.or(
+					cb.greaterThan(root.get("ano"), cursor.getAno()),
+					cb.and(cb.equal(root.get("ano"), cursor.getAno()),
+							cb.greaterThan(root.get("mes"), cursor.getMes())),
+					cb.and(cb.equal(root.get("ano"), cursor.getAno()),
+							cb.equal(root.get("mes"), cursor.getMes()),
+							cb.greaterThan(root.get("id"), cursor.getId()))));
+		}
+
+		query.select(resumo(cb, root))
+				.where(predicados.toArray(new Predicate[0]))
+				.orderBy(cb.asc(root.get("ano")), cb.asc(root.get("mes")), cb.asc(root.get("id")));
+
+		return entityManager.createQuery(query)
+				.setMaxResults(limite)
+				.getResultList();
+	}
+
+	@Override
+	public int atualizarStatusPorFiltro(Long idUsuario, Integer ano, Integer mes, Tipo_lancamento tipo,
+			StatusLancamento statusAtual, StatusLancamento novoStatus) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<Lancamento> update = cb.createCriteriaUpdate(Lancamento.class);
+		Root<Lancamento> root = update.from(Lancamento.class);
+
+		List<Predicate> predicados = new ArrayList<>();
+		predicados.add(cb.equal(root.get("usuario").get("id"), idUsuario));
+		predicados.add(cb.notEqual(root.get("status"), novoStatus));
+		if (ano != null) {
+			predicados.add(cb.equal(root.get("ano"), ano));
+		}
+		if (mes != null) {
+			predicados.add(cb.equal(root.get("mes"), mes));
+		}
+		if (tipo != null) {
+			predicados.add(cb.equal(root.get("tipo"), tipo));
+		}
+		if (statusAtual != null) {
+			predicados.add(cb.equal(root.get("status"), statusAtual));
+		}
+
+		Path<Long> versao = root.get("versao");
+		update.set(root.get("status"), novoStatus)
+				.set(versao, cb.sum(versao, 1L))
+				.where(predicados.toArray(new Predicate[0]));
+
+		return entityManager.createQuery(update).executeUpdate();
+	}
+
+	@Override
+	public Stream<LancamentoResumo> percorrerPorUsuario(Long idUsuario, int tamanhoLote) {
+		return entityManager.createQuery(
+				" select new com.vsilva.minhasFinancas.model.projection.LancamentoResumo( "
+				+ "l.id, l.descricao, l.mes, l.ano, l.valor, l.dataCadastro, l.tipo, l.status, l.usuario.id) "
+				+ "from Lancamento l where l.usuario.id = :idUsuario order by l.ano, l.mes, l.id",
+				LancamentoResumo.class)
+				.setParameter("idUsuario", idUsuario)
+				.setHint(QueryHints.HINT_FETCH_SIZE, tamanhoLote)
+				.getResultStream();
+	}
+
+	@Override
+	public void inserirEmLote(List<Lancamento> lancamentos, int tamanhoLote) {
+		Session session = entityManager.unwrap(Session.class);
+		Integer tamanhoLoteAnterior = session.getJdbcBatchSize();
+		session.setJdbcBatchSize(tamanhoLote);
+
+		try {
+			int pendentes = 0;
+			for (Lancamento lancamento : lancamentos) {
+				entityManager.persist(lancamento);
+				if (++pendentes == tamanhoLote) {
+					entityManager.flush();
+					entityManager.clear();
+					pendentes = 0;
+				}
+			}
+			entityManager.flush();
+			entityManager.clear();
+		} finally {
+			session.setJdbcBatchSize(tamanhoLoteAnterior);
+		}
+	}
+
+	private CompoundSelection<LancamentoResumo> resumo(CriteriaBuilder cb, Root<Lancamento> root) {
+		return cb.construct(LancamentoResumo.class,
+				root.get("id"), root.get("descricao"), root.get("mes"), root.get("ano"), root.get("valor"),
+				root.get("dataCadastro"), root.get("tipo"), root.get("status"), root.get("usuario").get("id"));
+	}
+
+	private List<Predicate> filtrar(CriteriaBuilder cb, Root<Lancamento> root, Lancamento filtro) {
+		List<Predicate> predicados = new ArrayList<>();
+
+		predicados.add(cb.equal(root.get("usuario").get("id"), filtro.getUsuario().getId()));
+
+		if (filtro.getAno() != null) {
+			predicados.add(cb.equal(root.get("ano"), filtro.getAno()));
+		}
+
+		if (filtro.getMes() != null) {
+			predicados.add(cb.equal(root.get("mes"), filtro.getMes()));
+		}
+
+		if (filtro.getTipo() != null) {
+			predicados.add(cb.equal(root.get("tipo"), filtro.getTipo()));
+		}
+
+		if (filtro.getStatus() != null) {
+			predicados.add(cb.equal(root.get("status"), filtro.getStatus()));
+		}
+
+		// cada termo precisa iniciar algum termo da descricao normalizada; no
+		// PostgreSQL o indice trigram de descricao_busca atende esses LIKE
+		for (String termo : TextoBusca.termos(filtro.getDescricao())) {
+			predicados.add(cb.like(root.get("descricaoBusca"), "% " + termo + "%"));
+		}
+
+		return predicados;
+	}
+
+	/**
+	 * Termos encontrados por inteiro valem 3 e termos encontrados só pelo
+	 * prefixo valem 1. Descrições que começam pelo primeiro termo ganham 1, o
+	 * que desempata sem superar a diferença entre um termo inteiro e um prefixo.
+	 */
+	private Expression<Integer> relevancia(CriteriaBuilder cb, Root<Lancamento> root, List<String> termos) {
+		Expression<String> descricao = root.get("descricaoBusca");
+
+		Expression<Integer> relevancia = cb.<Integer>selectCase()
+				.when(cb.like(descricao, " " + termos.get(0) + "%"), 1)
+				.otherwise(0);
+
+		for (String termo : termos) {
+			relevancia = cb.sum(relevancia, cb.<Integer>selectCase()
+					.when(cb.like(descricao, "% " + termo + " %"), 3)
+					.otherwise(1));
+		}
+
+		return relevancia;
+	}
+}
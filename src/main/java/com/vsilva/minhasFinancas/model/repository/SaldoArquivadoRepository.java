@@ -0,0 +1,22 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.vsilva.minhasFinancas.model.entity.SaldoArquivado;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+
+public interface SaldoArquivadoRepository extends JpaRepository<SaldoArquivado, SaldoArquivado.Chave> {
+
+	@Query(" select sum(s.valor) from SaldoArquivado s where s.idUsuario = :idUsuario and s.tipo = :tipo")
+	BigDecimal obterTotalPorTipoEUsuario(
+			@Param("idUsuario") Long idUsuario,
+			@Param("tipo") Tipo_lancamento tipo);
+
+	@Query(" select s.idUsuario, s.tipo, sum(s.valor) from SaldoArquivado s group by s.idUsuario, s.tipo")
+	List<Object[]> obterTotaisPorUsuarioETipo();
+}
@@ -0,0 +1,60 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import java.math.BigDecimal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.vsilva.minhasFinancas.model.entity.SaldoMensal;
+
+public interface SaldoMensalRepository extends JpaRepository<SaldoMensal, SaldoMensal.Chave> {
+
+	String CONSOLIDAR = 
+			  " insert into financas.saldo_mensal (id_usuario, ano, mes, receitas, despesas, quantidade, "
+			+ "consolidado_em) "
+			+ "select l.id_usuario, l.ano, l.mes, "
+			+ "sum(case when l.tipo = 'RECEITA' then l.valor else 0 end), "
+			+ "sum(case when l.tipo = 'DESPESA' then l.valor else 0 end), count(*), current_timestamp "
+			+ "from financas.lancamento l where l.ano between :anoInicial and :anoFinal "
+			+ "and (l.ano > :anoInicial or l.mes >= :mesInicial) and (l.ano < :anoFinal or l.mes <= :mesFinal) ";
+
+	@Query(value = 
+			  " select sum(s.receitas - s.despesas) from SaldoMensal s "
+			+ "where s.idUsuario = :idUsuario and s.ano <= :ano and (s.ano < :ano or s.mes <= :mes)")
+	BigDecimal obterSaldoAteMes(
+			@Param("idUsuario") Long idUsuario,
+			@Param("ano") Integer ano,
+			@Param("mes") Integer mes );
+
+	/**
+	 * Totais dos meses de {@code (anoInicial, mesInicial)} a
+	 * {@code (anoFinal, mesFinal)}, inclusive, de todos os usuários.
+	 */
+	@Modifying
+	@Query(nativeQuery = true, value = CONSOLIDAR
+			+ "and l.id_usuario is not null group by l.id_usuario, l.ano, l.mes")
+	int consolidar(
+			@Param("anoInicial") Integer anoInicial,
+			@Param("mesInicial") Integer mesInicial,
+			@Param("anoFinal") Integer anoFinal,
+			@Param("mesFinal") Integer mesFinal );
+
+	@Modifying
+	@Query(nativeQuery = true, value = CONSOLIDAR
+			+ "and l.id_usuario = :idUsuario group by l.id_usuario, l.ano, l.mes")
+	int consolidarDoUsuario(
+			@Param("idUsuario") Long idUsuario,
+			@Param("anoInicial") Integer anoInicial,
+			@Param("mesInicial") Integer mesInicial,
+			@Param("anoFinal") Integer anoFinal,
+			@Param("mesFinal") Integer mesFinal );
+
+	@Modifying
+	@Query(" delete from SaldoMensal s where s.idUsuario = :idUsuario and s.ano >= :ano and (s.ano > :ano or s.mes >= :mes)")
+	int removerAPartirDoMes(
+			@Param("idUsuario") Long idUsuario,
+			@Param("ano") Integer ano,
+			@Param("mes") Integer mes );
+}
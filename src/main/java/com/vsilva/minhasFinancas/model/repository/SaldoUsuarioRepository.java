@@ -0,0 +1,71 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
+
+public interface SaldoUsuarioRepository extends JpaRepository<SaldoUsuario, Long>, SaldoUsuarioRepositoryCustom {
+
+	@Modifying
+	@Query(" update SaldoUsuario s set s.saldo = s.saldo + :delta, s.versao = s.versao + 1, "
+			+ "s.alteradoEm = current_timestamp where s.idUsuario = :idUsuario")
+	int somarAoSaldo(
+			@Param("idUsuario") Long idUsuario,
+			@Param("delta") BigDecimal delta);
+
+	/**
+	 * Como {@link #somarAoSaldo(Long, BigDecimal)}, para uma escrita no mês
+	 * encerrado {@code mes}, no mesmo UPDATE.
+	 */
+	@Modifying
+	@Query(" update SaldoUsuario s set s.saldo = s.saldo + :delta, s.versao = s.versao + 1, "
+			+ "s.alteradoEm = current_timestamp, s.versaoMesAlterado = s.versaoMesAlterado + 1, "
+			+ "s.mesAlterado = case when s.mesAlterado is null or s.mesAlterado > :mes then :mes "
+			+ "else s.mesAlterado end where s.idUsuario = :idUsuario")
+	int somarAoSaldoEmMesEncerrado(
+			@Param("idUsuario") Long idUsuario,
+			@Param("delta") BigDecimal delta,
+			@Param("mes") Integer mes);
+
+	@Query(" select s.idUsuario, s.saldo from SaldoUsuario s")
+	List<Object[]> obterSaldos();
+
+	/**
+	 * Lê a linha com trava de escrita: as escritas do usuário esperam, já que
+	 * todas atualizam essa linha.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query(" select s from SaldoUsuario s where s.idUsuario = :idUsuario")
+	Optional<SaldoUsuario> travar(@Param("idUsuario") Long idUsuario);
+
+	@Query(" select s from SaldoUsuario s where s.mesAlterado is not null order by s.idUsuario")
+	List<SaldoUsuario> obterComMesAlterado(Pageable pagina);
+
+	/**
+	 * Só libera o mês alterado se nenhuma escrita em mês encerrado aconteceu
+	 * desde que {@code versaoMesAlterado} foi lida.
+	 */
+	@Modifying
+	@Query(" update SaldoUsuario s set s.mesAlterado = null "
+			+ "where s.idUsuario = :idUsuario and s.versaoMesAlterado = :versaoMesAlterado")
+	int liberarMesAlterado(
+			@Param("idUsuario") Long idUsuario,
+			@Param("versaoMesAlterado") Long versaoMesAlterado);
+
+	@Modifying
+	@Query(" update SaldoUsuario s set s.versao = s.versao + 1, s.alteradoEm = current_timestamp "
+			+ "where s.idUsuario in :usuarios")
+	int incrementarVersao(@Param("usuarios") Collection<Long> usuarios);
+}
@@ -0,0 +1,16 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import java.math.BigDecimal;
+
+public interface SaldoUsuarioRepositoryCustom {
+
+	/**
+	 * Cria a linha de saldo do usuário com {@code saldo} ou, se outra
+	 * transação a criou antes, soma {@code delta} a ela, num único comando.
+	 * Duas primeiras escritas simultâneas do mesmo usuário não violam a chave.
+	 *
+	 * @param mesEncerrado mês encerrado alterado pela escrita, como em
+	 *                     {@code somarAoSaldoEmMesEncerrado}, ou nulo
+	 */
+	void inserirOuSomar(Long idUsuario, BigDecimal saldo, BigDecimal delta, Integer mesEncerrado);
+}
@@ -0,0 +1,63 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import java.math.BigDecimal;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.BigDecimalType;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.LongType;
+
+/**
+ * O PostgreSQL faz o upsert com {@code insert ... on conflict}, que espera a
+ * transação que inseriu a mesma chave e então aplica o update. O H2 não tem
+ * {@code on conflict do update}, e usa o {@code merge} do SQL padrão.
+ */
+public class SaldoUsuarioRepositoryImpl implements SaldoUsuarioRepositoryCustom {
+
+	private static final String ATUALIZACAO = 
+			  "saldo = s.saldo + cast(:delta as numeric), versao = s.versao + 1, alterado_em = current_timestamp, "
+			+ "versao_mes_alterado = s.versao_mes_alterado + case when cast(:mes as integer) is null then 0 else 1 end, "
+			+ "mes_alterado = case when cast(:mes as integer) is null then s.mes_alterado "
+			+ "when s.mes_alterado is null or s.mes_alterado > cast(:mes as integer) then cast(:mes as integer) "
+			+ "else s.mes_alterado end";
+
+	private static final String INSERIR_OU_SOMAR_POSTGRESQL = 
+			  " insert into financas.saldo_usuario as s (id_usuario, saldo, versao, alterado_em, mes_alterado, "
+			+ "versao_mes_alterado) values (:idUsuario, :saldo, 1, current_timestamp, cast(:mes as integer), 0) "
+			+ "on conflict (id_usuario) do update set " + ATUALIZACAO;
+
+	private static final String INSERIR_OU_SOMAR_H2 = 
+			  " merge into financas.saldo_usuario s using (select cast(:idUsuario as bigint) as id_usuario) v "
+			+ "on (s.id_usuario = v.id_usuario) "
+			+ "when matched then update set " + ATUALIZACAO + " "
+			+ "when not matched then insert (id_usuario, saldo, versao, alterado_em, mes_alterado, versao_mes_alterado) "
+			+ "values (v.id_usuario, :saldo, 1, current_timestamp, cast(:mes as integer), 0)";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private volatile Boolean postgresql;
+
+	@Override
+	public void inserirOuSomar(Long idUsuario, BigDecimal saldo, BigDecimal delta, Integer mesEncerrado) {
+		entityManager.createNativeQuery(postgresql() ? INSERIR_OU_SOMAR_POSTGRESQL : INSERIR_OU_SOMAR_H2)
+				.unwrap(NativeQuery.class)
+				.setParameter("idUsuario", idUsuario, LongType.INSTANCE)
+				.setParameter("saldo", saldo, BigDecimalType.INSTANCE)
+				.setParameter("delta", delta, BigDecimalType.INSTANCE)
+				.setParameter("mes", mesEncerrado, IntegerType.INSTANCE)
+				.executeUpdate();
+	}
+
+	private boolean postgresql() {
+		if (postgresql == null) {
+			postgresql = entityManager.unwrap(Session.class).doReturningWork(
+					conexao -> conexao.getMetaData().getDatabaseProductName().startsWith("PostgreSQL"));
+		}
+		return postgresql;
+	}
+}
@@ -3,6 +3,10 @@ package com.vsilva.minhasFinancas.model.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.vsilva.minhasFinancas.model.entity.Usuario;
 
@@ -11,4 +15,13 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 	boolean existsByEmail(String nome);
 	
 	Optional<Usuario>findByEmail(String email);
+
+	// redeclarado para que o MetricasAspect meça o save como UsuarioRepository
+	@Override
+	<S extends Usuario> S save(S usuario);
+
+	@Transactional
+	@Modifying
+	@Query("update Usuario u set u.senha = :senha where u.id = :id")
+	int atualizarSenha(@Param("id") Long id, @Param("senha") String senha);
 }
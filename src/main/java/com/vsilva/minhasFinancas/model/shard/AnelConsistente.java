@@ -0,0 +1,50 @@
+package com.vsilva.minhasFinancas.model.shard;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Anel de hash consistente dos shards, com {@code virtuais} pontos por shard.
+ * Ao incluir um shard, só os usuários que caem nos pontos dele mudam de lugar,
+ * em média 1/N do total.
+ */
+public class AnelConsistente {
+
+	private final NavigableMap<Long, Integer> pontos = new TreeMap<>();
+	private final int shards;
+
+	public AnelConsistente(int shards, int virtuais) {
+		if (shards < 1 || shards > Shards.MAXIMO_SHARDS) {
+			throw new IllegalArgumentException("Quantidade de shards invalida: " + shards);
+		}
+		this.shards = shards;
+		for (int shard = 0; shard < shards; shard++) {
+			for (int ponto = 0; ponto < virtuais; ponto++) {
+				pontos.put(hash("shard-" + shard + "-" + ponto), shard);
+			}
+		}
+	}
+
+	public int shardDo(long idUsuario) {
+		Map.Entry<Long, Integer> ponto = pontos.ceilingEntry(hash(Long.toString(idUsuario)));
+		return (ponto != null ? ponto : pontos.firstEntry()).getValue();
+	}
+
+	public int getShards() {
+		return shards;
+	}
+
+	private static long hash(String chave) {
+		try {
+			byte[] resumo = MessageDigest.getInstance("MD5").digest(chave.getBytes(StandardCharsets.UTF_8));
+			return ByteBuffer.wrap(resumo).getLong();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
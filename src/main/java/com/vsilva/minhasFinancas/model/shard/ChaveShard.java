@@ -0,0 +1,18 @@
+package com.vsilva.minhasFinancas.model.shard;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Parâmetro que identifica o usuário dono dos dados: o id do usuário, um
+ * {@code Lancamento} (pelo usuário dele) ou uma lista de lançamentos (pelo
+ * primeiro). Com sharding, o método roda inteiro no shard desse usuário.
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ChaveShard {
+}
@@ -0,0 +1,160 @@
+package com.vsilva.minhasFinancas.model.shard;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vsilva.minhasFinancas.service.event.UsuarioCadastradoEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Diretório de usuários por shard, na tabela {@code shard_usuario} do shard 0
+ * (o catálogo, onde ficam todos os usuários). Usuários sem linha, como os
+ * cadastrados antes do sharding, ficam no shard 0; os novos vão para o shard
+ * indicado pelo {@link AnelConsistente} e, a partir daí, só mudam pelo
+ * rebalanceamento. As consultas ao diretório ficam em cache por
+ * {@code validadeCache}.
+ * <p>
+ * Cada shard além do 0 guarda uma cópia resumida (id, nome e email) dos
+ * usuários que moram nele, para a chave estrangeira dos lançamentos.
+ * <p>
+ * O trabalho feito para um usuário segura a trava de leitura dele, e o
+ * rebalanceamento a de escrita enquanto copia os dados. As travas valem só
+ * para esta instância: com mais de uma, o rebalanceamento deve rodar com o
+ * usuário sem tráfego.
+ */
+@Slf4j
+public class DiretorioShards {
+
+	private static final int TRAVAS = 256;
+
+	private final ShardDataSource dataSource;
+	private final AnelConsistente anel;
+	private final JdbcTemplate catalogo;
+	private final JdbcTemplate transacional;
+	private final Cache<Long, Integer> cache;
+	private final ReadWriteLock[] travas = new ReadWriteLock[TRAVAS];
+
+	public DiretorioShards(ShardDataSource dataSource, AnelConsistente anel, Duration validadeCache) {
+		this.dataSource = dataSource;
+		this.anel = anel;
+		this.catalogo = new JdbcTemplate(dataSource.getShard(0));
+		this.transacional = new JdbcTemplate(dataSource);
+		this.cache = Caffeine.newBuilder().expireAfterWrite(validadeCache).build();
+		for (int i = 0; i < TRAVAS; i++) {
+			travas[i] = new ReentrantReadWriteLock();
+		}
+	}
+
+	public int shardDo(Long idUsuario) {
+		return cache.get(idUsuario, id -> catalogo.queryForList(
+				"select shard from financas.shard_usuario where id_usuario = ?", Integer.class, id)
+				.stream().findFirst().orElse(0));
+	}
+
+	/**
+	 * Executa a ação no shard do usuário, com a trava de leitura dele.
+	 */
+	public <T> T executar(Long idUsuario, Supplier<T> acao) {
+		ReadWriteLock trava = trava(idUsuario);
+		trava.readLock().lock();
+		try {
+			return Shards.executar(shardDo(idUsuario), acao);
+		} finally {
+			trava.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Shards em ordem de busca, começando por {@code primeiro} quando informado.
+	 */
+	public List<Integer> ordem(Integer primeiro) {
+		List<Integer> ordem = new ArrayList<>();
+		if (primeiro != null && primeiro < getQuantidade()) {
+			ordem.add(primeiro);
+		}
+		for (int shard = 0; shard < getQuantidade(); shard++) {
+			if (!ordem.contains(shard)) {
+				ordem.add(shard);
+			}
+		}
+		return ordem;
+	}
+
+	public ReadWriteLock trava(Long idUsuario) {
+		return travas[Math.floorMod(idUsuario.hashCode(), TRAVAS)];
+	}
+
+	/**
+	 * Grava o shard do usuário no diretório. Quem chama deve segurar a trava de
+	 * escrita do usuário.
+	 */
+	public void registrar(Long idUsuario, int shard) {
+		if (catalogo.update("update financas.shard_usuario set shard = ? where id_usuario = ?", shard, idUsuario) == 0) {
+			catalogo.update("insert into financas.shard_usuario (id_usuario, shard) values (?, ?)", idUsuario, shard);
+		}
+		cache.invalidate(idUsuario);
+	}
+
+	/**
+	 * Copia id, nome e email do usuário do catálogo para o shard, se ainda não
+	 * estiver lá.
+	 */
+	public void copiarUsuario(Long idUsuario, int shard) {
+		JdbcTemplate destino = jdbc(shard);
+		if (shard == 0 || destino.queryForObject("select count(*) from financas.usuario where id = ?", Integer.class,
+				idUsuario) > 0) {
+			return;
+		}
+		Map<String, Object> usuario = catalogo.queryForMap("select nome, email from financas.usuario where id = ?",
+				idUsuario);
+		destino.update("insert into financas.usuario (id, nome, email) values (?, ?, ?)", idUsuario,
+				usuario.get("nome"), usuario.get("email"));
+	}
+
+	/**
+	 * O usuário entra no diretório na mesma transação em que é incluído.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+	public void aoCadastrarUsuario(UsuarioCadastradoEvent evento) {
+		transacional.update("insert into financas.shard_usuario (id_usuario, shard) values (?, ?)",
+				evento.getIdUsuario(), anel.shardDo(evento.getIdUsuario()));
+	}
+
+	/**
+	 * Uma falha aqui deixa o usuário sem cópia no shard, e os lançamentos dele
+	 * são recusados pela chave estrangeira até o rebalanceamento movê-lo.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void aposCadastrarUsuario(UsuarioCadastradoEvent evento) {
+		cache.invalidate(evento.getIdUsuario());
+		try {
+			copiarUsuario(evento.getIdUsuario(), shardDo(evento.getIdUsuario()));
+		} catch (RuntimeException e) {
+			log.error("Nao foi possivel copiar o usuario {} para o shard dele", evento.getIdUsuario(), e);
+		}
+	}
+
+	public JdbcTemplate jdbc(int shard) {
+		return new JdbcTemplate(dataSource.getShard(shard));
+	}
+
+	public AnelConsistente getAnel() {
+		return anel;
+	}
+
+	public int getQuantidade() {
+		return dataSource.getQuantidade();
+	}
+}
@@ -0,0 +1,19 @@
+package com.vsilva.minhasFinancas.model.shard;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Com sharding, o método roda uma vez em cada shard quando não há
+ * {@link ChaveShard} informada, cada vez com a própria transação. Resultados
+ * {@code int} são somados; um {@code Optional} devolve o primeiro encontrado,
+ * procurando primeiro no shard de origem do id recebido no primeiro parâmetro.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EmCadaShard {
+}
@@ -0,0 +1,90 @@
+package com.vsilva.minhasFinancas.model.shard;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Gerador de ids de lançamento. Cada shard tem a própria sequence, com o
+ * mesmo nome e o mesmo pool ({@code increment_size}), e por isso um
+ * {@link SequenceStyleGenerator} próprio: o pool guardado em memória vale só
+ * para o banco de onde veio. A sequence é lida na conexão da sessão, que já é
+ * a do shard da thread.
+ * <p>
+ * Sem shard na thread o id é o valor da sequence, como antes do sharding; com
+ * shard, o valor é composto por {@link Shards#compor(long, int)}.
+ */
+public class IdPorShard implements PersistentIdentifierGenerator, Configurable {
+
+	private final ConcurrentMap<Integer, SequenceStyleGenerator> geradores = new ConcurrentHashMap<>();
+
+	private Type tipo;
+	private Properties parametros;
+	private ServiceRegistry servicos;
+	private Database banco;
+
+	@Override
+	public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+		this.tipo = type;
+		this.parametros = params;
+		this.servicos = serviceRegistry;
+		gerador(0);
+	}
+
+	@Override
+	public void registerExportables(Database database) {
+		this.banco = database;
+		// os demais shards registram a mesma sequence ao serem criados
+		geradores.values().forEach(gerador -> gerador.registerExportables(database));
+	}
+
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+		Integer shard = Shards.atual();
+		if (shard == null) {
+			return gerador(0).generate(session, object);
+		}
+		long sequencial = ((Number) gerador(shard).generate(session, object)).longValue();
+		return Shards.compor(sequencial, shard);
+	}
+
+	private SequenceStyleGenerator gerador(int shard) {
+		return geradores.computeIfAbsent(shard, s -> {
+			SequenceStyleGenerator gerador = new SequenceStyleGenerator();
+			gerador.configure(tipo, parametros, servicos);
+			if (banco != null) {
+				gerador.registerExportables(banco);
+			}
+			return gerador;
+		});
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public String[] sqlCreateStrings(Dialect dialect) throws HibernateException {
+		return gerador(0).sqlCreateStrings(dialect);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public String[] sqlDropStrings(Dialect dialect) throws HibernateException {
+		return gerador(0).sqlDropStrings(dialect);
+	}
+
+	@Override
+	public Object generatorKey() {
+		return gerador(0).generatorKey();
+	}
+}
@@ -0,0 +1,49 @@
+package com.vsilva.minhasFinancas.model.shard;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Entrega conexões do shard da thread ({@link Shards#atual()}) e, sem shard,
+ * do shard 0, que também guarda o catálogo de usuários.
+ */
+public class ShardDataSource extends AbstractRoutingDataSource {
+
+	private final List<HikariDataSource> shards;
+
+	public ShardDataSource(List<HikariDataSource> shards) {
+		this.shards = shards;
+		Map<Object, Object> destinos = new HashMap<>();
+		for (int shard = 0; shard < shards.size(); shard++) {
+			destinos.put(shard, shards.get(shard));
+		}
+		setTargetDataSources(destinos);
+		setDefaultTargetDataSource(shards.get(0));
+		setLenientFallback(false);
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return Shards.atual();
+	}
+
+	public DataSource getShard(int shard) {
+		return shards.get(shard);
+	}
+
+	public int getQuantidade() {
+		return shards.size();
+	}
+
+	public void fechar() {
+		shards.forEach(HikariDataSource::close);
+	}
+}
@@ -0,0 +1,61 @@
+package com.vsilva.minhasFinancas.model.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard da thread atual. Fica vazio sem sharding, e então o
+ * {@link ShardDataSource} e o {@link IdPorShard} se comportam como um banco
+ * único.
+ * <p>
+ * Os ids de lançamento gravados com sharding levam a {@link #MARCA_ID}, o
+ * número gerado pela sequence do shard e o shard de origem nos
+ * {@link #BITS_SHARD} bits mais baixos. Assim são únicos entre os shards,
+ * inclusive depois de mudar de shard no rebalanceamento, e nunca colidem com
+ * os ids anteriores ao sharding. O total fica abaixo de 2^53, seguro para
+ * clientes JavaScript.
+ */
+public final class Shards {
+
+	public static final int BITS_SHARD = 10;
+	public static final int MAXIMO_SHARDS = 1 << BITS_SHARD;
+	public static final long MARCA_ID = 1L << 52;
+
+	private static final ThreadLocal<Integer> ATUAL = new ThreadLocal<>();
+
+	private Shards() {
+	}
+
+	public static Integer atual() {
+		return ATUAL.get();
+	}
+
+	/**
+	 * Executa a ação com a thread no shard informado e restaura o anterior ao
+	 * final.
+	 */
+	public static <T> T executar(int shard, Supplier<T> acao) {
+		Integer anterior = ATUAL.get();
+		ATUAL.set(shard);
+		try {
+			return acao.get();
+		} finally {
+			if (anterior == null) {
+				ATUAL.remove();
+			} else {
+				ATUAL.set(anterior);
+			}
+		}
+	}
+
+	public static long compor(long sequencial, int shard) {
+		return MARCA_ID | (sequencial << BITS_SHARD) | shard;
+	}
+
+	/**
+	 * Shard em que o lançamento foi criado, ou nulo para ids anteriores ao
+	 * sharding.
+	 */
+	public static Integer origem(long id) {
+		return id >= MARCA_ID ? (int) (id & (MAXIMO_SHARDS - 1)) : null;
+	}
+}
@@ -0,0 +1,38 @@
+package com.vsilva.minhasFinancas.model.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Normaliza descrições para busca por termos: minúsculas, sem acentos e com os
+ * termos separados por um espaço, incluindo um espaço no início e no fim. Assim
+ * "% termo%" encontra termos pelo prefixo e "% termo %" pelo termo exato.
+ */
+public final class TextoBusca {
+
+	private TextoBusca() {
+	}
+
+	public static String normalizar(String texto) {
+		if (texto == null) {
+			return null;
+		}
+
+		String semAcentos = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+		String termos = semAcentos.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim();
+
+		return termos.isEmpty() ? null : " " + termos + " ";
+	}
+
+	public static List<String> termos(String texto) {
+		String normalizado = normalizar(texto);
+		if (normalizado == null) {
+			return new ArrayList<>();
+		}
+		return new ArrayList<>(new LinkedHashSet<>(Arrays.asList(normalizado.trim().split(" "))));
+	}
+}
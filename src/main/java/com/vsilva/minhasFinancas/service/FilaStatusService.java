@@ -0,0 +1,13 @@
+package com.vsilva.minhasFinancas.service;
+
+import com.vsilva.minhasFinancas.api.dto.SituacaoFilaDTO;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+
+public interface FilaStatusService {
+
+	void enfileirar(Long idLancamento, Long idUsuario, StatusLancamento status);
+
+	int processar();
+
+	SituacaoFilaDTO obterSituacao();
+}
@@ -0,0 +1,22 @@
+package com.vsilva.minhasFinancas.service;
+
+import java.math.BigDecimal;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Consultas de lançamentos sem bloqueio, sobre R2DBC. Só leitura: as escritas
+ * continuam no {@link LancamentoService}, pelo JPA.
+ */
+public interface LancamentoQueryService {
+
+	Flux<LancamentoResumo> buscar(Lancamento lancamentoFiltro);
+
+	Mono<BigDecimal> obterSaldo(Long idUsuario);
+
+	Flux<LancamentoResumo> exportar(Long idUsuario);
+}
@@ -1,27 +1,55 @@
 package com.vsilva.minhasFinancas.service;
 
 import java.math.BigDecimal;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
 import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.model.projection.TotalLancamentos;
 
 public interface LancamentoService {
 
 	Lancamento salvar(Lancamento lancamento);
 	
+	int importar(Long idUsuario, Iterator<Lancamento> lancamentos, int tamanhoLote);
+	
 	Lancamento atualizar(Lancamento lancamento);
 	
+	Lancamento atualizarParcialmente(Lancamento lancamento, Lancamento alteracoes);
+	
 	void deletar(Lancamento lancamento);
 	
-	List<Lancamento> buscar(Lancamento lancamentoFiltro);
+	List<LancamentoResumo> buscar(Lancamento lancamentoFiltro);
+	
+	List<LancamentoResumo> buscar(Lancamento lancamentoFiltro, Lancamento cursor, int limite);
+	
+	Page<LancamentoResumo> buscar(Lancamento lancamentoFiltro, Pageable pageable);
 	
 	void atualizarStatus(Lancamento lancamento, StatusLancamento status);
 	
+	int atualizarStatus(Lancamento filtro, StatusLancamento statusAtual, StatusLancamento novoStatus);
+	
+	int atualizarStatus(List<Long> ids, Long idUsuario, StatusLancamento novoStatus);
+	
 	void validar(Lancamento lancamento);
 	
 	Optional<Lancamento> obterPorId(Long id);
 	
 	BigDecimal obterSaldoPorUsuario(Long id);
+	
+	SaldoUsuario obterSituacaoPorUsuario(Long id);
+	
+	SaldoUsuario obterVersaoPorUsuario(Long id);
+	
+	void exportar(Long idUsuario, Consumer<LancamentoResumo> consumidor);
+	
+	List<TotalLancamentos> resumir(Long idUsuario, Integer anoInicial, Integer anoFinal, boolean porMes);
 }
@@ -0,0 +1,14 @@
+package com.vsilva.minhasFinancas.service;
+
+import java.util.List;
+
+public interface ParticionamentoService {
+
+	int criarParticoes();
+
+	int arquivar(int ano, String tablespace);
+
+	boolean arquivado(Integer ano);
+
+	List<Integer> obterAnosArquivados();
+}
@@ -0,0 +1,12 @@
+package com.vsilva.minhasFinancas.service;
+
+import java.util.Map;
+
+public interface RebalanceamentoService {
+
+	Map<Integer, Long> contarUsuarios();
+
+	Map<Long, Integer> planejar(int limite);
+
+	int mover(Long idUsuario, int destino);
+}
@@ -0,0 +1,33 @@
+package com.vsilva.minhasFinancas.service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
+
+public interface SaldoService {
+
+	void registrarInclusao(Lancamento lancamento);
+
+	void registrarInclusoes(List<Lancamento> lancamentos);
+
+	void registrarExclusao(Lancamento lancamento);
+
+	void registrarAlteracao(Lancamento anterior, Lancamento atual);
+
+	void incrementarVersao(Collection<Long> usuarios);
+
+	BigDecimal obterSaldo(Long idUsuario);
+
+	SaldoUsuario obterSituacao(Long idUsuario);
+
+	SaldoUsuario obterVersao(Long idUsuario);
+
+	BigDecimal calcularSaldo(Long idUsuario);
+
+	int reconciliar();
+
+	int consolidarMeses();
+}
@@ -0,0 +1,12 @@
+package com.vsilva.minhasFinancas.service;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface SenhaService {
+
+	CompletableFuture<String> codificar(String senha);
+
+	CompletableFuture<Boolean> conferir(String senha, String senhaArmazenada);
+
+	boolean precisaRecodificar(String senhaArmazenada);
+}
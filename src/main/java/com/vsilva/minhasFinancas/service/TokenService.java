@@ -0,0 +1,10 @@
+package com.vsilva.minhasFinancas.service;
+
+public interface TokenService {
+
+	String gerar(Long idUsuario);
+
+	Long validar(String token);
+
+	long getValidadeSegundos();
+}
@@ -1,6 +1,7 @@
 package com.vsilva.minhasFinancas.service;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import com.vsilva.minhasFinancas.model.entity.Usuario;
 
@@ -8,9 +9,15 @@ public interface UsuarioService {
 
 	Usuario autenticar(String email, String senha);
 
+	CompletableFuture<Usuario> autenticarAsync(String email, String senha);
+
 	Usuario salvarUsuario(Usuario usuario);
 
 	void validarEmail(String email);
 
 	Optional<Usuario> obterPorId(long id);
+
+	Usuario obterReferencia(long id);
+
+	boolean existePorId(long id);
 }
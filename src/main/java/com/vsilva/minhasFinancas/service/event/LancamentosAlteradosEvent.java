@@ -0,0 +1,18 @@
+package com.vsilva.minhasFinancas.service.event;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Publicado quando lançamentos são incluídos, alterados ou excluídos. Carrega
+ * os usuários afetados para que os saldos em cache sejam descartados depois do
+ * commit.
+ */
+@Getter
+@AllArgsConstructor
+public class LancamentosAlteradosEvent {
+
+	private final Set<Long> usuarios;
+}
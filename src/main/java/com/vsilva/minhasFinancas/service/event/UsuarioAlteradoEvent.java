@@ -0,0 +1,15 @@
+package com.vsilva.minhasFinancas.service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Publicado na transação que altera um usuário já cadastrado, para que o
+ * usuário em cache seja descartado depois do commit.
+ */
+@Getter
+@AllArgsConstructor
+public class UsuarioAlteradoEvent {
+
+	private final Long idUsuario;
+}
@@ -0,0 +1,14 @@
+package com.vsilva.minhasFinancas.service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Publicado na transação que inclui um usuário novo.
+ */
+@Getter
+@AllArgsConstructor
+public class UsuarioCadastradoEvent {
+
+	private final Long idUsuario;
+}
@@ -0,0 +1,8 @@
+package com.vsilva.minhasFinancas.service.exception;
+
+public class FilaCheiaException extends RuntimeException {
+
+	public FilaCheiaException(String msg) {
+		super(msg);
+	}
+}
@@ -0,0 +1,228 @@
+package com.vsilva.minhasFinancas.service.impl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vsilva.minhasFinancas.api.dto.SituacaoFilaDTO;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.repository.LancamentoRepository;
+import com.vsilva.minhasFinancas.model.shard.DiretorioShards;
+import com.vsilva.minhasFinancas.model.shard.Shards;
+import com.vsilva.minhasFinancas.service.FilaStatusService;
+import com.vsilva.minhasFinancas.service.SaldoService;
+import com.vsilva.minhasFinancas.service.event.LancamentosAlteradosEvent;
+import com.vsilva.minhasFinancas.service.exception.FilaCheiaException;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fila em memória de mudanças de status, aplicadas em lote por um worker.
+ * <p>
+ * Mudanças para o mesmo lançamento se fundem: só a última é aplicada. A fila
+ * comporta no máximo {@code capacidade} lançamentos distintos; acima disso
+ * novas mudanças são recusadas para que o cliente tente de novo mais tarde. O
+ * worker agrupa as mudanças por (status, usuário) e aplica cada grupo com um
+ * único {@code UPDATE ... SET status ... WHERE id IN (...)}, sem carregar as
+ * entidades, e incrementa a versão dos lançamentos dos usuários afetados na
+ * mesma transação. Mudanças ainda na fila se perdem se a aplicação parar.
+ * <p>
+ * Com sharding, cada grupo é aplicado no shard do usuário, com a própria
+ * transação, e os grupos sem usuário em todos os shards. Se um grupo falhar, o
+ * lote inteiro volta para a fila e os grupos já aplicados são reaplicados, o
+ * que só incrementa a versão de novo.
+ */
+@Slf4j
+@Service
+public class FilaStatusServiceImpl implements FilaStatusService {
+
+	private final LancamentoRepository repository;
+	private final SaldoService saldoService;
+	private final ApplicationEventPublisher eventos;
+	private final TransactionTemplate transacao;
+	private final Optional<DiretorioShards> shards;
+	private final int capacidade;
+	private final int tamanhoLote;
+
+	private final ConcurrentHashMap<Long, Mudanca> pendentes = new ConcurrentHashMap<>();
+	private final AtomicInteger tamanho = new AtomicInteger();
+	private final AtomicLong recebidas = new AtomicLong();
+	private final AtomicLong aplicadas = new AtomicLong();
+	private final AtomicLong recusadas = new AtomicLong();
+	private final AtomicLong falhas = new AtomicLong();
+	private volatile Instant ultimoProcessamento;
+
+	public FilaStatusServiceImpl(LancamentoRepository repository, SaldoService saldoService,
+			ApplicationEventPublisher eventos, TransactionTemplate transacao, Optional<DiretorioShards> shards,
+			@Value("${minhasfinancas.status.fila.capacidade:10000}") int capacidade,
+			@Value("${minhasfinancas.status.fila.tamanho-lote:1000}") int tamanhoLote) {
+		this.repository = repository;
+		this.saldoService = saldoService;
+		this.eventos = eventos;
+		this.transacao = transacao;
+		this.shards = shards;
+		this.capacidade = capacidade;
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	@Override
+	public void enfileirar(Long idLancamento, Long idUsuario, StatusLancamento status) {
+		Objects.requireNonNull(idLancamento);
+		Objects.requireNonNull(status);
+
+		// um lancamento novo reserva a vaga no contador dentro do compute da
+		// chave; sem vaga a reserva e desfeita e nada e inserido
+		Mudanca mudanca = new Mudanca(status, idUsuario);
+		Mudanca enfileirada = pendentes.compute(idLancamento, (id, anterior) -> {
+			if (anterior == null && tamanho.incrementAndGet() > capacidade) {
+				tamanho.decrementAndGet();
+				return null;
+			}
+			return mudanca;
+		});
+
+		if (enfileirada == null) {
+			recusadas.incrementAndGet();
+			throw new FilaCheiaException("A fila de atualização de status está cheia. Tente novamente em instantes.");
+		}
+		recebidas.incrementAndGet();
+	}
+
+	/**
+	 * Aplica as mudanças pendentes, um lote por transação.
+	 *
+	 * @return quantidade de lançamentos atualizados
+	 */
+	@Override
+	@Scheduled(fixedDelayString = "${minhasfinancas.status.fila.intervalo-ms:200}",
+			initialDelayString = "${minhasfinancas.status.fila.intervalo-ms:200}")
+	public int processar() {
+		int atualizados = 0;
+		while (!pendentes.isEmpty()) {
+			Map<Mudanca, List<Long>> grupos = retirarLote();
+			try {
+				atualizados += aplicarNosShards(grupos);
+			} catch (RuntimeException e) {
+				falhas.incrementAndGet();
+				log.error("Falha ao aplicar lote de mudancas de status; devolvendo a fila", e);
+				devolver(grupos);
+				break;
+			}
+		}
+		ultimoProcessamento = Instant.now();
+		aplicadas.addAndGet(atualizados);
+		return atualizados;
+	}
+
+	@Override
+	public SituacaoFilaDTO obterSituacao() {
+		return SituacaoFilaDTO.builder()
+				.pendentes(tamanho.get())
+				.capacidade(capacidade)
+				.recebidas(recebidas.get())
+				.aplicadas(aplicadas.get())
+				.recusadas(recusadas.get())
+				.falhas(falhas.get())
+				.ultimoProcessamento(ultimoProcessamento)
+				.build();
+	}
+
+	private Map<Mudanca, List<Long>> retirarLote() {
+		Map<Mudanca, List<Long>> grupos = new HashMap<>();
+		Iterator<Long> ids = pendentes.keySet().iterator();
+		int retirados = 0;
+		while (ids.hasNext() && retirados < tamanhoLote) {
+			Long id = ids.next();
+			Mudanca mudanca = pendentes.remove(id);
+			if (mudanca != null) {
+				tamanho.decrementAndGet();
+				grupos.computeIfAbsent(mudanca, m -> new ArrayList<>()).add(id);
+				retirados++;
+			}
+		}
+		return grupos;
+	}
+
+	private int aplicarNosShards(Map<Mudanca, List<Long>> grupos) {
+		if (!shards.isPresent()) {
+			return transacao.execute(status -> aplicar(grupos));
+		}
+
+		DiretorioShards diretorio = shards.get();
+		int atualizados = 0;
+		for (Map.Entry<Mudanca, List<Long>> grupo : grupos.entrySet()) {
+			Map<Mudanca, List<Long>> unico = Collections.singletonMap(grupo.getKey(), grupo.getValue());
+			if (grupo.getKey().idUsuario != null) {
+				atualizados += diretorio.executar(grupo.getKey().idUsuario,
+						() -> transacao.execute(status -> aplicar(unico)));
+			} else {
+				for (Integer shard : diretorio.ordem(null)) {
+					atualizados += Shards.executar(shard, () -> transacao.execute(status -> aplicar(unico)));
+				}
+			}
+		}
+		return atualizados;
+	}
+
+	private int aplicar(Map<Mudanca, List<Long>> grupos) {
+		Set<Long> usuarios = new HashSet<>();
+		int atualizados = 0;
+		for (Map.Entry<Mudanca, List<Long>> grupo : grupos.entrySet()) {
+			Mudanca mudanca = grupo.getKey();
+			int aplicados;
+			if (mudanca.idUsuario == null) {
+				usuarios.addAll(repository.obterUsuariosDosLancamentos(grupo.getValue()));
+				aplicados = repository.atualizarStatus(grupo.getValue(), mudanca.status);
+			} else {
+				aplicados = repository.atualizarStatusDoUsuario(grupo.getValue(), mudanca.idUsuario, mudanca.status);
+				if (aplicados > 0) {
+					usuarios.add(mudanca.idUsuario);
+				}
+			}
+			atualizados += aplicados;
+		}
+
+		usuarios.remove(null);
+		if (!usuarios.isEmpty()) {
+			saldoService.incrementarVersao(usuarios);
+			eventos.publishEvent(new LancamentosAlteradosEvent(usuarios));
+		}
+		return atualizados;
+	}
+
+	private void devolver(Map<Mudanca, List<Long>> grupos) {
+		// uma mudanca mais nova recebida nesse meio tempo prevalece
+		grupos.forEach((mudanca, ids) -> ids.forEach(id -> {
+			if (pendentes.putIfAbsent(id, mudanca) == null) {
+				tamanho.incrementAndGet();
+			}
+		}));
+	}
+
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	private static class Mudanca {
+
+		private final StatusLancamento status;
+		private final Long idUsuario;
+	}
+}
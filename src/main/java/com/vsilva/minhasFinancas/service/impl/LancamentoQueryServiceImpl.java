@@ -0,0 +1,147 @@
+package com.vsilva.minhasFinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.model.util.TextoBusca;
+import com.vsilva.minhasFinancas.service.LancamentoQueryService;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mesmas consultas do {@code LancamentoRepositoryImpl}, em SQL sobre R2DBC. As
+ * linhas são emitidas conforme a demanda de quem assina, e a conexão volta ao
+ * pool quando o Flux termina ou é cancelado.
+ * <p>
+ * O saldo vem de {@code saldo_usuario} e, para um usuário ainda sem linha de
+ * saldo, é somado a partir dos lançamentos e dos totais dos anos arquivados.
+ * Não passa pelo cache de saldos do {@link SaldoServiceImpl}, que é local às
+ * transações JPA.
+ */
+@Service
+@ConditionalOnProperty(name = "minhasfinancas.reativo.habilitado", havingValue = "true")
+public class LancamentoQueryServiceImpl implements LancamentoQueryService {
+
+	private static final String SELECT_RESUMO = "select id, descricao, mes, ano, valor, data_cadastro, tipo, status, "
+			+ "id_usuario from financas.lancamento";
+
+	private static final String SELECT_SALDO = "select saldo from financas.saldo_usuario where id_usuario = $1";
+
+	private static final String CALCULAR_SALDO = "select coalesce(sum(case when tipo = 'DESPESA' then -valor "
+			+ "else valor end), 0) + (select coalesce(sum(case when tipo = 'DESPESA' then -valor else valor end), 0) "
+			+ "from financas.saldo_arquivado where id_usuario = $1) from financas.lancamento where id_usuario = $1";
+
+	private final ConnectionFactory connectionFactory;
+	private final int tamanhoLote;
+
+	public LancamentoQueryServiceImpl(ConnectionFactory connectionFactory,
+			@Value("${minhasfinancas.exportacao.tamanho-lote:500}") int tamanhoLote) {
+		this.connectionFactory = connectionFactory;
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	@Override
+	public Flux<LancamentoResumo> buscar(Lancamento filtro) {
+		List<Object> parametros = new ArrayList<>();
+		StringBuilder sql = new StringBuilder(SELECT_RESUMO).append(" where id_usuario = ")
+				.append(parametro(parametros, filtro.getUsuario().getId()));
+
+		if (filtro.getAno() != null) {
+			sql.append(" and ano = ").append(parametro(parametros, filtro.getAno()));
+		}
+		if (filtro.getMes() != null) {
+			sql.append(" and mes = ").append(parametro(parametros, filtro.getMes()));
+		}
+		if (filtro.getTipo() != null) {
+			sql.append(" and tipo = ").append(parametro(parametros, filtro.getTipo().name()));
+		}
+		if (filtro.getStatus() != null) {
+			sql.append(" and status = ").append(parametro(parametros, filtro.getStatus().name()));
+		}
+
+		List<String> termos = TextoBusca.termos(filtro.getDescricao());
+		for (String termo : termos) {
+			sql.append(" and descricao_busca like ").append(parametro(parametros, "% " + termo + "%"));
+		}
+
+		sql.append(" order by ");
+		if (!termos.isEmpty()) {
+			// mesma relevancia do LancamentoRepositoryImpl
+			sql.append("(case when descricao_busca like ").append(parametro(parametros, " " + termos.get(0) + "%"))
+					.append(" then 1 else 0 end");
+			for (String termo : termos) {
+				sql.append(" + case when descricao_busca like ").append(parametro(parametros, "% " + termo + " %"))
+						.append(" then 3 else 1 end");
+			}
+			sql.append(") desc, ");
+		}
+		sql.append("ano, mes, id");
+
+		return consultar(sql.toString(), parametros);
+	}
+
+	@Override
+	public Mono<BigDecimal> obterSaldo(Long idUsuario) {
+		return Mono.usingWhen(connectionFactory.create(),
+				conexao -> Flux.from(conexao.createStatement(SELECT_SALDO).bind(0, idUsuario).execute())
+						.flatMap(resultado -> resultado.map((row, metadados) -> row.get(0, BigDecimal.class)))
+						.next()
+						.switchIfEmpty(Flux.from(conexao.createStatement(CALCULAR_SALDO).bind(0, idUsuario)
+								.execute())
+								.flatMap(resultado -> resultado.map((row, metadados) -> row.get(0, BigDecimal.class)))
+								.next()),
+				Connection::close);
+	}
+
+	@Override
+	public Flux<LancamentoResumo> exportar(Long idUsuario) {
+		List<Object> parametros = new ArrayList<>();
+		String sql = SELECT_RESUMO + " where id_usuario = " + parametro(parametros, idUsuario) + " order by ano, mes, id";
+		return consultar(sql, parametros);
+	}
+
+	private Flux<LancamentoResumo> consultar(String sql, List<Object> parametros) {
+		return Flux.usingWhen(connectionFactory.create(), conexao -> {
+			Statement statement = conexao.createStatement(sql).fetchSize(tamanhoLote);
+			for (int i = 0; i < parametros.size(); i++) {
+				statement.bind(i, parametros.get(i));
+			}
+			return Flux.from(statement.execute()).flatMap(resultado -> resultado.map((row, metadados) -> resumo(row)));
+		}, Connection::close);
+	}
+
+	private static String parametro(List<Object> parametros, Object valor) {
+		parametros.add(valor);
+		return "$" + parametros.size();
+	}
+
+	private static LancamentoResumo resumo(Row row) {
+		String tipo = row.get(6, String.class);
+		String status = row.get(7, String.class);
+		return new LancamentoResumo(
+				row.get(0, Long.class),
+				row.get(1, String.class),
+				row.get(2, Integer.class),
+				row.get(3, Integer.class),
+				row.get(4, BigDecimal.class),
+				row.get(5, LocalDate.class),
+				tipo == null ? null : Tipo_lancamento.valueOf(tipo),
+				status == null ? null : StatusLancamento.valueOf(status),
+				row.get(8, Long.class));
+	}
+}
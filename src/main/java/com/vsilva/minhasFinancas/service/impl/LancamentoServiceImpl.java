@@ -1,123 +1,410 @@
 package com.vsilva.minhasFinancas.service.impl;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
 import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
-import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.model.projection.TotalLancamentos;
 import com.vsilva.minhasFinancas.model.repository.LancamentoRepository;
+import com.vsilva.minhasFinancas.model.shard.ChaveShard;
+import com.vsilva.minhasFinancas.model.shard.EmCadaShard;
+import com.vsilva.minhasFinancas.model.shard.Shards;
 import com.vsilva.minhasFinancas.service.LancamentoService;
+import com.vsilva.minhasFinancas.service.ParticionamentoService;
+import com.vsilva.minhasFinancas.service.SaldoService;
+import com.vsilva.minhasFinancas.service.event.LancamentosAlteradosEvent;
 import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
 
 @Service
 public class LancamentoServiceImpl implements LancamentoService {
 
+	private static final int LIMITE_MAXIMO = 1000;
+	private static final int INTERVALO_MAXIMO_ANOS = 50;
+	private static final int LIMITE_IDS_EM_LOTE = 100_000;
+	private static final int IDS_POR_COMANDO = 1000;
+
 	private LancamentoRepository repository;
+	private SaldoService saldoService;
+	private ParticionamentoService particionamentoService;
+	private ApplicationEventPublisher eventos;
+
+	@Value("${minhasfinancas.exportacao.tamanho-lote:500}")
+	private int tamanhoLoteExportacao;
 	
-	public LancamentoServiceImpl(LancamentoRepository repository) {
+	public LancamentoServiceImpl(LancamentoRepository repository, SaldoService saldoService,
+			ParticionamentoService particionamentoService, ApplicationEventPublisher eventos) {
 		this.repository = repository;
+		this.saldoService = saldoService;
+		this.particionamentoService = particionamentoService;
+		this.eventos = eventos;
 	}
 	
 	@Override
 	@Transactional
-	public Lancamento salvar(Lancamento lancamento) {
+	public Lancamento salvar(@ChaveShard Lancamento lancamento) {
 		validar(lancamento);
 		lancamento.setStatus(StatusLancamento.PENDENTE);
-		return repository.save(lancamento);
+		Lancamento salvo = repository.save(lancamento);
+		saldoService.registrarInclusao(salvo);
+		publicarAlteracao(Collections.singletonList(salvo));
+		return salvo;
 	}
 	
+	/**
+	 * Insere os lançamentos à medida que o iterador os entrega, um lote de
+	 * {@code tamanhoLote} por vez, sem guardar o arquivo inteiro. Tudo roda na
+	 * mesma transação: uma exceção do iterador ou da validação desfaz os lotes
+	 * já inseridos.
+	 */
 	@Override
 	@Transactional
-	public Lancamento atualizar(Lancamento lancamento) {
+	public int importar(@ChaveShard Long idUsuario, Iterator<Lancamento> lancamentos, int tamanhoLote) {
+		if (tamanhoLote < 1) {
+			throw new RegraNegocioException("Informe um tamanho de lote maior que zero.");
+		}
+
+		int inseridos = 0;
+		List<Lancamento> lote = new ArrayList<>(tamanhoLote);
+		while (lancamentos.hasNext()) {
+			Lancamento lancamento = lancamentos.next();
+			validar(lancamento);
+			lancamento.setStatus(StatusLancamento.PENDENTE);
+			lote.add(lancamento);
+			if (lote.size() == tamanhoLote || !lancamentos.hasNext()) {
+				repository.inserirEmLote(lote, tamanhoLote);
+				saldoService.registrarInclusoes(lote);
+				inseridos += lote.size();
+				lote = new ArrayList<>(tamanhoLote);
+			}
+		}
+
+		if (inseridos > 0) {
+			eventos.publishEvent(new LancamentosAlteradosEvent(Collections.singleton(idUsuario)));
+		}
+		return inseridos;
+	}
+	
+	@Override
+	@Transactional
+	public Lancamento atualizar(@ChaveShard Lancamento lancamento) {
 		Objects.requireNonNull(lancamento.getId());
 		validar(lancamento);
-		return repository.save(lancamento);
+
+		// copia o estado anterior antes do merge sobrescrever a instancia gerenciada
+		Optional<Lancamento> existente = repository.findById(lancamento.getId());
+		if (!existente.isPresent() && Shards.atual() != null) {
+			// com sharding o lancamento so nao e encontrado se mudou para um usuario de outro shard
+			throw new RegraNegocioException("O lançamento só pode ser transferido para um usuário do mesmo shard.");
+		}
+		Optional<Lancamento> anterior = existente.map(LancamentoServiceImpl::copiarSaldo);
+		if (lancamento.getVersao() == null) {
+			// sem versao informada o merge confere contra a versao lida agora
+			existente.ifPresent(atual -> lancamento.setVersao(atual.getVersao()));
+		}
+
+		Lancamento atualizado = repository.save(lancamento);
+		if (anterior.isPresent()) {
+			saldoService.registrarAlteracao(anterior.get(), atualizado);
+			publicarAlteracao(Arrays.asList(anterior.get(), atualizado));
+		} else {
+			saldoService.registrarInclusao(atualizado);
+			publicarAlteracao(Collections.singletonList(atualizado));
+		}
+		return atualizado;
+	}
+
+	/**
+	 * Aplica ao lançamento gerenciado apenas os campos preenchidos em
+	 * {@code alteracoes}, validando só esses campos. Com {@code @DynamicUpdate}
+	 * o UPDATE grava apenas as colunas alteradas, e o {@code @Version} faz o
+	 * UPDATE falhar se outra transação alterou o lançamento depois da leitura.
+	 */
+	@Override
+	@Transactional
+	public Lancamento atualizarParcialmente(@ChaveShard Lancamento lancamento, Lancamento alteracoes) {
+		Objects.requireNonNull(lancamento.getId());
+		Lancamento anterior = copiarSaldo(lancamento);
+
+		// valida tudo antes de tocar na entidade gerenciada
+		if (alteracoes.getDescricao() != null) {
+			validarDescricao(alteracoes.getDescricao());
+		}
+		if (alteracoes.getMes() != null) {
+			validarMes(alteracoes.getMes());
+		}
+		if (alteracoes.getAno() != null) {
+			validarAno(alteracoes.getAno());
+			validarAnoAberto(alteracoes.getAno());
+		}
+		if (alteracoes.getUsuario() != null) {
+			validarUsuario(alteracoes.getUsuario());
+		}
+		if (alteracoes.getValor() != null) {
+			validarValor(alteracoes.getValor());
+		}
+
+		Optional.ofNullable(alteracoes.getDescricao()).ifPresent(lancamento::setDescricao);
+		Optional.ofNullable(alteracoes.getMes()).ifPresent(lancamento::setMes);
+		Optional.ofNullable(alteracoes.getAno()).ifPresent(lancamento::setAno);
+		Optional.ofNullable(alteracoes.getUsuario()).ifPresent(lancamento::setUsuario);
+		Optional.ofNullable(alteracoes.getValor()).ifPresent(lancamento::setValor);
+		Optional.ofNullable(alteracoes.getTipo()).ifPresent(lancamento::setTipo);
+		Optional.ofNullable(alteracoes.getStatus()).ifPresent(lancamento::setStatus);
+
+		Lancamento atualizado = repository.save(lancamento);
+		// mesmo sem mudar o saldo, incrementa a versao dos lancamentos do usuario
+		saldoService.registrarAlteracao(anterior, atualizado);
+		publicarAlteracao(Arrays.asList(anterior, atualizado));
+		return atualizado;
 	}
 
 	@Override
 	@Transactional
-	public void deletar(Lancamento lancamento) {
+	public void deletar(@ChaveShard Lancamento lancamento) {
 		Objects.requireNonNull(lancamento.getId());
 		repository.delete(lancamento);
+		saldoService.registrarExclusao(lancamento);
+		publicarAlteracao(Collections.singletonList(lancamento));
 	}
 
 	@Override
 	@Transactional(readOnly = true)
-	public List<Lancamento> buscar(Lancamento lancamentoFiltro) {
-		
-		Example example = Example.of(lancamentoFiltro, ExampleMatcher.matching()
-				.withIgnoreCase()
-				.withStringMatcher(StringMatcher.CONTAINING)); 
-		
-		
-		return repository.findAll(example);
+	public List<LancamentoResumo> buscar(@ChaveShard Lancamento lancamentoFiltro) {
+		return repository.buscar(lancamentoFiltro, 0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<LancamentoResumo> buscar(@ChaveShard Lancamento lancamentoFiltro, Lancamento cursor, int limite) {
+		if (limite < 1 || limite > LIMITE_MAXIMO) {
+			throw new RegraNegocioException("Informe um limite entre 1 e " + LIMITE_MAXIMO + ".");
+		}
+		return repository.buscarAposCursor(lancamentoFiltro, cursor, limite);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Page<LancamentoResumo> buscar(@ChaveShard Lancamento lancamentoFiltro, Pageable pageable) {
+		Pageable pagina = PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), LIMITE_MAXIMO));
+
+		List<LancamentoResumo> conteudo = repository.buscar(lancamentoFiltro, (int) pagina.getOffset(), pagina.getPageSize());
+
+		return new PageImpl<>(conteudo, pagina, repository.contar(lancamentoFiltro));
 	}
 
 	@Override
-	public void atualizarStatus(Lancamento lancamento, StatusLancamento status) {
+	@Transactional
+	public void atualizarStatus(@ChaveShard Lancamento lancamento, StatusLancamento status) {
 		lancamento.setStatus(status);
 		atualizar(lancamento);		
 	}
 
+	/**
+	 * Altera o status de todos os lançamentos do usuário que atendem ao filtro
+	 * com um único UPDATE. Status não entra no saldo, então só a versão dos
+	 * lançamentos do usuário é incrementada e os caches são avisados.
+	 */
+	@Override
+	@Transactional
+	public int atualizarStatus(@ChaveShard Lancamento filtro, StatusLancamento statusAtual, StatusLancamento novoStatus) {
+		Objects.requireNonNull(novoStatus);
+		if (filtro.getUsuario() == null || filtro.getUsuario().getId() == null) {
+			throw new RegraNegocioException("Por favor, informe um Usuário válido");
+		}
+
+		Long idUsuario = filtro.getUsuario().getId();
+		int atualizados = repository.atualizarStatusPorFiltro(idUsuario, filtro.getAno(), filtro.getMes(),
+				filtro.getTipo(), statusAtual, novoStatus);
+		if (atualizados > 0) {
+			saldoService.incrementarVersao(Collections.singleton(idUsuario));
+			eventos.publishEvent(new LancamentosAlteradosEvent(Collections.singleton(idUsuario)));
+		}
+		return atualizados;
+	}
+
+	/**
+	 * Altera o status dos lançamentos informados. Os ids são enviados em blocos
+	 * para respeitar o limite de parâmetros por comando do banco, todos na mesma
+	 * transação.
+	 */
+	@Override
+	@Transactional
+	@EmCadaShard
+	public int atualizarStatus(List<Long> ids, @ChaveShard Long idUsuario, StatusLancamento novoStatus) {
+		Objects.requireNonNull(novoStatus);
+		if (ids.size() > LIMITE_IDS_EM_LOTE) {
+			throw new RegraNegocioException("Informe no máximo " + LIMITE_IDS_EM_LOTE + " lançamentos por vez.");
+		}
+
+		Set<Long> usuarios = new HashSet<>();
+		int atualizados = 0;
+		for (int inicio = 0; inicio < ids.size(); inicio += IDS_POR_COMANDO) {
+			List<Long> bloco = ids.subList(inicio, Math.min(inicio + IDS_POR_COMANDO, ids.size()));
+			if (idUsuario != null) {
+				atualizados += repository.atualizarStatusDoUsuario(bloco, idUsuario, novoStatus);
+			} else {
+				usuarios.addAll(repository.obterUsuariosDosLancamentos(bloco));
+				atualizados += repository.atualizarStatus(bloco, novoStatus);
+			}
+		}
+
+		if (idUsuario != null) {
+			usuarios.add(idUsuario);
+		}
+		usuarios.remove(null);
+		if (atualizados > 0 && !usuarios.isEmpty()) {
+			saldoService.incrementarVersao(usuarios);
+			eventos.publishEvent(new LancamentosAlteradosEvent(usuarios));
+		}
+		return atualizados;
+	}
+
 	@Override
 	public void validar(Lancamento lancamento) {
+		validarDescricao(lancamento.getDescricao());
+		validarMes(lancamento.getMes());
+		validarAno(lancamento.getAno());
+		validarAnoAberto(lancamento.getAno());
+		validarUsuario(lancamento.getUsuario());
+		validarValor(lancamento.getValor());
 		
-		if(lancamento.getDescricao() == null || lancamento.getDescricao().trim().equals("")) {
-			throw new RegraNegocioException("Infelizmente não entendemos a sua descrição. Informe uma descrição válida.");
+		if(lancamento.getTipo() == null) {
+			throw new RegraNegocioException("Por favor, informe um Tipo de Lancamento");
 		}
 		
-		if(lancamento.getMes() == null || lancamento.getMes() < 1 || lancamento.getMes() > 12) {
+	}
+
+	private static void validarDescricao(String descricao) {
+		if(descricao == null || descricao.trim().equals("")) {
+			throw new RegraNegocioException("Infelizmente não entendemos a sua descrição. Informe uma descrição válida.");
+		}
+	}
+
+	private static void validarMes(Integer mes) {
+		if(mes == null || mes < 1 || mes > 12) {
 			throw new RegraNegocioException("Você informou um Mês inválido. Por favor, informe um Mês válido");
 		}
-		
-		if(lancamento.getAno() == null || lancamento.getAno().toString().length() != 4) {
+	}
+
+	private static void validarAno(Integer ano) {
+		if(ano == null || ano.toString().length() != 4) {
 			throw new RegraNegocioException("Você informou um Ano inválido. Por favor, informe um Ano válido");
 		}
-		
-		if(lancamento.getUsuario() == null || lancamento.getUsuario().getId() == null) {
+	}
+
+	/**
+	 * A partição de um ano arquivado saiu da tabela de lançamentos e o saldo
+	 * dele está consolidado, então o ano não recebe mais lançamentos.
+	 */
+	private void validarAnoAberto(Integer ano) {
+		if (particionamentoService.arquivado(ano)) {
+			throw new RegraNegocioException("O ano " + ano + " foi arquivado e não aceita mais lançamentos.");
+		}
+	}
+
+	private static void validarUsuario(Usuario usuario) {
+		if(usuario == null || usuario.getId() == null) {
 			throw new RegraNegocioException("Por favor, informe um Usuário válido");
 		}
-		
-		if(lancamento.getValor() == null ||  lancamento.getValor().compareTo(BigDecimal.ZERO) < 1) {
+	}
+
+	private static void validarValor(BigDecimal valor) {
+		if(valor == null || valor.compareTo(BigDecimal.ZERO) < 1) {
 			throw new RegraNegocioException("Você informou um Valor inválido. Por favor, informe um Valor válido");
 		}
-		
-		if(lancamento.getTipo() == null) {
-			throw new RegraNegocioException("Por favor, informe um Tipo de Lancamento");
-		}
-		
 	}
 
 	@Override
+	@EmCadaShard
 	public Optional<Lancamento> obterPorId(Long id) {
 		return repository.findById(id);
 	}
 
 	@Override
 	@Transactional(readOnly = true)
-	public BigDecimal obterSaldoPorUsuario(Long id) {
-		BigDecimal receitas = repository.obterSaldoPorTipoLancamentoEUsuario(id, Tipo_lancamento.RECEITA);
-		BigDecimal despesas = repository.obterSaldoPorTipoLancamentoEUsuario(id, Tipo_lancamento.DESPESA);
-		
-		if(receitas == null) {
-			receitas = BigDecimal.ZERO;
+	public BigDecimal obterSaldoPorUsuario(@ChaveShard Long id) {
+		return saldoService.obterSaldo(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public SaldoUsuario obterSituacaoPorUsuario(@ChaveShard Long id) {
+		return saldoService.obterSituacao(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public SaldoUsuario obterVersaoPorUsuario(@ChaveShard Long id) {
+		return saldoService.obterVersao(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public void exportar(@ChaveShard Long idUsuario, Consumer<LancamentoResumo> consumidor) {
+		try (Stream<LancamentoResumo> lancamentos = repository.percorrerPorUsuario(idUsuario, tamanhoLoteExportacao)) {
+			lancamentos.forEach(consumidor);
 		}
-		
-		if(despesas == null) {
-			despesas = BigDecimal.ZERO;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<TotalLancamentos> resumir(@ChaveShard Long idUsuario, Integer anoInicial, Integer anoFinal, boolean porMes) {
+		if (anoInicial == null || anoFinal == null || anoInicial > anoFinal
+				|| anoFinal - anoInicial >= INTERVALO_MAXIMO_ANOS) {
+			throw new RegraNegocioException(
+					"Informe um intervalo de anos válido, de no máximo " + INTERVALO_MAXIMO_ANOS + " anos.");
 		}
-		
-		return receitas.subtract(despesas);
+		return porMes
+				? repository.obterTotaisMensais(idUsuario, anoInicial, anoFinal)
+				: repository.obterTotaisAnuais(idUsuario, anoInicial, anoFinal);
 	}
 
-}
+	private static Lancamento copiarSaldo(Lancamento lancamento) {
+		return Lancamento.builder()
+				.valor(lancamento.getValor())
+				.tipo(lancamento.getTipo())
+				.usuario(lancamento.getUsuario())
+				.ano(lancamento.getAno())
+				.mes(lancamento.getMes())
+				.build();
+	}
 
+	/**
+	 * Os saldos em cache dos usuários afetados são descartados pelo listener
+	 * somente após o commit desta transação.
+	 */
+	private void publicarAlteracao(List<Lancamento> lancamentos) {
+		Set<Long> usuarios = lancamentos.stream()
+				.filter(lancamento -> lancamento.getUsuario() != null && lancamento.getUsuario().getId() != null)
+				.map(lancamento -> lancamento.getUsuario().getId())
+				.collect(Collectors.toSet());
+		if (!usuarios.isEmpty()) {
+			eventos.publishEvent(new LancamentosAlteradosEvent(usuarios));
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.vsilva.minhasFinancas.service.impl;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vsilva.minhasFinancas.model.shard.EmCadaShard;
+import com.vsilva.minhasFinancas.service.ParticionamentoService;
+import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Partições anuais de {@code financas.lancamento}, no PostgreSQL. As funções
+ * {@code criar_particao_lancamento} e {@code arquivar_lancamentos} da migração
+ * V8 fazem o trabalho; aqui ficam o job que cria as partições dos próximos
+ * anos e tira da partição padrão os anos que caíram nela, e o arquivamento.
+ * <p>
+ * Um ano arquivado não aceita mais lançamentos: a partição dele saiu da
+ * tabela e o saldo calculado usa os totais guardados em
+ * {@code saldo_arquivado}. A consulta aos anos arquivados fica em cache por
+ * {@code cache-ms}. No H2 não há partições, e nada é arquivado.
+ */
+@Slf4j
+@Service
+public class ParticionamentoServiceImpl implements ParticionamentoService {
+
+	private final JdbcTemplate jdbc;
+	private final boolean habilitado;
+	private final int anosAdiante;
+	private final Cache<Integer, Boolean> arquivados;
+
+	public ParticionamentoServiceImpl(DataSource dataSource,
+			@Value("${minhasfinancas.particionamento.habilitado:false}") boolean habilitado,
+			@Value("${minhasfinancas.particionamento.anos-adiante:1}") int anosAdiante,
+			@Value("${minhasfinancas.particionamento.cache-ms:60000}") long cacheMs) {
+		this.jdbc = new JdbcTemplate(dataSource);
+		this.habilitado = habilitado;
+		this.anosAdiante = anosAdiante;
+		this.arquivados = Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(cacheMs)).build();
+	}
+
+	/**
+	 * @return quantidade de partições criadas
+	 */
+	@Override
+	@EmCadaShard
+	@Scheduled(cron = "${minhasfinancas.particionamento.cron:0 30 2 * * *}")
+	public int criarParticoes() {
+		if (!habilitado) {
+			return 0;
+		}
+
+		int atual = Year.now().getValue();
+		Set<Integer> anos = new TreeSet<>(
+				jdbc.queryForList("select distinct ano from financas.lancamento_padrao", Integer.class));
+		for (int ano = atual; ano <= atual + anosAdiante; ano++) {
+			anos.add(ano);
+		}
+
+		int criadas = 0;
+		for (Integer ano : anos) {
+			if (Boolean.TRUE.equals(jdbc.queryForObject("select financas.criar_particao_lancamento(?)", Boolean.class,
+					ano))) {
+				log.info("Particao de lancamentos criada para o ano {}", ano);
+				criadas++;
+			}
+		}
+		return criadas;
+	}
+
+	/**
+	 * @return quantidade de lançamentos arquivados
+	 */
+	@Override
+	@EmCadaShard
+	public int arquivar(int ano, String tablespace) {
+		if (!habilitado) {
+			throw new RegraNegocioException("O arquivamento exige o particionamento do PostgreSQL.");
+		}
+		if (ano >= Year.now().getValue()) {
+			throw new RegraNegocioException("Só anos anteriores ao atual podem ser arquivados.");
+		}
+
+		Integer arquivadosNoAno = jdbc.queryForObject("select financas.arquivar_lancamentos(?, ?)", Integer.class,
+				ano, tablespace);
+		arquivados.invalidate(ano);
+		log.info("Ano {} arquivado com {} lancamentos", ano, arquivadosNoAno);
+		return arquivadosNoAno;
+	}
+
+	@Override
+	public boolean arquivado(Integer ano) {
+		return ano != null && arquivados.get(ano, a -> jdbc.queryForObject(
+				"select count(*) from financas.ano_arquivado where ano = ?", Integer.class, a) > 0);
+	}
+
+	@Override
+	public List<Integer> obterAnosArquivados() {
+		return jdbc.queryForList("select ano from financas.ano_arquivado order by ano", Integer.class);
+	}
+}
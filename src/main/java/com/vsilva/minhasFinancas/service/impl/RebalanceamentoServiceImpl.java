@@ -0,0 +1,247 @@
+package com.vsilva.minhasFinancas.service.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vsilva.minhasFinancas.model.entity.FechamentoSaldo;
+import com.vsilva.minhasFinancas.model.shard.DiretorioShards;
+import com.vsilva.minhasFinancas.service.RebalanceamentoService;
+import com.vsilva.minhasFinancas.service.event.LancamentosAlteradosEvent;
+import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Move usuários entre shards com a aplicação no ar. Os lançamentos, o saldo e
+ * os totais mensais e dos anos arquivados são copiados para o destino numa transação, o
+ * diretório passa a apontar para o destino e só então os dados saem da origem. Durante a cópia o
+ * usuário fica com a trava de escrita, e as chamadas para ele esperam.
+ * <p>
+ * Uma movimentação interrompida pode ser repetida: a cópia começa apagando
+ * do destino o que uma tentativa anterior deixou lá.
+ * <p>
+ * O fechamento dos totais mensais é de cada shard. No destino ficam só os
+ * totais até o fechamento dele, e se o destino fechou meses que a origem não
+ * consolidou, o usuário fica com mês alterado a partir deles.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "minhasfinancas.shards.habilitados", havingValue = "true")
+public class RebalanceamentoServiceImpl implements RebalanceamentoService {
+
+	private final DiretorioShards diretorio;
+	private final ApplicationEventPublisher eventos;
+	private final int tamanhoLote;
+
+	public RebalanceamentoServiceImpl(DiretorioShards diretorio, ApplicationEventPublisher eventos,
+			@Value("${minhasfinancas.shards.rebalanceamento.tamanho-lote:1000}") int tamanhoLote) {
+		this.diretorio = diretorio;
+		this.eventos = eventos;
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	/**
+	 * Usuários em cada shard, segundo o diretório.
+	 */
+	@Override
+	public Map<Integer, Long> contarUsuarios() {
+		Map<Integer, Long> contagem = new TreeMap<>();
+		for (int shard = 0; shard < diretorio.getQuantidade(); shard++) {
+			contagem.put(shard, 0L);
+		}
+		diretorio.jdbc(0).query("select coalesce(s.shard, 0) as shard, count(*) as usuarios from financas.usuario u "
+				+ "left join financas.shard_usuario s on s.id_usuario = u.id group by coalesce(s.shard, 0)",
+				linha -> {
+					contagem.put(linha.getInt("shard"), linha.getLong("usuarios"));
+				});
+		return contagem;
+	}
+
+	/**
+	 * Até {@code limite} usuários que não estão no shard indicado pelo anel,
+	 * com o shard de destino. Depois de incluir um shard, são os que devem ser
+	 * movidos para ele.
+	 */
+	@Override
+	public Map<Long, Integer> planejar(int limite) {
+		Map<Long, Integer> plano = new LinkedHashMap<>();
+		diretorio.jdbc(0).query("select u.id, coalesce(s.shard, 0) as shard from financas.usuario u "
+				+ "left join financas.shard_usuario s on s.id_usuario = u.id order by u.id", linha -> {
+					int destino = diretorio.getAnel().shardDo(linha.getLong("id"));
+					if (plano.size() < limite && destino != linha.getInt("shard")) {
+						plano.put(linha.getLong("id"), destino);
+					}
+				});
+		return plano;
+	}
+
+	/**
+	 * @return quantidade de lançamentos movidos
+	 */
+	@Override
+	public int mover(Long idUsuario, int destino) {
+		if (destino < 0 || destino >= diretorio.getQuantidade()) {
+			throw new RegraNegocioException("Shard inexistente: " + destino);
+		}
+		if (diretorio.jdbc(0).queryForObject("select count(*) from financas.usuario where id = ?", Integer.class,
+				idUsuario) == 0) {
+			throw new RegraNegocioException("Usuário não encontrado: " + idUsuario);
+		}
+
+		Lock escrita = diretorio.trava(idUsuario).writeLock();
+		escrita.lock();
+		try {
+			int origem = diretorio.shardDo(idUsuario);
+			// tambem repara um usuario que ficou sem copia no proprio shard
+			diretorio.copiarUsuario(idUsuario, destino);
+			if (origem == destino) {
+				return 0;
+			}
+
+			// a leitura na origem tambem fica numa transacao: fora dela o driver do
+			// PostgreSQL ignora o fetch size e traz o resultado inteiro
+			int movidos = transacao(origem).execute(leitura -> transacao(destino).execute(status -> {
+				JdbcTemplate de = diretorio.jdbc(origem);
+				JdbcTemplate para = diretorio.jdbc(destino);
+				copiar(de, para, "saldo_usuario", idUsuario);
+				copiar(de, para, "saldo_arquivado", idUsuario);
+				copiar(de, para, "saldo_mensal", idUsuario);
+				ajustarFechamento(idUsuario, fechamento(de), fechamento(para), para);
+				return copiar(de, para, "lancamento", idUsuario);
+			}));
+			diretorio.registrar(idUsuario, destino);
+			transacao(origem).execute(status -> remover(diretorio.jdbc(origem), idUsuario, origem != 0));
+
+			eventos.publishEvent(new LancamentosAlteradosEvent(Collections.singleton(idUsuario)));
+			log.info("Usuario {} movido do shard {} para o shard {} com {} lancamentos", idUsuario, origem, destino,
+					movidos);
+			return movidos;
+		} finally {
+			escrita.unlock();
+		}
+	}
+
+	private TransactionTemplate transacao(int shard) {
+		return new TransactionTemplate(new DataSourceTransactionManager(diretorio.jdbc(shard).getDataSource()));
+	}
+
+	/**
+	 * Copia as linhas do usuário com todas as colunas, para que a cópia não
+	 * precise mudar quando as tabelas ganharem colunas. As linhas vêm da
+	 * origem por um cursor e vão para o destino em lotes de
+	 * {@code tamanhoLote}, sem carregar o histórico inteiro na memória.
+	 */
+	private int copiar(JdbcTemplate de, JdbcTemplate para, String tabela, Long idUsuario) {
+		para.update("delete from financas." + tabela + " where id_usuario = ?", idUsuario);
+
+		Copia copia = new Copia(para, tabela);
+		de.query(conexao -> {
+			PreparedStatement consulta = conexao.prepareStatement(
+					"select * from financas." + tabela + " where id_usuario = ?");
+			consulta.setFetchSize(tamanhoLote);
+			consulta.setLong(1, idUsuario);
+			return consulta;
+		}, copia);
+		copia.gravar();
+		return copia.copiadas;
+	}
+
+	private class Copia implements RowCallbackHandler {
+
+		private final JdbcTemplate para;
+		private final String tabela;
+		private final List<Object[]> lote = new ArrayList<>(tamanhoLote);
+		private String insert;
+		private int colunas;
+		private int copiadas;
+
+		Copia(JdbcTemplate para, String tabela) {
+			this.para = para;
+			this.tabela = tabela;
+		}
+
+		@Override
+		public void processRow(ResultSet linha) throws SQLException {
+			if (insert == null) {
+				ResultSetMetaData metadados = linha.getMetaData();
+				colunas = metadados.getColumnCount();
+				List<String> nomes = new ArrayList<>(colunas);
+				List<String> parametros = new ArrayList<>(colunas);
+				for (int i = 1; i <= colunas; i++) {
+					nomes.add(JdbcUtils.lookupColumnName(metadados, i));
+					parametros.add("?");
+				}
+				insert = "insert into financas." + tabela + " (" + String.join(", ", nomes) + ") values ("
+						+ String.join(", ", parametros) + ")";
+			}
+
+			Object[] valores = new Object[colunas];
+			for (int i = 1; i <= colunas; i++) {
+				valores[i - 1] = JdbcUtils.getResultSetValue(linha, i);
+			}
+			lote.add(valores);
+			if (lote.size() == tamanhoLote) {
+				gravar();
+			}
+		}
+
+		void gravar() {
+			if (lote.isEmpty()) {
+				return;
+			}
+			para.batchUpdate(insert, lote);
+			copiadas += lote.size();
+			lote.clear();
+		}
+	}
+
+	/**
+	 * Último mês fechado do shard, como {@code ano * 12 + mes - 1}, ou -1.
+	 */
+	private static int fechamento(JdbcTemplate shard) {
+		List<Integer> fechado = shard.queryForList(
+				"select ano * 12 + mes - 1 from financas.fechamento_saldo where id = ?", Integer.class,
+				FechamentoSaldo.ID);
+		return fechado.isEmpty() ? -1 : fechado.get(0);
+	}
+
+	private static void ajustarFechamento(Long idUsuario, int origem, int destino, JdbcTemplate para) {
+		para.update("delete from financas.saldo_mensal where id_usuario = ? and ano * 12 + mes - 1 > ?", idUsuario,
+				destino);
+		if (destino > origem) {
+			para.update("update financas.saldo_usuario set versao_mes_alterado = versao_mes_alterado + 1, "
+					+ "mes_alterado = case when mes_alterado is null or mes_alterado > ? then ? else mes_alterado end "
+					+ "where id_usuario = ?", origem + 1, origem + 1, idUsuario);
+		}
+	}
+
+	private static int remover(JdbcTemplate origem, Long idUsuario, boolean removerUsuario) {
+		int removidos = origem.update("delete from financas.lancamento where id_usuario = ?", idUsuario);
+		origem.update("delete from financas.saldo_usuario where id_usuario = ?", idUsuario);
+		origem.update("delete from financas.saldo_arquivado where id_usuario = ?", idUsuario);
+		origem.update("delete from financas.saldo_mensal where id_usuario = ?", idUsuario);
+		if (removerUsuario) {
+			origem.update("delete from financas.usuario where id = ?", idUsuario);
+		}
+		return removidos;
+	}
+}
@@ -0,0 +1,497 @@
+package com.vsilva.minhasFinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.vsilva.minhasFinancas.model.entity.FechamentoSaldo;
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.repository.FechamentoSaldoRepository;
+import com.vsilva.minhasFinancas.model.repository.LancamentoRepository;
+import com.vsilva.minhasFinancas.model.repository.SaldoArquivadoRepository;
+import com.vsilva.minhasFinancas.model.repository.SaldoMensalRepository;
+import com.vsilva.minhasFinancas.model.repository.SaldoUsuarioRepository;
+import com.vsilva.minhasFinancas.model.shard.ChaveShard;
+import com.vsilva.minhasFinancas.model.shard.EmCadaShard;
+import com.vsilva.minhasFinancas.service.SaldoService;
+import com.vsilva.minhasFinancas.service.event.LancamentosAlteradosEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Saldo dos usuários, mantido por deltas em {@code saldo_usuario}. Quando é
+ * preciso calculá-lo, os meses fechados vêm dos totais de
+ * {@code saldo_mensal}, consolidados por um job, e só os meses seguintes são
+ * somados dos lançamentos: os abertos e os fechados a partir do mês alterado
+ * do usuário, se houve escrita em mês encerrado depois da última consolidação.
+ * Essa marcação vai no mesmo UPDATE do saldo, sem custo a mais na escrita.
+ */
+@Slf4j
+@Service
+public class SaldoServiceImpl implements SaldoService {
+
+	public static final String CACHE_SALDOS = "saldos";
+
+	private SaldoUsuarioRepository repository;
+	private LancamentoRepository lancamentoRepository;
+	private SaldoArquivadoRepository arquivadoRepository;
+	private SaldoMensalRepository mensalRepository;
+	private FechamentoSaldoRepository fechamentoRepository;
+	private ApplicationEventPublisher eventos;
+	private Cache cache;
+	private int tamanhoLoteConsolidacao;
+
+	/**
+	 * Incrementada a cada invalidação. Uma leitura só vai para o cache se
+	 * nenhuma invalidação ocorreu desde que começou, o que impede que um saldo
+	 * lido antes de um commit seja gravado no cache depois dele.
+	 */
+	private final AtomicLong geracao = new AtomicLong();
+
+	public SaldoServiceImpl(SaldoUsuarioRepository repository, LancamentoRepository lancamentoRepository,
+			SaldoArquivadoRepository arquivadoRepository, SaldoMensalRepository mensalRepository,
+			FechamentoSaldoRepository fechamentoRepository, ApplicationEventPublisher eventos,
+			CacheManager cacheManager,
+			@Value("${minhasfinancas.saldo.consolidacao.tamanho-lote:1000}") int tamanhoLoteConsolidacao) {
+		this.repository = repository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.arquivadoRepository = arquivadoRepository;
+		this.mensalRepository = mensalRepository;
+		this.fechamentoRepository = fechamentoRepository;
+		this.eventos = eventos;
+		this.cache = cacheManager.getCache(CACHE_SALDOS);
+		this.tamanhoLoteConsolidacao = tamanhoLoteConsolidacao;
+	}
+
+	@Override
+	@Transactional
+	public void registrarInclusao(Lancamento lancamento) {
+		aplicarDelta(idUsuario(lancamento), contribuicao(lancamento), mesEncerrado(lancamento));
+	}
+
+	@Override
+	@Transactional
+	public void registrarInclusoes(List<Lancamento> lancamentos) {
+		Map<Long, BigDecimal> deltas = new HashMap<>();
+		Map<Long, Integer> mesesEncerrados = new HashMap<>();
+		for (Lancamento lancamento : lancamentos) {
+			deltas.merge(idUsuario(lancamento), contribuicao(lancamento), BigDecimal::add);
+			Integer mes = mesEncerrado(lancamento);
+			if (mes != null) {
+				mesesEncerrados.merge(idUsuario(lancamento), mes, Math::min);
+			}
+		}
+		deltas.forEach((idUsuario, delta) -> aplicarDelta(idUsuario, delta, mesesEncerrados.get(idUsuario)));
+	}
+
+	@Override
+	@Transactional
+	public void registrarExclusao(Lancamento lancamento) {
+		aplicarDelta(idUsuario(lancamento), contribuicao(lancamento).negate(), mesEncerrado(lancamento));
+	}
+
+	@Override
+	@Transactional
+	public void registrarAlteracao(Lancamento anterior, Lancamento atual) {
+		Long usuarioAnterior = idUsuario(anterior);
+		Long usuarioAtual = idUsuario(atual);
+
+		if (Objects.equals(usuarioAnterior, usuarioAtual)) {
+			BigDecimal delta = contribuicao(atual).subtract(contribuicao(anterior));
+			// uma troca de status nao muda os totais do mes
+			boolean mesmoMes = Objects.equals(anterior.getAno(), atual.getAno())
+					&& Objects.equals(anterior.getMes(), atual.getMes());
+			Integer mes = mesmoMes && delta.signum() == 0 ? null
+					: menor(mesEncerrado(anterior), mesEncerrado(atual));
+			aplicarDelta(usuarioAtual, delta, mes);
+		} else {
+			registrarExclusao(anterior);
+			registrarInclusao(atual);
+		}
+	}
+
+	/**
+	 * Marca uma alteração nos lançamentos dos usuários que não muda o saldo,
+	 * como uma troca de status, para que a versão usada nas respostas
+	 * condicionais mude também.
+	 */
+	@Override
+	@Transactional
+	public void incrementarVersao(Collection<Long> usuarios) {
+		Set<Long> pendentes = new HashSet<>(usuarios);
+		pendentes.remove(null);
+		if (pendentes.isEmpty()) {
+			return;
+		}
+
+		if (repository.incrementarVersao(pendentes) < pendentes.size()) {
+			// usuarios ainda sem linha de saldo ganham uma, ja na versao 1
+			repository.findAllById(pendentes).forEach(saldo -> pendentes.remove(saldo.getIdUsuario()));
+			pendentes.forEach(idUsuario -> repository.inserirOuSomar(idUsuario, calcularSaldo(idUsuario, null),
+					BigDecimal.ZERO, null));
+		}
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public BigDecimal obterSaldo(@ChaveShard Long idUsuario) {
+		return obterSituacao(idUsuario).getSaldo();
+	}
+
+	/**
+	 * Saldo e versão dos lançamentos do usuário. Um usuário sem linha de saldo
+	 * fica na versão 0 até a primeira escrita.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public SaldoUsuario obterSituacao(@ChaveShard Long idUsuario) {
+		return obter(idUsuario, true);
+	}
+
+	/**
+	 * Como {@link #obterSituacao(Long)}, mas sem calcular o saldo de um usuário
+	 * sem linha de saldo: só lê {@code saldo_usuario}, nunca os lançamentos.
+	 * Nesse caso o saldo retornado é nulo.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public SaldoUsuario obterVersao(@ChaveShard Long idUsuario) {
+		return obter(idUsuario, false);
+	}
+
+	private SaldoUsuario obter(Long idUsuario, boolean calcularAusente) {
+		// dentro de uma transacao de escrita o cache pode nao refletir o que ela
+		// ja alterou, entao so transacoes somente leitura usam o cache
+		boolean usarCache = cache != null && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+		if (usarCache) {
+			ValueWrapper emCache = cache.get(idUsuario);
+			if (emCache != null) {
+				return (SaldoUsuario) emCache.get();
+			}
+		}
+
+		long geracaoLida = geracao.get();
+		Optional<SaldoUsuario> registrado = repository.findById(idUsuario);
+		if (!registrado.isPresent() && !calcularAusente) {
+			return SaldoUsuario.builder().idUsuario(idUsuario).versao(0L).build();
+		}
+
+		SaldoUsuario situacao = registrado.orElseGet(() -> SaldoUsuario.builder()
+				.idUsuario(idUsuario)
+				.saldo(calcularSaldo(idUsuario, null))
+				.versao(0L)
+				.build());
+		if (usarCache) {
+			armazenar(idUsuario, situacao, geracaoLida);
+		}
+		return situacao;
+	}
+
+	/**
+	 * Descarta os saldos em cache dos usuários afetados, somente depois que a
+	 * transação que alterou os lançamentos foi confirmada.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamentos(LancamentosAlteradosEvent evento) {
+		invalidar(evento.getUsuarios());
+	}
+
+	/**
+	 * Soma os totais mensais consolidados, os lançamentos dos meses seguintes
+	 * e os totais dos anos arquivados. Antes do primeiro fechamento, soma
+	 * todos os lançamentos.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public BigDecimal calcularSaldo(@ChaveShard Long idUsuario) {
+		return calcularSaldo(idUsuario, repository.findById(idUsuario).map(SaldoUsuario::getMesAlterado).orElse(null));
+	}
+
+	/**
+	 * Fecha os meses encerrados desde o último fechamento, consolidando os
+	 * totais de todos os usuários, e reconsolida, a partir do mês alterado,
+	 * até {@code tamanho-lote} usuários com escritas em meses encerrados. Com
+	 * sharding, roda em cada shard.
+	 * <p>
+	 * A versão do mês alterado é lida antes da soma, e o mês só é liberado se
+	 * ela não mudou: uma escrita concorrente deixa o usuário para a próxima
+	 * execução em vez de liberar totais que não a incluem.
+	 *
+	 * @return quantidade de totais mensais gravados
+	 */
+	@Override
+	@Transactional
+	@EmCadaShard
+	@Scheduled(cron = "${minhasfinancas.saldo.consolidacao.cron:0 0 2 * * *}")
+	public int consolidarMeses() {
+		YearMonth encerrado = YearMonth.now().minusMonths(1);
+		FechamentoSaldo fechamento = fechamentoRepository.findById(FechamentoSaldo.ID)
+				.orElseGet(() -> FechamentoSaldo.builder().id(FechamentoSaldo.ID).ano(0).mes(12).build());
+		YearMonth fechado = YearMonth.of(fechamento.getAno(), fechamento.getMes());
+
+		int consolidados = 0;
+		if (fechado.isBefore(encerrado)) {
+			YearMonth inicio = fechado.plusMonths(1);
+			consolidados += mensalRepository.consolidar(inicio.getYear(), inicio.getMonthValue(),
+					encerrado.getYear(), encerrado.getMonthValue());
+			fechamento.setAno(encerrado.getYear());
+			fechamento.setMes(encerrado.getMonthValue());
+			fechamento.setFechadoEm(Instant.now());
+			fechamentoRepository.save(fechamento);
+			fechado = encerrado;
+			log.info("Meses fechados ate {}: {} totais mensais", fechado, consolidados);
+		}
+
+		List<SaldoUsuario> alterados = repository.obterComMesAlterado(PageRequest.of(0, tamanhoLoteConsolidacao));
+		int liberados = 0;
+		for (SaldoUsuario alterado : alterados) {
+			YearMonth inicio = mes(alterado.getMesAlterado());
+			mensalRepository.removerAPartirDoMes(alterado.getIdUsuario(), inicio.getYear(), inicio.getMonthValue());
+			if (!inicio.isAfter(fechado)) {
+				consolidados += mensalRepository.consolidarDoUsuario(alterado.getIdUsuario(), inicio.getYear(),
+						inicio.getMonthValue(), fechado.getYear(), fechado.getMonthValue());
+			}
+			liberados += repository.liberarMesAlterado(alterado.getIdUsuario(), alterado.getVersaoMesAlterado());
+		}
+
+		log.info("Consolidacao de saldos mensais concluida: {} totais gravados, {} de {} usuarios alterados liberados",
+				consolidados, liberados, alterados.size());
+		return consolidados;
+	}
+
+	/**
+	 * Recalcula o saldo de todos os usuários a partir dos lançamentos e corrige
+	 * as linhas que divergirem do valor mantido por deltas. Com sharding, roda
+	 * em cada shard.
+	 * <p>
+	 * A soma de todos os usuários só aponta os divergentes. Cada um é
+	 * recalculado depois de travar a linha de saldo dele, que toda escrita
+	 * atualiza: uma escrita confirmada antes da trava entra na soma, e uma que
+	 * ainda não aplicou o delta espera a trava e o aplica sobre o valor
+	 * corrigido. Um usuário sem linha ganha uma pelo upsert da primeira
+	 * escrita.
+	 *
+	 * @return quantidade de usuários com divergência
+	 */
+	@Override
+	@Transactional
+	@EmCadaShard
+	@Scheduled(cron = "${minhasfinancas.saldo.reconciliacao.cron:0 0 3 * * *}")
+	public int reconciliar() {
+		Map<Long, BigDecimal> esperados = new HashMap<>();
+		List<Object[]> totais = new ArrayList<>(lancamentoRepository.obterSaldosPorUsuarioETipoLancamento());
+		totais.addAll(arquivadoRepository.obterTotaisPorUsuarioETipo());
+		for (Object[] linha : totais) {
+			Long idUsuario = (Long) linha[0];
+			BigDecimal valor = (BigDecimal) linha[2];
+			if (linha[1] == Tipo_lancamento.DESPESA) {
+				valor = valor.negate();
+			}
+			esperados.merge(idUsuario, valor, BigDecimal::add);
+		}
+
+		// em ordem de id, para travar as linhas sempre na mesma ordem
+		Set<Long> divergentes = new TreeSet<>();
+		List<Object[]> saldos = repository.obterSaldos();
+		for (Object[] saldo : saldos) {
+			BigDecimal esperado = esperados.getOrDefault(saldo[0], BigDecimal.ZERO);
+			esperados.remove(saldo[0]);
+			if (saldo[1] == null || ((BigDecimal) saldo[1]).compareTo(esperado) != 0) {
+				divergentes.add((Long) saldo[0]);
+			}
+		}
+		int verificados = saldos.size() + esperados.size();
+
+		Set<Long> corrigidos = new HashSet<>();
+		for (Map.Entry<Long, BigDecimal> faltante : esperados.entrySet()) {
+			log.warn("Saldo ausente para o usuario {}: calculado {}", faltante.getKey(), faltante.getValue());
+			repository.inserirOuSomar(faltante.getKey(), somarLancamentos(faltante.getKey()), BigDecimal.ZERO, null);
+			corrigidos.add(faltante.getKey());
+		}
+
+		for (Long idUsuario : divergentes) {
+			SaldoUsuario saldo = repository.travar(idUsuario).get();
+			BigDecimal esperado = somarLancamentos(idUsuario);
+			if (saldo.getSaldo() == null || saldo.getSaldo().compareTo(esperado) != 0) {
+				log.warn("Saldo divergente para o usuario {}: registrado {}, calculado {}", idUsuario,
+						saldo.getSaldo(), esperado);
+				saldo.setSaldo(esperado);
+				saldo.setVersao(saldo.getVersao() + 1);
+				saldo.setAlteradoEm(Instant.now());
+				corrigidos.add(idUsuario);
+			}
+		}
+
+		if (!corrigidos.isEmpty()) {
+			eventos.publishEvent(new LancamentosAlteradosEvent(corrigidos));
+		}
+
+		log.info("Reconciliacao de saldos concluida: {} usuarios verificados, {} divergencias", verificados,
+				corrigidos.size());
+		return corrigidos.size();
+	}
+
+	/**
+	 * Saldo do usuário somando todos os lançamentos, sem os totais mensais.
+	 */
+	private BigDecimal somarLancamentos(Long idUsuario) {
+		BigDecimal receitas = lancamentoRepository.obterSaldoPorTipoLancamentoEUsuario(idUsuario, Tipo_lancamento.RECEITA);
+		BigDecimal despesas = lancamentoRepository.obterSaldoPorTipoLancamentoEUsuario(idUsuario, Tipo_lancamento.DESPESA);
+		BigDecimal receitasArquivadas = arquivadoRepository.obterTotalPorTipoEUsuario(idUsuario, Tipo_lancamento.RECEITA);
+		BigDecimal despesasArquivadas = arquivadoRepository.obterTotalPorTipoEUsuario(idUsuario, Tipo_lancamento.DESPESA);
+
+		return valor(receitas).add(valor(receitasArquivadas))
+				.subtract(valor(despesas))
+				.subtract(valor(despesasArquivadas));
+	}
+
+	/**
+	 * Guarda uma cópia: a situação lida pode ser a entidade gerenciada, que a
+	 * transação ainda pode alterar e que não deve ser compartilhada entre threads.
+	 */
+	private void armazenar(Long idUsuario, SaldoUsuario situacao, long geracaoLida) {
+		SaldoUsuario copia = copiar(situacao);
+		synchronized (geracao) {
+			if (geracao.get() == geracaoLida) {
+				cache.put(idUsuario, copia);
+			}
+		}
+	}
+
+	private static SaldoUsuario copiar(SaldoUsuario situacao) {
+		return SaldoUsuario.builder()
+				.idUsuario(situacao.getIdUsuario())
+				.saldo(situacao.getSaldo())
+				.versao(situacao.getVersao())
+				.alteradoEm(situacao.getAlteradoEm())
+				.mesAlterado(situacao.getMesAlterado())
+				.versaoMesAlterado(situacao.getVersaoMesAlterado())
+				.build();
+	}
+
+	private void invalidar(Collection<Long> usuarios) {
+		if (cache == null) {
+			return;
+		}
+		synchronized (geracao) {
+			geracao.incrementAndGet();
+			usuarios.forEach(cache::evict);
+		}
+	}
+
+	/**
+	 * Também roda com delta zero: toda escrita nos lançamentos incrementa a
+	 * versão do usuário no mesmo UPDATE do saldo.
+	 *
+	 * @param mesEncerrado mês encerrado mais antigo alterado pela escrita, ou
+	 *                     nulo se ela só alterou meses abertos
+	 */
+	private void aplicarDelta(Long idUsuario, BigDecimal delta, Integer mesEncerrado) {
+		if (idUsuario == null) {
+			return;
+		}
+
+		int atualizados = mesEncerrado == null
+				? repository.somarAoSaldo(idUsuario, delta)
+				: repository.somarAoSaldoEmMesEncerrado(idUsuario, delta, mesEncerrado);
+		if (atualizados == 0) {
+			// primeira escrita do usuario: o lancamento ja foi enviado ao banco,
+			// entao o total calculado inclui o delta. Se uma escrita simultanea
+			// criar a linha antes, o delta e somado a ela
+			repository.inserirOuSomar(idUsuario, calcularSaldo(idUsuario, mesEncerrado), delta, mesEncerrado);
+		}
+	}
+
+	/**
+	 * @param mesAlterado mês encerrado alterado do usuário; os meses a partir
+	 *                    dele são somados dos lançamentos
+	 */
+	private BigDecimal calcularSaldo(Long idUsuario, Integer mesAlterado) {
+		Optional<FechamentoSaldo> fechamento = fechamentoRepository.findById(FechamentoSaldo.ID);
+		if (!fechamento.isPresent()) {
+			return somarLancamentos(idUsuario);
+		}
+
+		BigDecimal receitasArquivadas = arquivadoRepository.obterTotalPorTipoEUsuario(idUsuario, Tipo_lancamento.RECEITA);
+		BigDecimal despesasArquivadas = arquivadoRepository.obterTotalPorTipoEUsuario(idUsuario, Tipo_lancamento.DESPESA);
+		BigDecimal arquivado = valor(receitasArquivadas).subtract(valor(despesasArquivadas));
+
+		YearMonth consolidado = YearMonth.of(fechamento.get().getAno(), fechamento.get().getMes());
+		if (mesAlterado != null && !mes(mesAlterado).isAfter(consolidado)) {
+			consolidado = mes(mesAlterado).minusMonths(1);
+		}
+
+		BigDecimal saldo = valor(mensalRepository.obterSaldoAteMes(idUsuario, consolidado.getYear(),
+				consolidado.getMonthValue()));
+		for (Object[] linha : lancamentoRepository.obterTotaisPorTipoAposMes(idUsuario, consolidado.getYear(),
+				consolidado.getMonthValue())) {
+			BigDecimal total = (BigDecimal) linha[1];
+			saldo = linha[0] == Tipo_lancamento.DESPESA ? saldo.subtract(total) : saldo.add(total);
+		}
+		return saldo.add(arquivado);
+	}
+
+	/**
+	 * O mês do lançamento como {@code ano * 12 + mes - 1}, se já encerrado.
+	 */
+	private static Integer mesEncerrado(Lancamento lancamento) {
+		if (lancamento.getAno() == null || lancamento.getMes() == null) {
+			return null;
+		}
+		YearMonth mes = YearMonth.of(lancamento.getAno(), lancamento.getMes());
+		return mes.isBefore(YearMonth.now()) ? mes.getYear() * 12 + mes.getMonthValue() - 1 : null;
+	}
+
+	private static YearMonth mes(int indice) {
+		return YearMonth.of(indice / 12, indice % 12 + 1);
+	}
+
+	private static Integer menor(Integer mes, Integer outro) {
+		if (mes == null || outro == null) {
+			return mes == null ? outro : mes;
+		}
+		return Math.min(mes, outro);
+	}
+
+	private static BigDecimal valor(BigDecimal total) {
+		return total == null ? BigDecimal.ZERO : total;
+	}
+
+	private BigDecimal contribuicao(Lancamento lancamento) {
+		if (lancamento.getValor() == null || lancamento.getTipo() == null) {
+			return BigDecimal.ZERO;
+		}
+		return lancamento.getTipo() == Tipo_lancamento.DESPESA
+				? lancamento.getValor().negate()
+				: lancamento.getValor();
+	}
+
+	private Long idUsuario(Lancamento lancamento) {
+		return lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId();
+	}
+}
@@ -0,0 +1,143 @@
+package com.vsilva.minhasFinancas.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vsilva.minhasFinancas.service.SenhaService;
+import com.vsilva.minhasFinancas.service.exception.ErroAutentiacao;
+
+/**
+ * Hash de senhas com BCrypt executado em um pool próprio e limitado, para que
+ * um pico de logins disputando CPU não ocupe as threads do Tomcat: quando o
+ * pool e a fila estão cheios a tentativa é recusada na hora.
+ * <p>
+ * Credenciais já verificadas ficam em cache por alguns minutos, indexadas por
+ * um HMAC de (senha, hash armazenado) com chave aleatória gerada na subida da
+ * aplicação, de modo que nenhuma senha fica em memória e uma troca de senha
+ * invalida a entrada automaticamente.
+ */
+@Service
+public class SenhaServiceImpl implements SenhaService {
+
+	private static final String PREFIXO_BCRYPT = "$2";
+	private static final int TAMANHO_HASH_BCRYPT = 60;
+
+	private final BCryptPasswordEncoder encoder;
+	private final ThreadPoolExecutor executor;
+	private final Cache<String, Boolean> verificadas;
+	private final SecretKeySpec chaveImpressao;
+
+	public SenhaServiceImpl(@Value("${minhasfinancas.senha.custo:10}") int custo,
+			@Value("${minhasfinancas.senha.threads:0}") int threads,
+			@Value("${minhasfinancas.senha.fila:64}") int fila,
+			@Value("${minhasfinancas.senha.cache-segundos:300}") long segundosCache) {
+		this.encoder = new BCryptPasswordEncoder(custo);
+
+		int tamanhoPool = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		AtomicInteger contador = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(tamanhoPool, tamanhoPool, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(fila), runnable -> {
+					Thread thread = new Thread(runnable, "senha-" + contador.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+
+		this.verificadas = Caffeine.newBuilder()
+				.maximumSize(10_000)
+				.expireAfterWrite(segundosCache, TimeUnit.SECONDS)
+				.build();
+
+		byte[] chave = new byte[32];
+		new SecureRandom().nextBytes(chave);
+		this.chaveImpressao = new SecretKeySpec(chave, "HmacSHA256");
+	}
+
+	@Override
+	public CompletableFuture<String> codificar(String senha) {
+		return executar(() -> encoder.encode(senha));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> conferir(String senha, String senhaArmazenada) {
+		if (senha == null || senhaArmazenada == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		if (!isBcrypt(senhaArmazenada)) {
+			// senha legada gravada sem hash; comparacao em tempo constante
+			return CompletableFuture.completedFuture(MessageDigest.isEqual(
+					senha.getBytes(StandardCharsets.UTF_8), senhaArmazenada.getBytes(StandardCharsets.UTF_8)));
+		}
+
+		String impressao = impressao(senha, senhaArmazenada);
+		if (verificadas.getIfPresent(impressao) != null) {
+			return CompletableFuture.completedFuture(true);
+		}
+
+		return executar(() -> {
+			boolean confere = encoder.matches(senha, senhaArmazenada);
+			if (confere) {
+				verificadas.put(impressao, Boolean.TRUE);
+			}
+			return confere;
+		});
+	}
+
+	@Override
+	public boolean precisaRecodificar(String senhaArmazenada) {
+		return senhaArmazenada != null
+				&& (!isBcrypt(senhaArmazenada) || encoder.upgradeEncoding(senhaArmazenada));
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		executor.shutdown();
+	}
+
+	private <T> CompletableFuture<T> executar(Supplier<T> tarefa) {
+		try {
+			return CompletableFuture.supplyAsync(tarefa, executor);
+		} catch (RejectedExecutionException e) {
+			CompletableFuture<T> recusada = new CompletableFuture<>();
+			recusada.completeExceptionally(
+					new ErroAutentiacao("Muitas tentativas de login no momento. Tente novamente em instantes."));
+			return recusada;
+		}
+	}
+
+	private String impressao(String senha, String senhaArmazenada) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(chaveImpressao);
+			mac.update(senhaArmazenada.getBytes(StandardCharsets.UTF_8));
+			mac.update((byte) 0);
+			return Base64.getEncoder().encodeToString(mac.doFinal(senha.getBytes(StandardCharsets.UTF_8)));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean isBcrypt(String senhaArmazenada) {
+		return senhaArmazenada.startsWith(PREFIXO_BCRYPT) && senhaArmazenada.length() == TAMANHO_HASH_BCRYPT;
+	}
+}
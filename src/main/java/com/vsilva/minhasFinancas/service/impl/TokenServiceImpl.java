@@ -0,0 +1,213 @@
+package com.vsilva.minhasFinancas.service.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.service.TokenService;
+import com.vsilva.minhasFinancas.service.exception.ErroAutentiacao;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tokens no formato JWT (HS256) com o id do usuário em {@code sub}, validados
+ * só com a chave, sem consultar o banco.
+ * <p>
+ * As chaves vêm de um keystore JCEKS local: todas as chaves secretas do
+ * keystore são aceitas na validação, identificadas pelo alias no {@code kid}, e
+ * só a chave ativa assina. Para rotacionar, adicione a nova chave ao keystore,
+ * aponte {@code minhasfinancas.token.chave-ativa} para ela e remova a antiga
+ * depois que os tokens emitidos com ela expirarem. O arquivo é relido quando
+ * muda. Sem keystore configurado é gerada uma chave efêmera, que invalida os
+ * tokens a cada reinício.
+ */
+@Slf4j
+@Service
+public class TokenServiceImpl implements TokenService {
+
+	private static final String ALGORITMO = "HmacSHA256";
+	private static final String CHAVE_EFEMERA = "efemera";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final Base64.Encoder codificador = Base64.getUrlEncoder().withoutPadding();
+	private final Base64.Decoder decodificador = Base64.getUrlDecoder();
+
+	private final String caminhoKeystore;
+	private final char[] senhaKeystore;
+	private final String aliasAtivo;
+	private final long validadeSegundos;
+	private final Clock relogio;
+
+	private volatile Map<String, SecretKey> chaves = Collections.emptyMap();
+	private volatile String kidAtivo;
+	private long keystoreModificadoEm;
+
+	@Autowired
+	public TokenServiceImpl(@Value("${minhasfinancas.token.keystore:}") String caminhoKeystore,
+			@Value("${minhasfinancas.token.keystore-senha:}") String senhaKeystore,
+			@Value("${minhasfinancas.token.chave-ativa:}") String aliasAtivo,
+			@Value("${minhasfinancas.token.validade-minutos:60}") long validadeMinutos) {
+		this(caminhoKeystore, senhaKeystore, aliasAtivo, validadeMinutos, Clock.systemUTC());
+	}
+
+	public TokenServiceImpl(String caminhoKeystore, String senhaKeystore, String aliasAtivo, long validadeMinutos,
+			Clock relogio) {
+		this.caminhoKeystore = caminhoKeystore;
+		this.senhaKeystore = senhaKeystore.toCharArray();
+		this.aliasAtivo = aliasAtivo;
+		this.validadeSegundos = validadeMinutos * 60;
+		this.relogio = relogio;
+
+		if (StringUtils.hasText(caminhoKeystore)) {
+			recarregarChaves();
+		} else {
+			log.warn("Nenhum keystore configurado em minhasfinancas.token.keystore; "
+					+ "usando chave efemera, tokens nao sobrevivem a reinicios");
+			byte[] chave = new byte[32];
+			new SecureRandom().nextBytes(chave);
+			this.chaves = Collections.singletonMap(CHAVE_EFEMERA, new SecretKeySpec(chave, ALGORITMO));
+			this.kidAtivo = CHAVE_EFEMERA;
+		}
+	}
+
+	@Override
+	public String gerar(Long idUsuario) {
+		long agora = relogio.instant().getEpochSecond();
+
+		Map<String, Object> cabecalho = new LinkedHashMap<>();
+		cabecalho.put("alg", "HS256");
+		cabecalho.put("typ", "JWT");
+		cabecalho.put("kid", kidAtivo);
+
+		Map<String, Object> corpo = new LinkedHashMap<>();
+		corpo.put("sub", idUsuario.toString());
+		corpo.put("iat", agora);
+		corpo.put("exp", agora + validadeSegundos);
+
+		String conteudo = json(cabecalho) + "." + json(corpo);
+		return conteudo + "." + codificador.encodeToString(assinar(chaves.get(kidAtivo), conteudo));
+	}
+
+	@Override
+	public Long validar(String token) {
+		String[] partes = token == null ? new String[0] : token.split("\\.");
+		if (partes.length != 3) {
+			throw new ErroAutentiacao("Token inválido");
+		}
+
+		try {
+			JsonNode cabecalho = mapper.readTree(decodificador.decode(partes[0]));
+			SecretKey chave = chaves.get(cabecalho.path("kid").asText());
+			if (chave == null || !"HS256".equals(cabecalho.path("alg").asText())) {
+				throw new ErroAutentiacao("Token inválido");
+			}
+
+			byte[] assinatura = assinar(chave, partes[0] + "." + partes[1]);
+			if (!MessageDigest.isEqual(assinatura, decodificador.decode(partes[2]))) {
+				throw new ErroAutentiacao("Token inválido");
+			}
+
+			JsonNode corpo = mapper.readTree(decodificador.decode(partes[1]));
+			if (corpo.path("exp").asLong() <= relogio.instant().getEpochSecond()) {
+				throw new ErroAutentiacao("Token expirado");
+			}
+			return Long.valueOf(corpo.path("sub").asText());
+		} catch (IOException | IllegalArgumentException e) {
+			throw new ErroAutentiacao("Token inválido");
+		}
+	}
+
+	@Override
+	public long getValidadeSegundos() {
+		return validadeSegundos;
+	}
+
+	/**
+	 * Relê o keystore quando o arquivo foi alterado, para que uma rotação de
+	 * chave não exija reiniciar a aplicação.
+	 */
+	@Scheduled(fixedDelayString = "${minhasfinancas.token.recarga-ms:60000}")
+	public void recarregarSeAlterado() {
+		if (StringUtils.hasText(caminhoKeystore) && new File(caminhoKeystore).lastModified() != keystoreModificadoEm) {
+			recarregarChaves();
+		}
+	}
+
+	private synchronized void recarregarChaves() {
+		File arquivo = new File(caminhoKeystore);
+		try (InputStream entrada = new FileInputStream(arquivo)) {
+			KeyStore keystore = KeyStore.getInstance("JCEKS");
+			keystore.load(entrada, senhaKeystore);
+
+			Map<String, SecretKey> lidas = new HashMap<>();
+			Enumeration<String> aliases = keystore.aliases();
+			while (aliases.hasMoreElements()) {
+				String alias = aliases.nextElement();
+				Key chave = keystore.getKey(alias, senhaKeystore);
+				if (chave instanceof SecretKey) {
+					lidas.put(alias, (SecretKey) chave);
+				}
+			}
+
+			String ativo = StringUtils.hasText(aliasAtivo) ? aliasAtivo.toLowerCase() : null;
+			if (ativo == null || !lidas.containsKey(ativo)) {
+				throw new IllegalStateException("Chave ativa '" + aliasAtivo + "' nao encontrada no keystore "
+						+ caminhoKeystore);
+			}
+
+			this.chaves = lidas;
+			this.kidAtivo = ativo;
+			this.keystoreModificadoEm = arquivo.lastModified();
+			log.info("Keystore de tokens carregado: {} chaves, ativa '{}'", lidas.size(), ativo);
+		} catch (IOException | GeneralSecurityException e) {
+			if (chaves.isEmpty()) {
+				throw new IllegalStateException("Nao foi possivel carregar o keystore " + caminhoKeystore, e);
+			}
+			log.error("Nao foi possivel recarregar o keystore {}; mantendo as chaves atuais", caminhoKeystore, e);
+		}
+	}
+
+	private String json(Map<String, Object> valores) {
+		try {
+			return codificador.encodeToString(mapper.writeValueAsBytes(valores));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] assinar(SecretKey chave, String conteudo) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITMO);
+			mac.init(chave);
+			return mac.doFinal(conteudo.getBytes(StandardCharsets.US_ASCII));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
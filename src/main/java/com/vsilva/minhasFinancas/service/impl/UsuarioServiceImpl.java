@@ -1,58 +1,207 @@
 package com.vsilva.minhasFinancas.service.impl;
 
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 import com.vsilva.minhasFinancas.model.entity.Usuario;
 import com.vsilva.minhasFinancas.model.repository.UsuarioRepository;
+import com.vsilva.minhasFinancas.service.SenhaService;
 import com.vsilva.minhasFinancas.service.UsuarioService;
+import com.vsilva.minhasFinancas.service.event.UsuarioAlteradoEvent;
+import com.vsilva.minhasFinancas.service.event.UsuarioCadastradoEvent;
 import com.vsilva.minhasFinancas.service.exception.ErroAutentiacao;
 import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Service
 public class UsuarioServiceImpl implements UsuarioService {
 
+	public static final String CACHE_USUARIOS = "usuarios";
+
 	private UsuarioRepository repository;
+	private SenhaService senhaService;
+	private ApplicationEventPublisher eventos;
+	private Cache cache;
+
+	/**
+	 * Incrementada a cada invalidação. Um usuário lido antes do commit de uma
+	 * alteração não vai para o cache depois dela.
+	 */
+	private final AtomicLong geracao = new AtomicLong();
 
 	@Autowired
-	public UsuarioServiceImpl(UsuarioRepository repository) {
+	public UsuarioServiceImpl(UsuarioRepository repository, SenhaService senhaService,
+			ApplicationEventPublisher eventos, CacheManager cacheManager) {
 		super();
 		this.repository = repository;
+		this.senhaService = senhaService;
+		this.eventos = eventos;
+		this.cache = cacheManager.getCache(CACHE_USUARIOS);
 	}
 
 	@Override
 	public Usuario autenticar(String email, String senha) {
-		Optional<Usuario> usuario = repository.findByEmail(email);
+		return aguardar(autenticarAsync(email, senha));
+	}
+
+	/**
+	 * A conferência da senha roda no pool de hash; a thread que chamou só faz a
+	 * busca do usuário e fica livre enquanto o BCrypt calcula.
+	 */
+	@Override
+	public CompletableFuture<Usuario> autenticarAsync(String email, String senha) {
+		Optional<Usuario> usuario = repository.findByEmail(normalizarEmail(email));
 
 		if (!usuario.isPresent()) {
-			throw new ErroAutentiacao("Ops, Usuario não encontrado para o email informado!");
+			CompletableFuture<Usuario> erro = new CompletableFuture<>();
+			erro.completeExceptionally(new ErroAutentiacao("Ops, Usuario não encontrado para o email informado!"));
+			return erro;
 		}
-		if (!usuario.get().getSenha().equals(senha)) {
-			throw new ErroAutentiacao("Senha Invalida");
-		}
-		return usuario.get();
+
+		Usuario autenticado = usuario.get();
+		return senhaService.conferir(senha, autenticado.getSenha()).thenApply(confere -> {
+			if (!confere) {
+				throw new ErroAutentiacao("Senha Invalida");
+			}
+			if (senhaService.precisaRecodificar(autenticado.getSenha())) {
+				recodificarSenha(autenticado.getId(), senha);
+			}
+			return autenticado;
+		});
 	}
 
 	@Override
 	@Transactional
 	public Usuario salvarUsuario(Usuario usuario) {
+		usuario.setEmail(normalizarEmail(usuario.getEmail()));
 		validarEmail(usuario.getEmail());
-		return repository.save(usuario);
+		if (usuario.getSenha() != null) {
+			usuario.setSenha(aguardar(senhaService.codificar(usuario.getSenha())));
+		}
+		boolean novo = usuario.getId() == null;
+		Usuario salvo = repository.save(usuario);
+		if (novo) {
+			eventos.publishEvent(new UsuarioCadastradoEvent(salvo.getId()));
+		} else {
+			eventos.publishEvent(new UsuarioAlteradoEvent(salvo.getId()));
+		}
+		return salvo;
 	}
 
 	@Override
 	public void validarEmail(String email) {
-		boolean existe = repository.existsByEmail(email);
+		boolean existe = repository.existsByEmail(normalizarEmail(email));
 		if (existe) {
 			throw new RegraNegocioException("Já existe um usuário cadastrado com este email");
 		}
 	}
 
+	/**
+	 * O cache guarda uma cópia sem o hash da senha; a autenticação lê a senha
+	 * do banco a cada login.
+	 */
 	@Override
 	public Optional<Usuario> obterPorId(long id) {
-		return repository.findById(id);
+		if (cache != null) {
+			ValueWrapper emCache = cache.get(id);
+			if (emCache != null) {
+				return Optional.of((Usuario) emCache.get());
+			}
+		}
+
+		long geracaoLida = geracao.get();
+		Optional<Usuario> usuario = repository.findById(id).map(UsuarioServiceImpl::semSenha);
+		if (cache != null && usuario.isPresent()) {
+			synchronized (geracao) {
+				if (geracao.get() == geracaoLida) {
+					cache.put(id, usuario.get());
+				}
+			}
+		}
+		return usuario;
+	}
+
+	/**
+	 * Descarta o usuário em cache somente depois que a transação que o alterou
+	 * foi confirmada; antes disso uma leitura concorrente o guardaria de novo
+	 * com os dados antigos.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarUsuario(UsuarioAlteradoEvent evento) {
+		if (cache == null) {
+			return;
+		}
+		synchronized (geracao) {
+			geracao.incrementAndGet();
+			cache.evict(evento.getIdUsuario());
+		}
+	}
+
+	/**
+	 * Retorna uma referência ao usuário sem consultar o banco, suficiente para
+	 * preencher a chave estrangeira de um lançamento.
+	 */
+	@Override
+	public Usuario obterReferencia(long id) {
+		return repository.getOne(id);
+	}
+
+	@Override
+	public boolean existePorId(long id) {
+		return repository.existsById(id);
+	}
+
+	/**
+	 * Senhas legadas (sem hash ou com custo menor que o configurado) são
+	 * regravadas no primeiro login bem-sucedido, sem atrasar a resposta.
+	 */
+	private void recodificarSenha(Long id, String senha) {
+		senhaService.codificar(senha)
+				.thenAccept(hash -> repository.atualizarSenha(id, hash))
+				.exceptionally(e -> {
+					log.warn("Nao foi possivel recodificar a senha do usuario {}: {}", id, e.getMessage());
+					return null;
+				});
+	}
+
+	private static Usuario semSenha(Usuario usuario) {
+		return Usuario.builder()
+				.id(usuario.getId())
+				.nome(usuario.getNome())
+				.email(usuario.getEmail())
+				.build();
+	}
+
+	private static <T> T aguardar(CompletableFuture<T> futuro) {
+		try {
+			return futuro.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Emails são gravados em minúsculas (garantido por check no banco), o que
+	 * permite que o índice único sobre a coluna valha sem diferenciar caixa.
+	 */
+	private static String normalizarEmail(String email) {
+		return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
 	}
 
 }
\ No newline at end of file
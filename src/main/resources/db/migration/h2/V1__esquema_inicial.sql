@@ -0,0 +1,21 @@
+-- Esquema original da aplicacao
+create schema if not exists financas;
+
+create table if not exists financas.usuario (
+	id bigint auto_increment not null primary key,
+	nome varchar(150),
+	email varchar(100),
+	senha varchar(20)
+);
+
+create table if not exists financas.lancamento (
+	id bigint auto_increment not null primary key,
+	descricao varchar(100) not null,
+	mes integer not null,
+	ano integer not null,
+	valor numeric(16, 2) not null,
+	tipo varchar(20) not null check (tipo in ('RECEITA', 'DESPESA')),
+	status varchar(20) not null check (status in ('PENDENTE', 'CANCELADO', 'EFETIVADO')),
+	id_usuario bigint constraint fk_lancamento_usuario references financas.usuario (id),
+	data_cadastro date default current_date
+);
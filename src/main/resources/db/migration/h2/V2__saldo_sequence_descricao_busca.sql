@@ -0,0 +1,11 @@
+-- Saldo consolidado por usuario, mantido por deltas
+create table if not exists financas.saldo_usuario (
+	id_usuario bigint not null primary key references financas.usuario (id),
+	saldo numeric(18, 2) not null default 0
+);
+
+-- Sequence com pool (allocationSize = 50) para permitir inserts em lote
+create sequence if not exists financas.lancamento_seq start with 1 increment by 50;
+
+-- Descricao normalizada para busca por termos
+alter table financas.lancamento add column if not exists descricao_busca varchar(255);
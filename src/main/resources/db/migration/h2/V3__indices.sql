@@ -0,0 +1,16 @@
+-- Listagens filtram por usuario, ano e mes e ordenam por (ano, mes, id)
+create index if not exists idx_lancamento_usuario_ano_mes on financas.lancamento (id_usuario, ano, mes);
+
+-- Saldos e agregacoes filtram por usuario, tipo e status
+create index if not exists idx_lancamento_usuario_tipo_status on financas.lancamento (id_usuario, tipo, status);
+
+-- O H2 cria um indice proprio para cada chave estrangeira e, sem estatisticas, o prefere
+-- aos compostos acima. Recriada agora, a chave reaproveita idx_lancamento_usuario_ano_mes.
+alter table financas.lancamento drop constraint if exists fk_lancamento_usuario;
+alter table financas.lancamento add constraint fk_lancamento_usuario
+	foreign key (id_usuario) references financas.usuario (id);
+
+-- Emails sao gravados em minusculas; o check garante a regra no banco e torna o
+-- indice unico sobre email equivalente a um indice unico sobre lower(email)
+alter table financas.usuario add constraint if not exists ck_usuario_email_minusculo check (email = lower(email));
+create unique index if not exists uk_usuario_email on financas.usuario (email);
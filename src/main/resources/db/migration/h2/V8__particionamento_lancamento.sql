@@ -0,0 +1,21 @@
+-- O H2 nao tem particionamento declarativo: a tabela de lancamentos continua
+-- unica e o arquivamento de anos so existe no PostgreSQL. As tabelas abaixo
+-- existem nos dois bancos porque o saldo calculado soma os anos arquivados.
+
+-- Totais dos anos arquivados, por usuario e tipo, somados ao saldo calculado
+create table if not exists financas.saldo_arquivado (
+	id_usuario bigint not null references financas.usuario (id),
+	ano integer not null,
+	tipo varchar(20) not null check (tipo in ('RECEITA', 'DESPESA')),
+	valor numeric(18, 2) not null,
+	quantidade bigint not null,
+	primary key (id_usuario, ano, tipo)
+);
+
+-- Anos cujas particoes foram desanexadas; nao recebem mais lancamentos
+create table if not exists financas.ano_arquivado (
+	ano integer not null primary key,
+	tabela varchar(63) not null,
+	tablespace varchar(63),
+	arquivado_em timestamp default current_timestamp not null
+);
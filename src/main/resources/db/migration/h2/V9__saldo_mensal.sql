@@ -0,0 +1,24 @@
+-- Totais por usuario e mes dos meses fechados, consolidados pelo job de saldo
+create table if not exists financas.saldo_mensal (
+	id_usuario bigint not null references financas.usuario (id),
+	ano integer not null,
+	mes integer not null,
+	receitas numeric(18, 2) not null,
+	despesas numeric(18, 2) not null,
+	quantidade bigint not null,
+	consolidado_em timestamp,
+	primary key (id_usuario, ano, mes)
+);
+
+-- Mes encerrado mais antigo alterado desde a ultima consolidacao do usuario,
+-- como ano * 12 + mes - 1; a partir dele o saldo e somado dos lancamentos
+alter table financas.saldo_usuario add column if not exists mes_alterado integer;
+alter table financas.saldo_usuario add column if not exists versao_mes_alterado bigint default 0 not null;
+
+-- Ultimo mes com saldo_mensal de todos os usuarios que tinham lancamentos nele
+create table if not exists financas.fechamento_saldo (
+	id integer not null primary key,
+	ano integer not null,
+	mes integer not null,
+	fechado_em timestamp not null
+);
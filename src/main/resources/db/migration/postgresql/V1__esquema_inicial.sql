@@ -0,0 +1,21 @@
+-- Esquema original da aplicacao. Idempotente para bancos criados antes das migracoes.
+create schema if not exists financas;
+
+create table if not exists financas.usuario (
+	id bigserial not null primary key,
+	nome character varying(150),
+	email character varying(100),
+	senha character varying(20)
+);
+
+create table if not exists financas.lancamento (
+	id bigserial not null primary key,
+	descricao character varying(100) not null,
+	mes integer not null,
+	ano integer not null,
+	valor numeric(16, 2) not null,
+	tipo character varying(20) not null check (tipo in ('RECEITA', 'DESPESA')),
+	status character varying(20) not null check (status in ('PENDENTE', 'CANCELADO', 'EFETIVADO')),
+	id_usuario bigint constraint fk_lancamento_usuario references financas.usuario (id),
+	data_cadastro date default now()
+);
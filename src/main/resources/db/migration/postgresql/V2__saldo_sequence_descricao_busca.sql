@@ -0,0 +1,26 @@
+-- Saldo consolidado por usuario, mantido por deltas
+create table if not exists financas.saldo_usuario (
+	id_usuario bigint not null primary key references financas.usuario (id),
+	saldo numeric(18, 2) not null default 0
+);
+
+insert into financas.saldo_usuario (id_usuario, saldo)
+select l.id_usuario, sum(case when l.tipo = 'DESPESA' then -l.valor else l.valor end)
+from financas.lancamento l
+where l.id_usuario is not null
+group by l.id_usuario
+on conflict (id_usuario) do nothing;
+
+-- Sequence com pool (allocationSize = 50) para permitir inserts em lote.
+-- Inicia acima do maior id existente com folga de um pool inteiro.
+create sequence if not exists financas.lancamento_seq increment by 50;
+select setval('financas.lancamento_seq', (select coalesce(max(id), 0) + 51 from financas.lancamento), false);
+
+-- Descricao normalizada para busca por termos
+alter table financas.lancamento add column if not exists descricao_busca character varying(255);
+
+update financas.lancamento
+set descricao_busca = ' ' || nullif(trim(regexp_replace(
+		translate(lower(descricao), 'áàâãäéèêëíìîïóòôõöúùûüç', 'aaaaaeeeeiiiiooooouuuuc'),
+		'[^a-z0-9]+', ' ', 'g')), '') || ' '
+where descricao_busca is null;
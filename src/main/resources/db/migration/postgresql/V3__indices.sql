@@ -0,0 +1,46 @@
+-- Listagens filtram por usuario, ano e mes e ordenam por (ano, mes, id)
+create index if not exists idx_lancamento_usuario_ano_mes on financas.lancamento (id_usuario, ano, mes);
+
+-- Saldos e agregacoes filtram por usuario, tipo e status
+create index if not exists idx_lancamento_usuario_tipo_status on financas.lancamento (id_usuario, tipo, status);
+
+-- Emails passam a ser gravados em minusculas; o check garante a regra no banco
+-- e torna o indice unico sobre email equivalente a um indice unico sobre lower(email).
+-- Emails que so diferem em maiusculas ou espacos viram o mesmo email; em vez de deixar
+-- o update ou o indice unico falhar sem dizer quais contas, a migracao para listando-as.
+-- Unir as contas (e os lancamentos delas) e uma decisao do dono dos dados.
+do $$
+declare
+	conflitos text;
+begin
+	select string_agg(email || ' (ids ' || ids || ')', '; ' order by email)
+	  into conflitos
+	  from (select lower(trim(email)) as email, string_agg(id::text, ', ' order by id) as ids
+	          from financas.usuario
+	         group by lower(trim(email))
+	        having count(*) > 1) repetidos;
+
+	if conflitos is not null then
+		raise exception 'Usuarios com o mesmo email ao ignorar maiusculas e espacos: %', conflitos
+			using hint = 'Una ou altere o email dessas contas e rode a migracao de novo.';
+	end if;
+end
+$$;
+
+update financas.usuario set email = lower(trim(email)) where email <> lower(trim(email));
+alter table financas.usuario drop constraint if exists ck_usuario_email_minusculo;
+alter table financas.usuario add constraint ck_usuario_email_minusculo check (email = lower(email));
+create unique index if not exists uk_usuario_email on financas.usuario (email);
+
+-- Indice trigram para as buscas por termo em descricao_busca (LIKE '% termo%').
+-- Exige a extensao pg_trgm; sem permissao para cria-la a busca continua correta, so sem o indice.
+do $$
+begin
+	create extension if not exists pg_trgm;
+	execute 'create index if not exists idx_lancamento_descricao_busca_trgm '
+		|| 'on financas.lancamento using gin (descricao_busca gin_trgm_ops)';
+exception
+	when insufficient_privilege or undefined_file then
+		raise notice 'pg_trgm indisponivel, indice de descricao_busca nao criado';
+end
+$$;
@@ -0,0 +1,2 @@
+-- Senhas passam a ser gravadas como hash BCrypt (60 caracteres)
+alter table financas.usuario alter column senha type character varying(100);
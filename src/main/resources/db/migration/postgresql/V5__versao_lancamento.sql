@@ -0,0 +1,2 @@
+-- Versao para controle de concorrencia otimista (ETag / If-Match)
+alter table financas.lancamento add column if not exists versao bigint not null default 0;
@@ -0,0 +1,3 @@
+-- Versao dos lancamentos de cada usuario, usada como ETag / Last-Modified
+alter table financas.saldo_usuario add column if not exists versao bigint not null default 1;
+alter table financas.saldo_usuario add column if not exists alterado_em timestamp;
@@ -0,0 +1,6 @@
+-- Diretorio de usuarios por shard, lido no shard 0 (catalogo). Usuarios sem
+-- linha ficam no shard 0
+create table if not exists financas.shard_usuario (
+	id_usuario bigint not null primary key references financas.usuario (id),
+	shard integer not null
+);
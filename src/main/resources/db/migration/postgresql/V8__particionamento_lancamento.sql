@@ -0,0 +1,123 @@
+-- Lancamentos particionados por ano (particionamento declarativo, PostgreSQL 11+).
+-- Cada ano tem a particao financas.lancamento_p<ano>; anos sem particao caem em
+-- financas.lancamento_padrao ate o job de particionamento criar a deles. A chave
+-- primaria precisa incluir a chave de particionamento.
+
+-- Totais dos anos arquivados, por usuario e tipo, somados ao saldo calculado
+create table if not exists financas.saldo_arquivado (
+	id_usuario bigint not null references financas.usuario (id),
+	ano integer not null,
+	tipo character varying(20) not null check (tipo in ('RECEITA', 'DESPESA')),
+	valor numeric(18, 2) not null,
+	quantidade bigint not null,
+	primary key (id_usuario, ano, tipo)
+);
+
+-- Anos cujas particoes foram desanexadas; nao recebem mais lancamentos
+create table if not exists financas.ano_arquivado (
+	ano integer not null primary key,
+	tabela character varying(63) not null,
+	tablespace character varying(63),
+	arquivado_em timestamp not null default now()
+);
+
+alter table financas.lancamento rename to lancamento_legado;
+
+create table financas.lancamento (
+	id bigint not null,
+	descricao character varying(100) not null,
+	mes integer not null,
+	ano integer not null,
+	valor numeric(16, 2) not null,
+	tipo character varying(20) not null check (tipo in ('RECEITA', 'DESPESA')),
+	status character varying(20) not null check (status in ('PENDENTE', 'CANCELADO', 'EFETIVADO')),
+	id_usuario bigint,
+	data_cadastro date default now(),
+	descricao_busca character varying(255),
+	versao bigint not null default 0
+) partition by range (ano);
+
+create table financas.lancamento_padrao partition of financas.lancamento default;
+
+-- Cria a particao do ano, movendo para ela o que estiver na particao padrao.
+-- Idempotente; anos arquivados nao ganham particao nova.
+create or replace function financas.criar_particao_lancamento(p_ano integer) returns boolean as $$
+declare
+	v_particao text := 'lancamento_p' || p_ano;
+begin
+	perform pg_advisory_xact_lock(hashtext('financas.lancamento'));
+	if to_regclass('financas.' || v_particao) is not null
+			or exists (select 1 from financas.ano_arquivado where ano = p_ano) then
+		return false;
+	end if;
+
+	execute format('create table financas.%I (like financas.lancamento including defaults including constraints)',
+		v_particao);
+	execute format('with movidos as (delete from financas.lancamento_padrao where ano = %s returning *) '
+		|| 'insert into financas.%I select * from movidos', p_ano, v_particao);
+	execute format('alter table financas.lancamento attach partition financas.%I for values from (%s) to (%s)',
+		v_particao, p_ano, p_ano + 1);
+	return true;
+end
+$$ language plpgsql;
+
+-- Desanexa a particao do ano, opcionalmente movendo-a para outro tablespace,
+-- depois de guardar os totais por usuario e tipo em saldo_arquivado. A trava
+-- em modo share impede escritas no ano entre a soma e a desanexacao. Retorna a
+-- quantidade de lancamentos arquivados.
+create or replace function financas.arquivar_lancamentos(p_ano integer, p_tablespace text) returns integer as $$
+declare
+	v_particao text := 'lancamento_p' || p_ano;
+	v_quantidade integer;
+begin
+	perform pg_advisory_xact_lock(hashtext('financas.lancamento'));
+	if exists (select 1 from financas.ano_arquivado where ano = p_ano) then
+		return 0;
+	end if;
+	if to_regclass('financas.' || v_particao) is null then
+		perform financas.criar_particao_lancamento(p_ano);
+	end if;
+
+	execute format('lock table financas.%I in share mode', v_particao);
+	execute format('select count(*) from financas.%I', v_particao) into v_quantidade;
+	execute format('insert into financas.saldo_arquivado (id_usuario, ano, tipo, valor, quantidade) '
+		|| 'select id_usuario, ano, tipo, sum(valor), count(*) from financas.%I '
+		|| 'where id_usuario is not null group by id_usuario, ano, tipo', v_particao);
+	execute format('alter table financas.lancamento detach partition financas.%I', v_particao);
+	if p_tablespace is not null then
+		execute format('alter table financas.%I set tablespace %I', v_particao, p_tablespace);
+	end if;
+	insert into financas.ano_arquivado (ano, tabela, tablespace) values (p_ano, v_particao, p_tablespace);
+	return v_quantidade;
+end
+$$ language plpgsql;
+
+select financas.criar_particao_lancamento(ano)
+from (select distinct ano from financas.lancamento_legado
+	union select extract(year from current_date)::integer
+	union select extract(year from current_date)::integer + 1) anos
+order by ano;
+
+insert into financas.lancamento (id, descricao, mes, ano, valor, tipo, status, id_usuario, data_cadastro,
+	descricao_busca, versao)
+select id, descricao, mes, ano, valor, tipo, status, id_usuario, data_cadastro, descricao_busca, versao
+from financas.lancamento_legado;
+
+-- a sequence do bigserial antigo sai junto; os ids vem de lancamento_seq
+drop table financas.lancamento_legado;
+
+alter table financas.lancamento add constraint lancamento_pkey primary key (id, ano);
+alter table financas.lancamento add constraint fk_lancamento_usuario
+	foreign key (id_usuario) references financas.usuario (id);
+create index idx_lancamento_usuario_ano_mes on financas.lancamento (id_usuario, ano, mes);
+create index idx_lancamento_usuario_tipo_status on financas.lancamento (id_usuario, tipo, status);
+
+do $$
+begin
+	execute 'create index if not exists idx_lancamento_descricao_busca_trgm '
+		|| 'on financas.lancamento using gin (descricao_busca gin_trgm_ops)';
+exception
+	when undefined_object then
+		raise notice 'pg_trgm indisponivel, indice de descricao_busca nao criado';
+end
+$$;
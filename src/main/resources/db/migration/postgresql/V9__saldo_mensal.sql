@@ -0,0 +1,54 @@
+-- Totais por usuario e mes dos meses fechados, consolidados pelo job de saldo
+create table if not exists financas.saldo_mensal (
+	id_usuario bigint not null references financas.usuario (id),
+	ano integer not null,
+	mes integer not null,
+	receitas numeric(18, 2) not null,
+	despesas numeric(18, 2) not null,
+	quantidade bigint not null,
+	consolidado_em timestamp,
+	primary key (id_usuario, ano, mes)
+);
+
+-- Mes encerrado mais antigo alterado desde a ultima consolidacao do usuario,
+-- como ano * 12 + mes - 1; a partir dele o saldo e somado dos lancamentos
+alter table financas.saldo_usuario add column if not exists mes_alterado integer;
+alter table financas.saldo_usuario add column if not exists versao_mes_alterado bigint default 0 not null;
+
+-- Ultimo mes com saldo_mensal de todos os usuarios que tinham lancamentos nele
+create table if not exists financas.fechamento_saldo (
+	id integer not null primary key,
+	ano integer not null,
+	mes integer not null,
+	fechado_em timestamp not null
+);
+
+-- O ano arquivado passa a entrar no saldo por saldo_arquivado, entao os meses
+-- dele saem de saldo_mensal junto com a particao
+create or replace function financas.arquivar_lancamentos(p_ano integer, p_tablespace text) returns integer as $$
+declare
+	v_particao text := 'lancamento_p' || p_ano;
+	v_quantidade integer;
+begin
+	perform pg_advisory_xact_lock(hashtext('financas.lancamento'));
+	if exists (select 1 from financas.ano_arquivado where ano = p_ano) then
+		return 0;
+	end if;
+	if to_regclass('financas.' || v_particao) is null then
+		perform financas.criar_particao_lancamento(p_ano);
+	end if;
+
+	execute format('lock table financas.%I in share mode', v_particao);
+	execute format('select count(*) from financas.%I', v_particao) into v_quantidade;
+	execute format('insert into financas.saldo_arquivado (id_usuario, ano, tipo, valor, quantidade) '
+		|| 'select id_usuario, ano, tipo, sum(valor), count(*) from financas.%I '
+		|| 'where id_usuario is not null group by id_usuario, ano, tipo', v_particao);
+	delete from financas.saldo_mensal where ano = p_ano;
+	execute format('alter table financas.lancamento detach partition financas.%I', v_particao);
+	if p_tablespace is not null then
+		execute format('alter table financas.%I set tablespace %I', v_particao, p_tablespace);
+	end if;
+	insert into financas.ano_arquivado (ano, tabela, tablespace) values (p_ano, v_particao, p_tablespace);
+	return v_quantidade;
+end
+$$ language plpgsql;
@@ -0,0 +1,93 @@
+package com.vsilva.minhasFinancas.api.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AdmissaoFilterTest {
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	AdmissaoFilter filter = new AdmissaoFilter(true, 1, 4, 10, 0, 2, registry);
+
+	@Test
+	public void deveRecusarComRetryAfterQuandoNaoHaVaga() throws Exception {
+		CountDownLatch emAndamento = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		FilterChain bloqueada = (request, response) -> {
+			emAndamento.countDown();
+			try {
+				liberar.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		CompletableFuture<Void> primeira = CompletableFuture.runAsync(() -> {
+			try {
+				filter.doFilter(requisicao(), new MockHttpServletResponse(), bloqueada);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		emAndamento.await(5, TimeUnit.SECONDS);
+
+		MockHttpServletResponse recusada = new MockHttpServletResponse();
+		filter.doFilter(requisicao(), recusada, new MockFilterChain());
+
+		assertThat(recusada.getStatus()).isEqualTo(503);
+		assertThat(recusada.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+		assertThat(registry.counter(AdmissaoFilter.METRICA_RECUSADAS).count()).isEqualTo(1);
+
+		liberar.countDown();
+		primeira.get(5, TimeUnit.SECONDS);
+
+		MockHttpServletResponse aceita = new MockHttpServletResponse();
+		filter.doFilter(requisicao(), aceita, new MockFilterChain());
+		assertThat(aceita.getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	public void deveManterAVagaAteARespostaAssincronaTerminar() throws Exception {
+		MockHttpServletRequest assincrona = requisicao();
+		assincrona.setAsyncSupported(true);
+		filter.doFilter(assincrona, new MockHttpServletResponse(),
+				(request, response) -> request.startAsync());
+
+		MockHttpServletResponse recusada = new MockHttpServletResponse();
+		filter.doFilter(requisicao(), recusada, new MockFilterChain());
+		assertThat(recusada.getStatus()).isEqualTo(503);
+
+		assincrona.getAsyncContext().complete();
+
+		MockHttpServletResponse aceita = new MockHttpServletResponse();
+		filter.doFilter(requisicao(), aceita, new MockFilterChain());
+		assertThat(aceita.getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	public void naoDeveLimitarForaDaApi() throws Exception {
+		MockHttpServletRequest assincrona = requisicao();
+		assincrona.setAsyncSupported(true);
+		filter.doFilter(assincrona, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+		MockHttpServletResponse actuator = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), actuator, new MockFilterChain());
+		assertThat(actuator.getStatus()).isEqualTo(200);
+	}
+
+	private static MockHttpServletRequest requisicao() {
+		return new MockHttpServletRequest("GET", "/api/lancamentos");
+	}
+}
@@ -0,0 +1,115 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.dto.UsuarioDTO;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.service.UsuarioService;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AutenticacaoTokenTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioService usuarioService;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	Usuario usuario;
+
+	String token;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		String email = System.nanoTime() + "@email.com";
+		usuario = usuarioService.salvarUsuario(Usuario.builder().nome("usuario").email(email).senha("senha").build());
+
+		String json = new ObjectMapper()
+				.writeValueAsString(UsuarioDTO.builder().email(email).senha("senha").build());
+		MvcResult autenticacao = mvc.perform(MockMvcRequestBuilders.post("/api/usuarios/autenticar")
+				.contentType(MediaType.APPLICATION_JSON).content(json)).andReturn();
+		String resposta = mvc.perform(MockMvcRequestBuilders.asyncDispatch(autenticacao))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("id").value(usuario.getId()))
+				.andReturn().getResponse().getContentAsString();
+
+		token = new ObjectMapper().readTree(resposta).get("token").asText();
+	}
+
+	@Test
+	public void deveBuscarOsLancamentosDoUsuarioDoTokenSemConsultarOUsuario() throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+
+		// select da versao em saldo_usuario + select dos lancamentos, mesmo com o
+		// resultado vazio
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void deveRecusarOutroUsuarioInformadoJuntoComOToken() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos")
+				.param("usuario", String.valueOf(usuario.getId() + 1))
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(MockMvcResultMatchers.status().isForbidden());
+	}
+
+	@Test
+	public void deveRecusarTokenInvalido() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token + "x"))
+				.andExpect(MockMvcResultMatchers.status().isUnauthorized());
+	}
+
+	@Test
+	public void deveGuardarOUsuarioEmCacheSemASenha() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		assertThat(usuarioService.obterPorId(usuario.getId()).get().getSenha()).isNull();
+
+		statistics.clear();
+		Usuario emCache = usuarioService.obterPorId(usuario.getId()).get();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+		assertThat(emCache.getEmail()).isEqualTo(usuario.getEmail());
+		assertThat(emCache.getSenha()).isNull();
+	}
+
+	@Test
+	public void deveDescartarOUsuarioEmCacheDepoisDoCommitDaAlteracao() {
+		usuarioService.obterPorId(usuario.getId());
+
+		String email = System.nanoTime() + "@email.com";
+		usuarioService.salvarUsuario(Usuario.builder().id(usuario.getId()).nome("outro nome").email(email)
+				.senha("senha").build());
+
+		Usuario atualizado = usuarioService.obterPorId(usuario.getId()).get();
+		assertThat(atualizado.getNome()).isEqualTo("outro nome");
+		assertThat(atualizado.getEmail()).isEqualTo(email);
+	}
+}
@@ -0,0 +1,134 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class LancamentoExportacaoResourceTest {
+
+	static final String API = "/api/lancamentos/exportar";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	Usuario usuario;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(System.nanoTime() + "@email.com").senha("senha").build());
+
+		LancamentoDTO dto = LancamentoDTO.builder().descricao("Aluguel, janeiro").ano(2020).mes(1)
+				.tipo("DESPESA").status("PENDENTE").valor(new BigDecimal("1200.50")).usuario(usuario.getId()).build();
+		mvc.perform(MockMvcRequestBuilders.post("/api/lancamentos").contentType(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(dto)))
+				.andExpect(MockMvcResultMatchers.status().isCreated());
+	}
+
+	@Test
+	public void deveExportarEmCsv() throws Exception {
+		MockHttpServletResponse resposta = exportar(MockMvcRequestBuilders.get(API)
+				.param("usuario", usuario.getId().toString()));
+
+		assertThat(resposta.getContentType()).startsWith("text/csv");
+		assertThat(resposta.getHeader(HttpHeaders.CONTENT_DISPOSITION))
+				.isEqualTo("attachment; filename=\"lancamentos-" + usuario.getId() + ".csv\"");
+		String[] linhas = resposta.getContentAsString(StandardCharsets.UTF_8).split("\n");
+		assertThat(linhas).hasSize(2);
+		assertThat(linhas[0]).isEqualTo("id,descricao,mes,ano,valor,tipo,status,data_cadastro,usuario");
+		assertThat(linhas[1]).contains(",\"Aluguel, janeiro\",1,2020,1200.50,DESPESA,PENDENTE,")
+				.endsWith("," + usuario.getId());
+	}
+
+	@Test
+	public void deveExportarEmNdjson() throws Exception {
+		MockHttpServletResponse resposta = exportar(MockMvcRequestBuilders.get(API)
+				.param("usuario", usuario.getId().toString()).param("formato", "ndjson"));
+
+		assertThat(resposta.getContentType()).isEqualTo("application/x-ndjson");
+		String[] linhas = resposta.getContentAsString(StandardCharsets.UTF_8).split("\n");
+		assertThat(linhas).hasSize(1);
+		assertThat(new ObjectMapper().readTree(linhas[0]).get("descricao").asText()).isEqualTo("Aluguel, janeiro");
+		assertThat(new ObjectMapper().readTree(linhas[0]).get("usuario").asLong()).isEqualTo(usuario.getId());
+	}
+
+	@Test
+	public void deveExportarUmArquivoGzipSemCodificarAResposta() throws Exception {
+		MockHttpServletResponse resposta = exportar(MockMvcRequestBuilders.get(API)
+				.param("usuario", usuario.getId().toString()).param("gzip", "true"));
+
+		assertThat(resposta.getContentType()).isEqualTo("application/gzip");
+		assertThat(resposta.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(resposta.getHeader(HttpHeaders.CONTENT_DISPOSITION))
+				.isEqualTo("attachment; filename=\"lancamentos-" + usuario.getId() + ".csv.gz\"");
+		assertThat(descompactar(resposta.getContentAsByteArray()))
+				.startsWith("id,descricao,mes,ano,valor,tipo,status,data_cadastro,usuario\n")
+				.contains("\"Aluguel, janeiro\"");
+	}
+
+	@Test
+	public void deveRecusarFormatoDesconhecido() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.param("formato", "xml"))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest());
+	}
+
+	@Test
+	public void deveExportarOsLancamentosDoUsuarioAutenticado() throws Exception {
+		MockHttpServletResponse resposta = exportar(MockMvcRequestBuilders.get(API)
+				.requestAttr("usuarioAutenticado", usuario.getId()));
+
+		assertThat(resposta.getContentAsString(StandardCharsets.UTF_8)).contains("\"Aluguel, janeiro\"");
+	}
+
+	@Test
+	public void deveRecusarAExportacaoDeOutroUsuario() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.requestAttr("usuarioAutenticado", usuario.getId() + 1))
+				.andExpect(MockMvcResultMatchers.status().isForbidden());
+	}
+
+	private MockHttpServletResponse exportar(MockHttpServletRequestBuilder request) throws Exception {
+		MvcResult resultado = mvc.perform(request).andReturn();
+		return mvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andReturn().getResponse();
+	}
+
+	private static String descompactar(byte[] conteudo) throws IOException {
+		try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(conteudo))) {
+			return StreamUtils.copyToString(entrada, StandardCharsets.UTF_8);
+		}
+	}
+}
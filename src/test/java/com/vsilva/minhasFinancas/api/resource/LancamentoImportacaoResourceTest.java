@@ -0,0 +1,213 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepository;
+import com.vsilva.minhasFinancas.service.LancamentoService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class LancamentoImportacaoResourceTest {
+
+	static final String API = "/api/lancamentos/importar";
+	static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	Usuario usuario;
+
+	@BeforeEach
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(System.nanoTime() + "@email.com").senha("senha").build());
+	}
+
+	@Test
+	public void deveImportarJsonEmLotes() throws Exception {
+		List<LancamentoDTO> dtos = Arrays.asList(
+				lancamento("Salario", 1, "RECEITA", "3000"),
+				lancamento("Aluguel", 1, "DESPESA", "1200"),
+				lancamento("Mercado", 2, "DESPESA", "300"));
+
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString()).param("lote", "2")
+				.contentType(MediaType.APPLICATION_JSON).content(new ObjectMapper().writeValueAsString(dtos)))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("total").value(3))
+				.andExpect(MockMvcResultMatchers.jsonPath("inseridos").value(3))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros").isEmpty());
+
+		assertThat(lancamentosDoUsuario()).hasSize(3);
+		assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualByComparingTo("1500");
+	}
+
+	@Test
+	public void deveImportarCsvEmLotes() throws Exception {
+		String csv = "descricao,mes,ano,valor,tipo\n"
+				+ "Salario,1,2020,3000,RECEITA\n"
+				+ "\"Aluguel, janeiro\",1,2020,1200,despesa\n"
+				+ "\n"
+				+ "Mercado,2,2020,300.50,DESPESA\n";
+
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString()).param("lote", "2")
+				.contentType(CSV).content(csv))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("total").value(3))
+				.andExpect(MockMvcResultMatchers.jsonPath("inseridos").value(3))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros").isEmpty());
+
+		assertThat(lancamentosDoUsuario()).extracting(LancamentoResumo::getDescricao)
+				.containsExactlyInAnyOrder("Salario", "Aluguel, janeiro", "Mercado");
+		assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualByComparingTo("1499.50");
+	}
+
+	@Test
+	public void deveRelatarOsErrosPorLinhaEDesfazerOsLotesJaInseridos() throws Exception {
+		String csv = "descricao,mes,ano,valor,tipo\n"
+				+ "Salario,1,2020,3000,RECEITA\n"
+				+ "Aluguel,1,2020,mil,DESPESA\n"
+				+ "Mercado,13,2020,300,DESPESA\n"
+				+ "Luz,2,2020,100,OUTRO\n"
+				+ "Agua,2,2020\n"
+				+ "Internet,2,2020,90,DESPESA\n";
+
+		// com lote 1 a primeira linha ja foi inserida quando o erro aparece
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString()).param("lote", "1")
+				.contentType(CSV).content(csv))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest())
+				.andExpect(MockMvcResultMatchers.jsonPath("total").value(6))
+				.andExpect(MockMvcResultMatchers.jsonPath("inseridos").value(0))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros.length()").value(4))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros[0].linha").value(3))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros[0].mensagem").value("A linha contém um número inválido."))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros[1].linha").value(4))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros[2].linha").value(5))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros[2].mensagem").value("Tipo de Lancamento inválido: OUTRO"))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros[3].linha").value(6));
+
+		assertThat(lancamentosDoUsuario()).isEmpty();
+		assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualByComparingTo("0");
+	}
+
+	@Test
+	public void deveRecusarLoteAcimaDoMaximo() throws Exception {
+		String csv = "descricao,mes,ano,valor,tipo\nSalario,1,2020,3000,RECEITA\n";
+
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString())
+				.param("lote", "2000000000").contentType(CSV).content(csv))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest())
+				.andExpect(MockMvcResultMatchers.content().string("Informe um tamanho de lote entre 1 e 1000."));
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString())
+				.param("lote", "0").contentType(CSV).content(csv))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+		assertThat(lancamentosDoUsuario()).isEmpty();
+	}
+
+	@Test
+	public void devePararDeLerAoChegarNoMaximoDeErros() throws Exception {
+		StringBuilder csv = new StringBuilder("descricao,mes,ano,valor,tipo\n");
+		for (int i = 0; i < 150; i++) {
+			csv.append("Aluguel,1,2020,mil,DESPESA\n");
+		}
+
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString())
+				.contentType(CSV).content(csv.toString()))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest())
+				.andExpect(MockMvcResultMatchers.jsonPath("total").value(100))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros.length()").value(100))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros[99].linha").value(101));
+
+		assertThat(lancamentosDoUsuario()).isEmpty();
+	}
+
+	@Test
+	public void deveRelatarOItemInvalidoDoJson() throws Exception {
+		List<LancamentoDTO> dtos = Arrays.asList(
+				lancamento("Salario", 1, "RECEITA", "3000"),
+				lancamento("", 1, "DESPESA", "1200"));
+
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString())
+				.contentType(MediaType.APPLICATION_JSON).content(new ObjectMapper().writeValueAsString(dtos)))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest())
+				.andExpect(MockMvcResultMatchers.jsonPath("total").value(2))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros.length()").value(1))
+				.andExpect(MockMvcResultMatchers.jsonPath("erros[0].linha").value(2));
+
+		assertThat(lancamentosDoUsuario()).isEmpty();
+	}
+
+	@Test
+	public void deveRecusarCsvSemCabecalho() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString())
+				.contentType(CSV).content("Salario,1,2020,3000,RECEITA\n"))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+		assertThat(lancamentosDoUsuario()).isEmpty();
+	}
+
+	@Test
+	public void deveRecusarAImportacaoParaOutroUsuario() throws Exception {
+		List<LancamentoDTO> dtos = Arrays.asList(lancamento("Salario", 1, "RECEITA", "3000"));
+
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString())
+				.requestAttr("usuarioAutenticado", usuario.getId() + 1)
+				.contentType(MediaType.APPLICATION_JSON).content(new ObjectMapper().writeValueAsString(dtos)))
+				.andExpect(MockMvcResultMatchers.status().isForbidden());
+
+		mvc.perform(MockMvcRequestBuilders.post(API).param("usuario", usuario.getId().toString())
+				.requestAttr("usuarioAutenticado", usuario.getId() + 1)
+				.contentType(CSV).content("descricao,mes,ano,valor,tipo\nSalario,1,2020,3000,RECEITA\n"))
+				.andExpect(MockMvcResultMatchers.status().isForbidden());
+
+		assertThat(lancamentosDoUsuario()).isEmpty();
+	}
+
+	@Test
+	public void deveImportarParaOUsuarioAutenticado() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.post(API).requestAttr("usuarioAutenticado", usuario.getId())
+				.contentType(CSV).content("descricao,mes,ano,valor,tipo\nSalario,1,2020,3000,RECEITA\n"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("inseridos").value(1));
+
+		assertThat(lancamentosDoUsuario()).hasSize(1);
+	}
+
+	private LancamentoDTO lancamento(String descricao, Integer mes, String tipo, String valor) {
+		return LancamentoDTO.builder().descricao(descricao).mes(mes).ano(2020).tipo(tipo)
+				.valor(new BigDecimal(valor)).usuario(usuario.getId()).build();
+	}
+
+	private List<LancamentoResumo> lancamentosDoUsuario() {
+		Lancamento filtro = new Lancamento();
+		filtro.setUsuario(usuario);
+		return lancamentoService.buscar(filtro);
+	}
+}
@@ -0,0 +1,135 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepository;
+
+@SpringBootTest(properties = "minhasfinancas.reativo.habilitado=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class LancamentoReativoResourceTest {
+
+	static final String API = "/api/reativo";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	Usuario usuario;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(System.nanoTime() + "@email.com").senha("senha").build());
+
+		salvar("Conta de luz", 2020, 3, "DESPESA", "40.00");
+		salvar("Salario de marco", 2020, 3, "RECEITA", "1000.00");
+		salvar("Conta de agua", 2020, 4, "DESPESA", "10.00");
+	}
+
+	@Test
+	public void deveBuscarOsLancamentosEscritosPeloJpa() throws Exception {
+		executar(MockMvcRequestBuilders.get(API + "/lancamentos")
+				.param("usuario", usuario.getId().toString())
+				.param("ano", "2020")
+				.param("mes", "3"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+				.andExpect(MockMvcResultMatchers.jsonPath("$[0].descricao").value("Conta de luz"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$[0].tipo").value("DESPESA"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$[0].usuarioId").value(usuario.getId()));
+	}
+
+	@Test
+	public void deveBuscarPorTermoDaDescricao() throws Exception {
+		executar(MockMvcRequestBuilders.get(API + "/lancamentos")
+				.param("usuario", usuario.getId().toString())
+				.param("descricao", "CONTA"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[*].descricao",
+						Matchers.containsInAnyOrder("Conta de luz", "Conta de agua")));
+	}
+
+	@Test
+	public void deveExportarUmObjetoPorLinha() throws Exception {
+		String corpo = executar(MockMvcRequestBuilders.get(API + "/lancamentos/exportar")
+				.param("usuario", usuario.getId().toString())
+				.accept(MediaType.APPLICATION_STREAM_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertThat(corpo.trim().split("\n")).hasSize(3);
+	}
+
+	@Test
+	public void deveObterOSaldo() throws Exception {
+		executar(MockMvcRequestBuilders.get(API + "/usuarios/{id}/saldo", usuario.getId()))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.content().string(Matchers.startsWith("950")));
+	}
+
+	@Test
+	public void deveRecusarOsLancamentosDeOutroUsuario() throws Exception {
+		executar(MockMvcRequestBuilders.get(API + "/lancamentos")
+				.param("usuario", usuario.getId().toString())
+				.requestAttr("usuarioAutenticado", usuario.getId() + 1))
+				.andExpect(MockMvcResultMatchers.status().isForbidden());
+	}
+
+	@Test
+	public void deveRecusarAExportacaoEOSaldoDeOutroUsuario() throws Exception {
+		executar(MockMvcRequestBuilders.get(API + "/lancamentos/exportar")
+				.param("usuario", usuario.getId().toString())
+				.requestAttr("usuarioAutenticado", usuario.getId() + 1))
+				.andExpect(MockMvcResultMatchers.status().isForbidden());
+
+		executar(MockMvcRequestBuilders.get(API + "/usuarios/{id}/saldo", usuario.getId())
+				.requestAttr("usuarioAutenticado", usuario.getId() + 1))
+				.andExpect(MockMvcResultMatchers.status().isForbidden());
+	}
+
+	private ResultActions executar(MockHttpServletRequestBuilder requisicao)
+			throws Exception {
+		MvcResult resultado = mvc.perform(requisicao)
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+		return mvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado));
+	}
+
+	private void salvar(String descricao, int ano, int mes, String tipo, String valor) throws Exception {
+		LancamentoDTO dto = LancamentoDTO.builder()
+				.descricao(descricao)
+				.ano(ano)
+				.mes(mes)
+				.tipo(tipo)
+				.status("PENDENTE")
+				.valor(new BigDecimal(valor))
+				.usuario(usuario.getId())
+				.build();
+		mvc.perform(MockMvcRequestBuilders.post("/api/lancamentos").contentType(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(dto)))
+				.andExpect(MockMvcResultMatchers.status().isCreated());
+	}
+}
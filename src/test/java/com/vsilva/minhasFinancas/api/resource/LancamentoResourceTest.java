@@ -0,0 +1,339 @@
+package com.vsilva.minhasFinancas.api.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.dto.AtualizaStatusDTO;
+import com.vsilva.minhasFinancas.api.dto.AtualizaStatusEmLoteDTO;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.repository.LancamentoRepository;
+import com.vsilva.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepository;
+import com.vsilva.minhasFinancas.service.FilaStatusService;
+import com.vsilva.minhasFinancas.service.SaldoService;
+import com.vsilva.minhasFinancas.service.impl.SaldoServiceImpl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Conta os comandos SQL emitidos por cada endpoint de lançamentos, para que
+ * consultas redundantes voltem a aparecer só de forma intencional.
+ */
+// a fila de status so e processada quando o teste pede, para nao contar comandos
+// do worker nos outros testes
+@SpringBootTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+		"minhasfinancas.status.fila.intervalo-ms=3600000" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class LancamentoResourceTest {
+
+	static final String API = "/api/lancamentos";
+	static final MediaType JSON = MediaType.APPLICATION_JSON;
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	CacheManager cacheManager;
+
+	@Autowired
+	FilaStatusService filaStatusService;
+
+	@Autowired
+	SaldoService saldoService;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	Statistics statistics;
+
+	Usuario usuario;
+
+	Lancamento lancamento;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(System.nanoTime() + "@email.com").senha("senha").build());
+
+		// primeira escrita do usuario inicializa o saldo e o pool da sequence
+		String json = new ObjectMapper().writeValueAsString(criarDTO());
+		mvc.perform(MockMvcRequestBuilders.post(API).contentType(JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isCreated());
+
+		lancamento = lancamentoRepository.findAll().stream()
+				.filter(l -> l.getUsuario().getId().equals(usuario.getId()))
+				.findFirst().get();
+	}
+
+	@Test
+	public void deveSalvarSemConsultarOUsuario() throws Exception {
+		String json = new ObjectMapper().writeValueAsString(criarDTO());
+
+		long comandos = contarComandos(MockMvcRequestBuilders.post(API).contentType(JSON).content(json));
+
+		// insert do lancamento + update do saldo
+		assertThat(comandos).isEqualTo(2);
+	}
+
+	@Test
+	public void deveBuscarLancamentos() throws Exception {
+		long comandos = contarComandos(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString()));
+
+		// select da versao em saldo_usuario + um unico select com as colunas da
+		// projecao, sem o usuario
+		assertThat(comandos).isEqualTo(2);
+	}
+
+	@Test
+	public void deveResumirEmUmaUnicaConsulta() throws Exception {
+		long comandos = contarComandos(MockMvcRequestBuilders.get(API + "/resumo")
+				.param("usuario", usuario.getId().toString())
+				.param("anoInicial", "2019").param("anoFinal", "2019"));
+
+		// um unico select agrupado por ano, mes, tipo e status
+		assertThat(comandos).isEqualTo(1);
+	}
+
+	@Test
+	public void deveAtualizarUmLancamento() throws Exception {
+		LancamentoDTO dto = criarDTO();
+		dto.setValor(BigDecimal.valueOf(20));
+		String json = new ObjectMapper().writeValueAsString(dto);
+
+		long comandos = contarComandos(
+				MockMvcRequestBuilders.put(API + "/" + lancamento.getId()).contentType(JSON).content(json));
+
+		// select do lancamento + update do lancamento + update do saldo
+		assertThat(comandos).isEqualTo(3);
+	}
+
+	@Test
+	public void deveAtualizarParcialmenteSoAColunaAlterada() throws Exception {
+		String json = new ObjectMapper().writeValueAsString(LancamentoDTO.builder().descricao("nova descricao").build());
+
+		statistics.clear();
+		mvc.perform(MockMvcRequestBuilders.patch(API + "/" + lancamento.getId())
+				.header(HttpHeaders.IF_MATCH, "\"" + lancamento.getVersao() + "\"")
+				.contentType(JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG,
+						"\"" + (lancamento.getVersao() + 1) + "\""));
+
+		// select do lancamento + update da descricao + update da versao do usuario
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(lancamentoRepository.findById(lancamento.getId()).get().getDescricao()).isEqualTo("nova descricao");
+	}
+
+	@Test
+	public void deveRecusarAlteracaoComVersaoDesatualizada() throws Exception {
+		String json = new ObjectMapper().writeValueAsString(LancamentoDTO.builder().valor(BigDecimal.ONE).build());
+
+		mvc.perform(MockMvcRequestBuilders.patch(API + "/" + lancamento.getId())
+				.header(HttpHeaders.IF_MATCH, "\"" + (lancamento.getVersao() + 1) + "\"")
+				.contentType(JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+
+		assertThat(lancamentoRepository.findById(lancamento.getId()).get().getValor())
+				.isEqualByComparingTo(lancamento.getValor());
+	}
+
+	@Test
+	public void deveAtualizarOStatusDeUmLancamento() throws Exception {
+		String json = new ObjectMapper().writeValueAsString(new AtualizaStatusDTO("EFETIVADO"));
+
+		long comandos = contarComandos(MockMvcRequestBuilders.put(API + "/" + lancamento.getId() + "/atualiza-status")
+				.contentType(JSON).content(json));
+
+		// select do lancamento + update do lancamento + update da versao do usuario
+		assertThat(comandos).isEqualTo(3);
+	}
+
+	@Test
+	public void deveEnfileirarOStatusSemAcessarOBanco() throws Exception {
+		String json = new ObjectMapper().writeValueAsString(new AtualizaStatusDTO("EFETIVADO"));
+
+		statistics.clear();
+		mvc.perform(MockMvcRequestBuilders.put(API + "/" + lancamento.getId() + "/atualiza-status")
+				.param("async", "true").contentType(JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isAccepted());
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+		filaStatusService.processar();
+	}
+
+	@Test
+	public void deveAtualizarOStatusEmLoteComUmUnicoUpdate() throws Exception {
+		String json = new ObjectMapper().writeValueAsString(AtualizaStatusEmLoteDTO.builder()
+				.status("EFETIVADO").usuario(usuario.getId()).ano(2019).mes(1).statusAtual("PENDENTE").build());
+
+		long comandos = contarComandos(MockMvcRequestBuilders.put(API + "/atualiza-status")
+				.contentType(JSON).content(json));
+
+		// um unico update por filtro + update da versao do usuario, sem leituras
+		assertThat(comandos).isEqualTo(2);
+		assertThat(lancamentoRepository.findById(lancamento.getId()).get().getStatus())
+				.isEqualTo(StatusLancamento.EFETIVADO);
+	}
+
+	@Test
+	public void deveDeletarUmLancamento() throws Exception {
+		long comandos = contarComandos(MockMvcRequestBuilders.delete(API + "/" + lancamento.getId()));
+
+		// select do lancamento + delete do lancamento + update do saldo
+		assertThat(comandos).isEqualTo(3);
+	}
+
+	@Test
+	public void deveObterOSaldo() throws Exception {
+		long comandos = contarComandos(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo"));
+
+		// select do usuario + select do saldo
+		assertThat(comandos).isEqualTo(2);
+	}
+
+	@Test
+	public void deveServirOSaldoDoCacheAteAProximaEscrita() throws Exception {
+		String saldo = "/api/usuarios/" + usuario.getId() + "/saldo";
+		assertThat(obterSaldo(saldo)).isEqualByComparingTo("10");
+
+		// usuario e saldo ja estao em cache
+		assertThat(contarComandos(MockMvcRequestBuilders.get(saldo))).isEqualTo(0);
+
+		String json = new ObjectMapper().writeValueAsString(criarDTO());
+		mvc.perform(MockMvcRequestBuilders.post(API).contentType(JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isCreated());
+
+		// o commit da inclusao descarta o saldo em cache
+		assertThat(obterSaldo(saldo)).isEqualByComparingTo("20");
+	}
+
+	@Test
+	public void deveResponderNaoModificadoSemConsultarLancamentos() throws Exception {
+		String saldo = "/api/usuarios/" + usuario.getId() + "/saldo";
+		String etagSaldo = obterEtag(MockMvcRequestBuilders.get(saldo));
+		String etagLancamentos = obterEtag(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString()));
+		double naoModificadas = contarNaoModificadas();
+
+		// so a leitura da versao em saldo_usuario, nenhuma em lancamento
+		cacheManager.getCache(SaldoServiceImpl.CACHE_SALDOS).clear();
+		statistics.clear();
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.header(HttpHeaders.IF_NONE_MATCH, etagLancamentos))
+				.andExpect(MockMvcResultMatchers.status().isNotModified());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityStatistics(SaldoUsuario.class.getName()).getLoadCount()).isEqualTo(1);
+
+		// com a versao em cache, nenhum comando
+		statistics.clear();
+		mvc.perform(MockMvcRequestBuilders.get(saldo).header(HttpHeaders.IF_NONE_MATCH, etagSaldo))
+				.andExpect(MockMvcResultMatchers.status().isNotModified());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+		assertThat(contarNaoModificadas()).isEqualTo(naoModificadas + 2);
+
+		// uma escrita muda a versao
+		String json = new ObjectMapper().writeValueAsString(new AtualizaStatusDTO("EFETIVADO"));
+		mvc.perform(MockMvcRequestBuilders.put(API + "/" + lancamento.getId() + "/atualiza-status")
+				.contentType(JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+		mvc.perform(MockMvcRequestBuilders.get(saldo).header(HttpHeaders.IF_NONE_MATCH, etagSaldo))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, Matchers.not(etagSaldo)));
+	}
+
+	@Test
+	public void deveGuardarNoCacheUmaCopiaDoSaldo() {
+		cacheManager.getCache(SaldoServiceImpl.CACHE_SALDOS).clear();
+		TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+		leitura.setReadOnly(true);
+
+		BigDecimal saldo = leitura.execute(status -> {
+			SaldoUsuario lido = saldoService.obterSituacao(usuario.getId());
+			BigDecimal original = lido.getSaldo();
+			// a entidade gerenciada ainda pode mudar na transacao; o cache nao
+			lido.setSaldo(original.add(BigDecimal.TEN));
+			return original;
+		});
+
+		SaldoUsuario emCache = (SaldoUsuario) cacheManager.getCache(SaldoServiceImpl.CACHE_SALDOS)
+				.get(usuario.getId()).get();
+		assertThat(emCache.getSaldo()).isEqualByComparingTo(saldo);
+	}
+
+	private String obterEtag(MockHttpServletRequestBuilder request) throws Exception {
+		return mvc.perform(request)
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+	}
+
+	private double contarNaoModificadas() {
+		return meterRegistry.find("minhasfinancas.http.condicional").tag("resultado", "nao-modificado")
+				.counters().stream().mapToDouble(Counter::count).sum();
+	}
+
+	private BigDecimal obterSaldo(String url) throws Exception {
+		return new BigDecimal(mvc.perform(MockMvcRequestBuilders.get(url))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andReturn().getResponse().getContentAsString());
+	}
+
+	private long contarComandos(MockHttpServletRequestBuilder request) throws Exception {
+		statistics.clear();
+		mvc.perform(request).andExpect(MockMvcResultMatchers.status().is2xxSuccessful());
+		return statistics.getPrepareStatementCount();
+	}
+
+	private LancamentoDTO criarDTO() {
+		Lancamento modelo = LancamentoRepositoryTest.criarLancamento();
+		return LancamentoDTO.builder()
+				.descricao(modelo.getDescricao())
+				.mes(modelo.getMes())
+				.ano(modelo.getAno())
+				.valor(modelo.getValor())
+				.tipo(modelo.getTipo().name())
+				.usuario(usuario.getId())
+				.build();
+	}
+}
@@ -1,5 +1,7 @@
 package com.vsilva.minhasFinancas.api.resource;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -13,6 +15,7 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -22,6 +25,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vsilva.minhasFinancas.api.dto.UsuarioDTO;
 import com.vsilva.minhasFinancas.model.entity.Usuario;
 import com.vsilva.minhasFinancas.service.LancamentoService;
+import com.vsilva.minhasFinancas.service.TokenService;
 import com.vsilva.minhasFinancas.service.UsuarioService;
 import com.vsilva.minhasFinancas.service.exception.ErroAutentiacao;
 import com.vsilva.minhasFinancas.service.exception.RegraNegocioException;
@@ -44,6 +48,12 @@ public class UsuarioResourceTest {
 	@MockBean
 	LancamentoService lancamentoService;
 
+	@MockBean
+	TokenService tokenService;
+
+	@MockBean
+	RespostaCondicional respostaCondicional;
+
 	@Test
 	public void deveAutenticarUmUsuario() throws Exception {
 
@@ -54,7 +64,7 @@ public class UsuarioResourceTest {
 		UsuarioDTO dto = UsuarioDTO.builder().email(email).senha(senha).build();
 		Usuario usuario = Usuario.builder().id(1l).email(email).senha(senha).build();
 
-		Mockito.when(service.autenticar(email, senha)).thenReturn(usuario);
+		Mockito.when(service.autenticarAsync(email, senha)).thenReturn(CompletableFuture.completedFuture(usuario));
 
 		String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -62,7 +72,8 @@ public class UsuarioResourceTest {
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(API.concat("/autenticar")).accept(JSON)
 				.contentType(JSON).content(json);
 
-		mvc.perform(request).andExpect(MockMvcResultMatchers.status().isOk())
+		MvcResult resultado = mvc.perform(request).andReturn();
+		mvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado)).andExpect(MockMvcResultMatchers.status().isOk())
 				.andExpect(MockMvcResultMatchers.jsonPath("id").value(usuario.getId()))
 				.andExpect(MockMvcResultMatchers.jsonPath("nome").value(usuario.getNome()))
 				.andExpect(MockMvcResultMatchers.jsonPath("email").value(usuario.getEmail()));
@@ -78,7 +89,9 @@ public class UsuarioResourceTest {
 
 		UsuarioDTO dto = UsuarioDTO.builder().email(email).senha(senha).build();
 
-		Mockito.when(service.autenticar(email, senha)).thenThrow(ErroAutentiacao.class);
+		CompletableFuture<Usuario> erro = new CompletableFuture<>();
+		erro.completeExceptionally(new ErroAutentiacao("Senha Invalida"));
+		Mockito.when(service.autenticarAsync(email, senha)).thenReturn(erro);
 
 		String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -86,7 +99,9 @@ public class UsuarioResourceTest {
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(API.concat("/autenticar")).accept(JSON)
 				.contentType(JSON).content(json);
 
-		mvc.perform(request).andExpect(MockMvcResultMatchers.status().isBadRequest());
+		MvcResult resultado = mvc.perform(request).andReturn();
+		mvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest());
 
 	}
 	
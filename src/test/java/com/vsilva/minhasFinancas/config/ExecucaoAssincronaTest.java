@@ -0,0 +1,62 @@
+package com.vsilva.minhasFinancas.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = "minhasfinancas.execucao.modo=assincrono")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ExecucaoAssincronaTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Test
+	public void deveExecutarOHandlerNoExecutorJdbc() throws Exception {
+		Usuario usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(System.nanoTime() + "@email.com").senha("senha").build());
+
+		MvcResult resultado = mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/{id}/saldo", usuario.getId()))
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+
+		mvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.header().exists("ETag"));
+
+		// as threads do executor so sao criadas quando recebem uma tarefa
+		assertThat(registry.find("executor.pool.size").tag("name", "jdbc").gauge())
+				.isNotNull()
+				.satisfies(threads -> assertThat(threads.value()).isPositive());
+	}
+
+	@Test
+	public void deveManterOsErrosDoHandler() throws Exception {
+		MvcResult resultado = mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos/{id}", Long.MAX_VALUE))
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+
+		mvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado))
+				.andExpect(MockMvcResultMatchers.status().isNotFound());
+	}
+}
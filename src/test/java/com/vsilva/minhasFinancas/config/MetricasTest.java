@@ -0,0 +1,68 @@
+package com.vsilva.minhasFinancas.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class MetricasTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Test
+	public void deveMedirServicosERepositorios() throws Exception {
+		Usuario usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(System.nanoTime() + "@email.com").senha("senha").build());
+
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos").param("usuario", usuario.getId().toString()))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+
+		assertThat(registry.find(MetricasAspect.TIMER_SERVICO)
+				.tags("classe", "LancamentoServiceImpl", "metodo", "buscar", "excecao", "none").timer())
+				.isNotNull()
+				.satisfies(timer -> assertThat(timer.count()).isPositive());
+		assertThat(registry.find(MetricasAspect.TIMER_REPOSITORIO)
+				.tags("classe", "UsuarioRepository", "metodo", "save").timer())
+				.isNotNull();
+	}
+
+	@Test
+	public void deveExporAsMetricasNoFormatoPrometheus() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos/resumo").param("usuario", "0"))
+				.andReturn();
+
+		String metricas = mvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertThat(metricas)
+				.contains("minhasfinancas_servico_seconds_bucket")
+				.contains("http_server_requests_seconds_bucket")
+				.contains("hibernate_statements_total")
+				.contains("hibernate_query_executions_max_seconds")
+				.contains("hibernate_second_level_cache_requests_total")
+				.contains("hikaricp_connections_active")
+				.contains("cache_gets_total");
+	}
+}
@@ -0,0 +1,53 @@
+package com.vsilva.minhasFinancas.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * O endpoint de arquivamento altera dados: existe no JMX, mas não por HTTP.
+ * Os testes do Spring Boot desligam o JMX, então ele é religado aqui como no
+ * {@code application.properties}.
+ */
+@SpringBootTest(properties = { "minhasfinancas.particionamento.habilitado=true", "spring.jmx.enabled=true" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ParticoesEndpointTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Test
+	public void naoDeveExporParticoesPorHttp() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/actuator/particoes"))
+				.andExpect(MockMvcResultMatchers.status().isNotFound());
+		mvc.perform(MockMvcRequestBuilders.post("/actuator/particoes/2019"))
+				.andExpect(MockMvcResultMatchers.status().isNotFound());
+	}
+
+	@Test
+	public void deveExporParticoesPorJmx() throws Exception {
+		MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+		Set<ObjectName> nomes = servidor
+				.queryNames(new ObjectName("org.springframework.boot:type=Endpoint,name=Particoes,*"), null);
+		assertThat(nomes).isNotEmpty();
+
+		Object situacao = servidor.invoke(nomes.iterator().next(), "situacao", new Object[0], new String[0]);
+		assertThat(situacao).isInstanceOf(Map.class);
+		assertThat(((Map<?, ?>) situacao).containsKey("arquivados")).isTrue();
+	}
+}
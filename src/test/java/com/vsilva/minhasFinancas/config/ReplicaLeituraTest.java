@@ -0,0 +1,150 @@
+package com.vsilva.minhasFinancas.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.Collections;
+
+import org.flywaydb.core.Flyway;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Primária e réplica são dois bancos H2 em memória, sem replicação entre eles:
+ * o que é gravado direto na réplica mostra de onde a leitura veio.
+ */
+@SpringBootTest(properties = {
+		"minhasfinancas.replicas.habilitadas=true",
+		"minhasfinancas.replicas.urls=" + ReplicaLeituraTest.URL_REPLICA,
+		"minhasfinancas.replicas.janela-ms=60000" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ReplicaLeituraTest {
+
+	static final String URL_REPLICA = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas";
+
+	static JdbcTemplate replica;
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	MeterRegistry registry;
+
+	Usuario usuario;
+
+	@BeforeAll
+	public static void criarReplica() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(URL_REPLICA, "sa", "sa");
+		Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").schemas("financas")
+				.load().migrate();
+		replica = new JdbcTemplate(dataSource);
+	}
+
+	@BeforeEach
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email(System.nanoTime() + "@email.com").senha("senha").build());
+		replica.update("insert into financas.usuario (id, nome, email, senha) values (?, ?, ?, ?)",
+				usuario.getId(), usuario.getNome(), usuario.getEmail(), usuario.getSenha());
+		replica.update("insert into financas.lancamento (id, descricao, mes, ano, valor, tipo, status, id_usuario)"
+				+ " values (?, 'Somente na replica', 1, 2020, 10, 'DESPESA', 'PENDENTE', ?)",
+				usuario.getId(), usuario.getId());
+	}
+
+	@Test
+	public void deveLerDaReplicaNasRequisicoesGet() throws Exception {
+		double antes = conexoes("replica-0");
+
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos").param("usuario", usuario.getId().toString()))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[*].descricao").value(
+						Matchers.contains("Somente na replica")));
+
+		assertThat(conexoes("replica-0")).isGreaterThan(antes);
+	}
+
+	@Test
+	public void deveLerDaPrimariaDepoisDeEscrever() throws Exception {
+		LancamentoDTO dto = LancamentoDTO.builder().descricao("Gravado na primaria").ano(2020).mes(2)
+				.tipo("RECEITA").status("PENDENTE").valor(new BigDecimal("50.00")).usuario(usuario.getId()).build();
+		mvc.perform(MockMvcRequestBuilders.post("/api/lancamentos").contentType(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(dto)))
+				.andExpect(MockMvcResultMatchers.status().isCreated());
+
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos").param("usuario", usuario.getId().toString()))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[*].descricao").value(
+						Matchers.contains("Gravado na primaria")));
+		mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/{id}/saldo", usuario.getId()))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.content().string(Matchers.startsWith("50")));
+	}
+
+	@Test
+	public void deveLerDaPrimariaComAReplicaIndisponivel() throws Exception {
+		HikariDataSource primaria = new HikariDataSource();
+		primaria.setJdbcUrl("jdbc:h2:mem:primaria-indisponivel");
+		HikariDataSource indisponivel = new HikariDataSource();
+		indisponivel.setJdbcUrl("jdbc:h2:mem:inexistente;IFEXISTS=TRUE");
+		indisponivel.setPoolName("replica-0");
+		indisponivel.setConnectionTimeout(250);
+		indisponivel.setInitializationFailTimeout(-1);
+		SimpleMeterRegistry metricas = new SimpleMeterRegistry();
+		ConsistenciaLeitura consistencia = new ConsistenciaLeitura(1000);
+		RoteamentoDataSource roteamento = new RoteamentoDataSource(primaria, Collections.singletonList(indisponivel),
+				consistencia, RoteamentoDataSource.Selecao.RODIZIO, metricas);
+		// o proxy le os padroes da conexao da primaria ao ser criado
+		double antes = metricas.get(RoteamentoDataSource.METRICA_CONEXOES).tag("destino", RoteamentoDataSource.PRIMARIA)
+				.counter().count();
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		consistencia.preHandle(new MockHttpServletRequest("GET", "/api/lancamentos"), new MockHttpServletResponse(),
+				null);
+		try (Connection conexao = roteamento.getConnection()) {
+			assertThat(conexao.getMetaData().getURL()).isEqualTo("jdbc:h2:mem:primaria-indisponivel");
+		} finally {
+			consistencia.afterCompletion(new MockHttpServletRequest("GET", "/api/lancamentos"),
+					new MockHttpServletResponse(), null, null);
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+			roteamento.fechar();
+		}
+
+		assertThat(metricas.get(RoteamentoDataSource.METRICA_DISPONIVEL).tag("replica", "replica-0").gauge().value())
+				.isZero();
+		assertThat(metricas.get(RoteamentoDataSource.METRICA_CONEXOES).tag("destino", RoteamentoDataSource.PRIMARIA)
+				.counter().count()).isEqualTo(antes + 1);
+	}
+
+	private double conexoes(String destino) {
+		return registry.get(RoteamentoDataSource.METRICA_CONEXOES).tag("destino", destino).counter().count();
+	}
+}
@@ -0,0 +1,166 @@
+package com.vsilva.minhasFinancas.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vsilva.minhasFinancas.api.dto.LancamentoDTO;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.shard.AnelConsistente;
+import com.vsilva.minhasFinancas.model.shard.DiretorioShards;
+import com.vsilva.minhasFinancas.model.shard.Shards;
+import com.vsilva.minhasFinancas.service.RebalanceamentoService;
+import com.vsilva.minhasFinancas.service.UsuarioService;
+
+/**
+ * Dois shards H2 em memória: o banco dos demais testes é o shard 0 e o
+ * catálogo, e o shard 1 é migrado na subida.
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.open-in-view=false",
+		"minhasfinancas.shards.habilitados=true",
+		"minhasfinancas.shards.rebalanceamento.tamanho-lote=2",
+		"minhasfinancas.shards.urls=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ShardTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioService usuarioService;
+
+	@Autowired
+	DiretorioShards diretorio;
+
+	@Autowired
+	RebalanceamentoService rebalanceamento;
+
+	Usuario usuario;
+
+	@BeforeEach
+	public void setUp() {
+		// o anel decide o shard pelo id, entao cadastra ate cair no shard 1
+		do {
+			usuario = usuarioService.salvarUsuario(Usuario.builder().nome("usuario")
+					.email(System.nanoTime() + "@email.com").senha("senha").build());
+		} while (diretorio.getAnel().shardDo(usuario.getId()) != 1);
+	}
+
+	@Test
+	public void deveDistribuirOsUsuariosEMoverPoucosAoIncluirUmShard() {
+		AnelConsistente tres = new AnelConsistente(3, 64);
+		AnelConsistente quatro = new AnelConsistente(4, 64);
+		Map<Integer, Integer> porShard = new HashMap<>();
+		int movidos = 0;
+		for (long id = 1; id <= 10_000; id++) {
+			porShard.merge(quatro.shardDo(id), 1, Integer::sum);
+			if (tres.shardDo(id) != quatro.shardDo(id)) {
+				// so vai para o shard novo
+				assertThat(quatro.shardDo(id)).isEqualTo(3);
+				movidos++;
+			}
+		}
+
+		assertThat(porShard.values()).allSatisfy(usuarios -> assertThat(usuarios).isBetween(1_500, 3_500));
+		assertThat(movidos).isBetween(1_500, 3_500);
+	}
+
+	@Test
+	public void deveGravarELerNoShardDoUsuario() throws Exception {
+		criarLancamento();
+
+		Map<String, Object> gravado = shard(1).queryForMap(
+				"select id, id_usuario from financas.lancamento where id_usuario = ?", usuario.getId());
+		long id = ((Number) gravado.get("id")).longValue();
+		assertThat(Shards.origem(id)).isEqualTo(1);
+		assertThat(shard(0).queryForObject("select count(*) from financas.lancamento where id_usuario = ?",
+				Integer.class, usuario.getId())).isZero();
+
+		assertLeitura(id);
+	}
+
+	@Test
+	public void deveMoverUsuarioParaOutroShard() throws Exception {
+		criarLancamento();
+		long id = shard(1).queryForObject("select id from financas.lancamento where id_usuario = ?", Long.class,
+				usuario.getId());
+
+		assertThat(rebalanceamento.mover(usuario.getId(), 0)).isEqualTo(1);
+
+		assertThat(diretorio.shardDo(usuario.getId())).isZero();
+		assertThat(shard(1).queryForObject("select count(*) from financas.lancamento where id_usuario = ?",
+				Integer.class, usuario.getId())).isZero();
+		assertThat(shard(1).queryForObject("select count(*) from financas.usuario where id = ?",
+				Integer.class, usuario.getId())).isZero();
+		assertThat(shard(0).queryForObject("select count(*) from financas.lancamento where id = ?",
+				Integer.class, id)).isEqualTo(1);
+
+		assertLeitura(id);
+	}
+
+	@Test
+	public void deveMoverEmLotesUmHistoricoMaiorQueOLote() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			criarLancamento();
+		}
+
+		assertThat(rebalanceamento.mover(usuario.getId(), 0)).isEqualTo(5);
+
+		assertThat(shard(0).queryForObject("select count(*) from financas.lancamento where id_usuario = ?",
+				Integer.class, usuario.getId())).isEqualTo(5);
+		assertThat(shard(0).queryForObject("select saldo from financas.saldo_usuario where id_usuario = ?",
+				BigDecimal.class, usuario.getId())).isEqualByComparingTo("250");
+		assertThat(shard(1).queryForObject("select count(*) from financas.lancamento where id_usuario = ?",
+				Integer.class, usuario.getId())).isZero();
+	}
+
+	@Test
+	public void naoDeveMoverUsuarioPorHttp() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.post("/actuator/shards/" + usuario.getId()).param("destino", "0"))
+				.andExpect(MockMvcResultMatchers.status().isNotFound());
+
+		assertThat(diretorio.shardDo(usuario.getId())).isEqualTo(1);
+	}
+
+	private void criarLancamento() throws Exception {
+		LancamentoDTO dto = LancamentoDTO.builder().descricao("No shard do usuario").ano(2020).mes(2)
+				.tipo("RECEITA").status("PENDENTE").valor(new BigDecimal("50.00")).usuario(usuario.getId()).build();
+		mvc.perform(MockMvcRequestBuilders.post("/api/lancamentos").contentType(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(dto)))
+				.andExpect(MockMvcResultMatchers.status().isCreated());
+	}
+
+	private void assertLeitura(long id) throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos").param("usuario", usuario.getId().toString()))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[*].descricao").value(
+						Matchers.contains("No shard do usuario")));
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos/{id}", id))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+		mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/{id}/saldo", usuario.getId()))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.content().string(Matchers.startsWith("50")));
+	}
+
+	private JdbcTemplate shard(int shard) {
+		return diretorio.jdbc(shard);
+	}
+}
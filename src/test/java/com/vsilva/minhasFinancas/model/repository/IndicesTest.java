@@ -0,0 +1,57 @@
+package com.vsilva.minhasFinancas.model.repository;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Garante, pelo plano de execução do banco, que as consultas mais frequentes
+ * continuam usando os índices criados pelas migrações.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+public class IndicesTest {
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Test
+	public void deveUsarOIndiceDeUsuarioETipoNoCalculoDoSaldo() {
+		String plano = explicar("select sum(l.valor) from financas.lancamento l "
+				+ "where l.id_usuario = 1 and l.tipo = 'RECEITA'");
+
+		assertThat(plano).containsIgnoringCase("idx_lancamento_usuario_tipo_status");
+	}
+
+	@Test
+	public void deveUsarOIndiceDeUsuarioAnoEMesNaListagem() {
+		String plano = explicar("select l.id from financas.lancamento l "
+				+ "where l.id_usuario = 1 and l.ano = 2020 and l.mes = 1 order by l.ano, l.mes, l.id");
+
+		assertThat(plano).containsIgnoringCase("idx_lancamento_usuario_ano_mes");
+	}
+
+	@Test
+	public void deveUsarOIndiceUnicoNaBuscaPorEmail() {
+		String plano = explicar("select u.id from financas.usuario u where u.email = 'usuario@email.com'");
+
+		assertThat(plano).containsIgnoringCase("uk_usuario_email");
+	}
+
+	private String explicar(String sql) {
+		return String.valueOf(entityManager.getEntityManager()
+				.createNativeQuery("explain " + sql)
+				.getSingleResult());
+	}
+
+}
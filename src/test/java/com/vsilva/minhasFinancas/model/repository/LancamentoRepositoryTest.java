@@ -2,6 +2,7 @@ package com.vsilva.minhasFinancas.model.repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -17,8 +18,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
 import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
 import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.projection.LancamentoResumo;
+import com.vsilva.minhasFinancas.model.projection.TotalLancamentos;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -80,6 +84,100 @@ public class LancamentoRepositoryTest {
 		assertThat(lancamentoEncontrado.isPresent()).isTrue();
 	}
 
+	@Test
+	public void deveBuscarLancamentosPorCursorOrdenadosPorAnoMesEId() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Lancamento fevereiro = persistirLancamentoDoUsuario(usuario, 2019, 2);
+		Lancamento janeiro = persistirLancamentoDoUsuario(usuario, 2019, 1);
+		Lancamento marco = persistirLancamentoDoUsuario(usuario, 2019, 3);
+
+		Lancamento filtro = new Lancamento();
+		filtro.setUsuario(usuario);
+
+		List<LancamentoResumo> primeiraPagina = repository.buscarAposCursor(filtro, null, 2);
+		assertThat(primeiraPagina).extracting("id").containsExactly(janeiro.getId(), fevereiro.getId());
+
+		List<LancamentoResumo> segundaPagina = repository.buscarAposCursor(filtro, fevereiro, 2);
+		assertThat(segundaPagina).extracting("id").containsExactly(marco.getId());
+		assertThat(segundaPagina.get(0).getUsuarioId()).isEqualTo(usuario.getId());
+	}
+
+	@Test
+	public void deveBuscarPorPrefixoDosTermosDaDescricaoOrdenandoPorRelevancia() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		// o prefixo vem antes em ano/mes e em id, entao so a relevancia poe o termo inteiro na frente
+		Lancamento agua = persistirLancamentoDoUsuario(usuario, 2019, 1);
+		agua.setDescricao("Aguapé do jardim");
+		Lancamento conta = persistirLancamentoDoUsuario(usuario, 2019, 2);
+		conta.setDescricao("Conta de Água");
+		Lancamento luz = persistirLancamentoDoUsuario(usuario, 2019, 3);
+		luz.setDescricao("Conta de luz");
+		entityManager.flush();
+
+		Lancamento filtro = new Lancamento();
+		filtro.setUsuario(usuario);
+		filtro.setDescricao("agua");
+
+		assertThat(repository.buscar(filtro, 0, 10)).extracting("id").containsExactly(conta.getId(), agua.getId());
+		assertThat(repository.contar(filtro)).isEqualTo(2);
+
+		filtro.setDescricao("CONTA ág");
+		assertThat(repository.buscar(filtro, 0, 10)).extracting("id").containsExactly(conta.getId());
+	}
+
+	@Test
+	public void deveTotalizarPorAnoMesTipoEStatus() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		persistirLancamentoDoUsuario(usuario, 2019, 1);
+		persistirLancamentoDoUsuario(usuario, 2019, 1);
+		persistirLancamentoDoUsuario(usuario, 2019, 2).setStatus(StatusLancamento.EFETIVADO);
+		persistirLancamentoDoUsuario(usuario, 2020, 1);
+		persistirLancamentoDoUsuario(usuario, 2021, 1);
+		entityManager.flush();
+
+		List<TotalLancamentos> mensais = repository.obterTotaisMensais(usuario.getId(), 2019, 2020);
+		assertThat(mensais).extracting("ano", "mes", "status", "quantidade").containsExactly(
+				tuple(2019, 1, StatusLancamento.PENDENTE, 2L),
+				tuple(2019, 2, StatusLancamento.EFETIVADO, 1L),
+				tuple(2020, 1, StatusLancamento.PENDENTE, 1L));
+		assertThat(mensais.get(0).getTotal()).isEqualByComparingTo("20");
+
+		List<TotalLancamentos> anuais = repository.obterTotaisAnuais(usuario.getId(), 2019, 2019);
+		assertThat(anuais).extracting("ano", "mes", "status", "quantidade").containsExactly(
+				tuple(2019, null, StatusLancamento.EFETIVADO, 1L),
+				tuple(2019, null, StatusLancamento.PENDENTE, 2L));
+	}
+
+	@Test
+	public void deveAtualizarOStatusPorFiltroEmUmUnicoComando() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Lancamento janeiro = persistirLancamentoDoUsuario(usuario, 2019, 1);
+		Lancamento outroJaneiro = persistirLancamentoDoUsuario(usuario, 2019, 1);
+		outroJaneiro.setStatus(StatusLancamento.CANCELADO);
+		Lancamento fevereiro = persistirLancamentoDoUsuario(usuario, 2019, 2);
+		entityManager.flush();
+
+		int atualizados = repository.atualizarStatusPorFiltro(usuario.getId(), 2019, 1, null,
+				StatusLancamento.PENDENTE, StatusLancamento.EFETIVADO);
+		entityManager.clear();
+
+		assertThat(atualizados).isEqualTo(1);
+		assertThat(entityManager.find(Lancamento.class, janeiro.getId()).getStatus())
+				.isEqualTo(StatusLancamento.EFETIVADO);
+		assertThat(entityManager.find(Lancamento.class, outroJaneiro.getId()).getStatus())
+				.isEqualTo(StatusLancamento.CANCELADO);
+		assertThat(entityManager.find(Lancamento.class, fevereiro.getId()).getStatus())
+				.isEqualTo(StatusLancamento.PENDENTE);
+	}
+
+	private Lancamento persistirLancamentoDoUsuario(Usuario usuario, int ano, int mes) {
+		Lancamento lancamento = criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setAno(ano);
+		lancamento.setMes(mes);
+		return entityManager.persist(lancamento);
+	}
+
 	private Lancamento criarPersistirUmLancamento() {
 		Lancamento lancamento = criarLancamento();
 		entityManager.persist(lancamento);
@@ -0,0 +1,144 @@
+package com.vsilva.minhasFinancas.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.enums.StatusLancamento;
+import com.vsilva.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepositoryTest;
+import com.vsilva.minhasFinancas.service.exception.FilaCheiaException;
+import com.vsilva.minhasFinancas.service.impl.FilaStatusServiceImpl;
+import com.vsilva.minhasFinancas.service.impl.SaldoServiceImpl;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = { "minhasfinancas.status.fila.capacidade=2",
+		"minhasfinancas.status.fila.intervalo-ms=3600000" })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+@Import({ FilaStatusServiceImpl.class, SaldoServiceImpl.class })
+public class FilaStatusServiceTest {
+
+	@Autowired
+	FilaStatusService service;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Test
+	public void deveAplicarSomenteAUltimaMudancaDeCadaLancamento() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Lancamento primeiro = persistirLancamento(usuario);
+		Lancamento segundo = persistirLancamento(usuario);
+
+		service.enfileirar(primeiro.getId(), null, StatusLancamento.CANCELADO);
+		service.enfileirar(primeiro.getId(), null, StatusLancamento.EFETIVADO);
+		service.enfileirar(segundo.getId(), usuario.getId(), StatusLancamento.CANCELADO);
+
+		assertThat(service.obterSituacao().getPendentes()).isEqualTo(2);
+		assertThat(service.processar()).isEqualTo(2);
+		assertThat(service.obterSituacao().getPendentes()).isZero();
+
+		entityManager.clear();
+		assertThat(entityManager.find(Lancamento.class, primeiro.getId()).getStatus())
+				.isEqualTo(StatusLancamento.EFETIVADO);
+		assertThat(entityManager.find(Lancamento.class, segundo.getId()).getStatus())
+				.isEqualTo(StatusLancamento.CANCELADO);
+	}
+
+	@Test
+	public void naoDeveAlterarLancamentoDeOutroUsuario() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Lancamento lancamento = persistirLancamento(usuario);
+
+		service.enfileirar(lancamento.getId(), usuario.getId() + 1, StatusLancamento.EFETIVADO);
+
+		assertThat(service.processar()).isZero();
+	}
+
+	@Test
+	public void deveRecusarNovosLancamentosComAFilaCheia() {
+		service.enfileirar(1L, null, StatusLancamento.EFETIVADO);
+		service.enfileirar(2L, null, StatusLancamento.EFETIVADO);
+
+		// o mesmo lancamento ainda pode ser alterado
+		service.enfileirar(2L, null, StatusLancamento.CANCELADO);
+
+		assertThatThrownBy(() -> service.enfileirar(3L, null, StatusLancamento.EFETIVADO))
+				.isInstanceOf(FilaCheiaException.class);
+		assertThat(service.obterSituacao().getRecusadas()).isEqualTo(1);
+
+		service.processar();
+	}
+
+	@Test
+	public void naoDeveUltrapassarACapacidadeComEnfileiramentosConcorrentes() throws Exception {
+		int threads = 8;
+		int porThread = 20;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// a disputa pela ultima vaga e curta, entao se repete em varias rodadas
+			for (int rodada = 0; rodada < 200; rodada++) {
+				// instancia propria: enfileirar nao usa as dependencias e os
+				// contadores do bean compartilhado ficam intactos
+				FilaStatusServiceImpl fila = new FilaStatusServiceImpl(null, null, null, null, Optional.empty(), 10,
+						1000);
+				CountDownLatch largada = new CountDownLatch(1);
+				AtomicInteger aceitas = new AtomicInteger();
+				List<Future<?>> tarefas = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					long primeiro = t * porThread;
+					tarefas.add(executor.submit(() -> {
+						largada.await();
+						for (long id = primeiro; id < primeiro + porThread; id++) {
+							try {
+								fila.enfileirar(id, null, StatusLancamento.EFETIVADO);
+								aceitas.incrementAndGet();
+							} catch (FilaCheiaException e) {
+								// esperado acima da capacidade
+							}
+						}
+						return null;
+					}));
+				}
+				largada.countDown();
+				for (Future<?> tarefa : tarefas) {
+					tarefa.get(30, TimeUnit.SECONDS);
+				}
+
+				assertThat(aceitas.get()).isEqualTo(10);
+				assertThat(fila.obterSituacao().getPendentes()).isEqualTo(10);
+				assertThat(fila.obterSituacao().getRecusadas()).isEqualTo(threads * porThread - 10);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Lancamento persistirLancamento(Usuario usuario) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		return entityManager.persistAndFlush(lancamento);
+	}
+}
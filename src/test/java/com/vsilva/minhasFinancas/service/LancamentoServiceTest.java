@@ -36,6 +36,9 @@ public class LancamentoServiceTest {
 	@MockBean
 	LancamentoRepository repository;
 
+	@MockBean
+	SaldoService saldoService;
+
 	@Test
 	public void deveSalvarUmLancamento() {
 
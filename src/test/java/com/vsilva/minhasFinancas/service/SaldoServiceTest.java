@@ -0,0 +1,164 @@
+package com.vsilva.minhasFinancas.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.vsilva.minhasFinancas.model.entity.Lancamento;
+import com.vsilva.minhasFinancas.model.entity.SaldoArquivado;
+import com.vsilva.minhasFinancas.model.entity.SaldoMensal;
+import com.vsilva.minhasFinancas.model.entity.SaldoUsuario;
+import com.vsilva.minhasFinancas.model.entity.Usuario;
+import com.vsilva.minhasFinancas.model.enums.Tipo_lancamento;
+import com.vsilva.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.vsilva.minhasFinancas.model.repository.SaldoUsuarioRepository;
+import com.vsilva.minhasFinancas.model.repository.UsuarioRepositoryTest;
+import com.vsilva.minhasFinancas.service.impl.SaldoServiceImpl;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+@Import(SaldoServiceImpl.class)
+public class SaldoServiceTest {
+
+	@Autowired
+	SaldoService service;
+
+	@Autowired
+	SaldoUsuarioRepository repository;
+
+	@Autowired
+	TestEntityManager entityManager;
+
+	@Test
+	public void deveManterOSaldoPorDeltas() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		Lancamento receita = persistirLancamento(usuario, Tipo_lancamento.RECEITA, 100);
+		service.registrarInclusao(receita);
+
+		Lancamento despesa = persistirLancamento(usuario, Tipo_lancamento.DESPESA, 30);
+		service.registrarInclusao(despesa);
+
+		Lancamento anterior = Lancamento.builder().valor(despesa.getValor()).tipo(despesa.getTipo())
+				.usuario(usuario).build();
+		despesa.setValor(BigDecimal.valueOf(50));
+		service.registrarAlteracao(anterior, despesa);
+
+		entityManager.flush();
+		entityManager.clear();
+		assertThat(service.obterSaldo(usuario.getId())).isEqualByComparingTo("50");
+		assertThat(service.calcularSaldo(usuario.getId())).isEqualByComparingTo("50");
+	}
+
+	@Test
+	public void deveSomarODeltaQuandoOutraEscritaCriouALinhaDeSaldo() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+
+		repository.inserirOuSomar(usuario.getId(), BigDecimal.valueOf(100), BigDecimal.valueOf(100), null);
+		// a segunda primeira escrita encontra a linha e so soma o delta
+		repository.inserirOuSomar(usuario.getId(), BigDecimal.valueOf(70), BigDecimal.valueOf(-30), 2019 * 12);
+
+		entityManager.clear();
+		SaldoUsuario saldo = repository.findById(usuario.getId()).get();
+		assertThat(saldo.getSaldo()).isEqualByComparingTo("70");
+		assertThat(saldo.getVersao()).isEqualTo(2L);
+		assertThat(saldo.getMesAlterado()).isEqualTo(2019 * 12);
+	}
+
+	@Test
+	public void deveCorrigirSaldosDivergentesNaReconciliacao() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		persistirLancamento(usuario, Tipo_lancamento.RECEITA, 100);
+		entityManager.persist(new SaldoUsuario(usuario.getId(), BigDecimal.valueOf(7)));
+		entityManager.flush();
+
+		int divergencias = service.reconciliar();
+
+		assertThat(divergencias).isEqualTo(1);
+		assertThat(repository.findById(usuario.getId()).get().getSaldo()).isEqualByComparingTo("100");
+	}
+
+	@Test
+	public void deveSomarOsTotaisDosAnosArquivados() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		persistirLancamento(usuario, Tipo_lancamento.RECEITA, 100);
+		entityManager.persist(SaldoArquivado.builder().idUsuario(usuario.getId()).ano(2010)
+				.tipo(Tipo_lancamento.RECEITA).valor(BigDecimal.valueOf(500)).quantidade(3L).build());
+		entityManager.persist(SaldoArquivado.builder().idUsuario(usuario.getId()).ano(2010)
+				.tipo(Tipo_lancamento.DESPESA).valor(BigDecimal.valueOf(200)).quantidade(2L).build());
+		entityManager.persist(new SaldoUsuario(usuario.getId(), BigDecimal.valueOf(100)));
+		entityManager.flush();
+
+		assertThat(service.calcularSaldo(usuario.getId())).isEqualByComparingTo("400");
+		assertThat(service.reconciliar()).isEqualTo(1);
+		assertThat(repository.findById(usuario.getId()).get().getSaldo()).isEqualByComparingTo("400");
+	}
+
+	@Test
+	public void deveCalcularOSaldoPelosTotaisMensaisConsolidados() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		service.registrarInclusao(persistirLancamento(usuario, Tipo_lancamento.RECEITA, 100));
+		service.registrarInclusao(persistirLancamento(usuario, Tipo_lancamento.DESPESA, 30));
+		Lancamento aberto = LancamentoRepositoryTest.criarLancamento();
+		aberto.setAno(YearMonth.now().getYear());
+		aberto.setMes(YearMonth.now().getMonthValue());
+		aberto.setUsuario(usuario);
+		service.registrarInclusao(entityManager.persistAndFlush(aberto));
+		assertThat(repository.findById(usuario.getId()).get().getMesAlterado()).isEqualTo(2019 * 12);
+
+		consolidarMeses();
+		SaldoMensal janeiro = mensal(usuario);
+		assertThat(janeiro.getReceitas()).isEqualByComparingTo("100");
+		assertThat(janeiro.getDespesas()).isEqualByComparingTo("30");
+		assertThat(janeiro.getQuantidade()).isEqualTo(2L);
+		assertThat(repository.findById(usuario.getId()).get().getMesAlterado()).isNull();
+
+		// o mes fechado vem do total consolidado, nao dos lancamentos
+		janeiro.setReceitas(BigDecimal.valueOf(1000));
+		entityManager.flush();
+		assertThat(service.calcularSaldo(usuario.getId())).isEqualByComparingTo("980");
+
+		// uma escrita no mes fechado volta a soma-lo dos lancamentos ate a proxima consolidacao
+		service.registrarInclusao(persistirLancamento(usuario, Tipo_lancamento.DESPESA, 50));
+		entityManager.clear();
+		assertThat(service.calcularSaldo(usuario.getId())).isEqualByComparingTo("30");
+
+		consolidarMeses();
+		assertThat(mensal(usuario).getDespesas()).isEqualByComparingTo("80");
+		assertThat(service.calcularSaldo(usuario.getId())).isEqualByComparingTo("30");
+	}
+
+	private void consolidarMeses() {
+		// o job roda na propria transacao, sem as entidades carregadas pelo teste
+		entityManager.flush();
+		entityManager.clear();
+		service.consolidarMeses();
+		entityManager.clear();
+	}
+
+	private SaldoMensal mensal(Usuario usuario) {
+		return entityManager.find(SaldoMensal.class, new SaldoMensal.Chave(usuario.getId(), 2019, 1));
+	}
+
+	private Lancamento persistirLancamento(Usuario usuario, Tipo_lancamento tipo, int valor) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setTipo(tipo);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+		return entityManager.persistAndFlush(lancamento);
+	}
+}
@@ -0,0 +1,72 @@
+package com.vsilva.minhasFinancas.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.vsilva.minhasFinancas.service.exception.ErroAutentiacao;
+import com.vsilva.minhasFinancas.service.impl.SenhaServiceImpl;
+
+public class SenhaServiceTest {
+
+	SenhaServiceImpl service;
+
+	@AfterEach
+	public void encerrar() {
+		service.encerrar();
+	}
+
+	@Test
+	public void deveConferirUmaSenhaCodificada() {
+		service = new SenhaServiceImpl(4, 1, 10, 60);
+
+		String hash = service.codificar("senha").join();
+
+		assertThat(hash).startsWith("$2a$04$").isNotEqualTo("senha");
+		assertThat(service.conferir("senha", hash).join()).isTrue();
+		assertThat(service.conferir("outra", hash).join()).isFalse();
+		assertThat(service.precisaRecodificar(hash)).isFalse();
+	}
+
+	@Test
+	public void deveAceitarERecodificarSenhaLegadaSemHash() {
+		service = new SenhaServiceImpl(4, 1, 10, 60);
+
+		assertThat(service.conferir("senha", "senha").join()).isTrue();
+		assertThat(service.conferir("senhas", "senha").join()).isFalse();
+		assertThat(service.precisaRecodificar("senha")).isTrue();
+	}
+
+	@Test
+	public void deveRecodificarHashComCustoMenorQueOConfigurado() {
+		service = new SenhaServiceImpl(4, 1, 10, 60);
+		String hashAntigo = service.codificar("senha").join();
+		service.encerrar();
+
+		service = new SenhaServiceImpl(5, 1, 10, 60);
+
+		assertThat(service.precisaRecodificar(hashAntigo)).isTrue();
+		assertThat(service.conferir("senha", hashAntigo).join()).isTrue();
+	}
+
+	@Test
+	public void deveRecusarQuandoOPoolEAFilaEstiveremCheios() {
+		service = new SenhaServiceImpl(12, 1, 1, 60);
+		String hash = "$2a$12$" + "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0";
+
+		List<CompletableFuture<Boolean>> tentativas = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			tentativas.add(service.conferir("senha" + i, hash));
+		}
+
+		assertThat(tentativas).anySatisfy(tentativa -> assertThatThrownBy(tentativa::join)
+				.isInstanceOf(CompletionException.class)
+				.hasCauseInstanceOf(ErroAutentiacao.class));
+	}
+}
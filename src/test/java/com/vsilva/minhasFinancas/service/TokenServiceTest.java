@@ -0,0 +1,88 @@
+package com.vsilva.minhasFinancas.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import javax.crypto.KeyGenerator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.vsilva.minhasFinancas.service.exception.ErroAutentiacao;
+import com.vsilva.minhasFinancas.service.impl.TokenServiceImpl;
+
+public class TokenServiceTest {
+
+	static final String SENHA = "senha";
+
+	@TempDir
+	Path diretorio;
+
+	@Test
+	public void deveValidarTokensDaChaveAnteriorAposARotacao() throws Exception {
+		String keystore = criarKeystore("chave-1", "chave-2");
+
+		TokenService antes = new TokenServiceImpl(keystore, SENHA, "chave-1", 60, Clock.systemUTC());
+		String tokenAntigo = antes.gerar(7L);
+
+		TokenService depois = new TokenServiceImpl(keystore, SENHA, "chave-2", 60, Clock.systemUTC());
+		String tokenNovo = depois.gerar(8L);
+
+		assertThat(depois.validar(tokenAntigo)).isEqualTo(7L);
+		assertThat(depois.validar(tokenNovo)).isEqualTo(8L);
+	}
+
+	@Test
+	public void deveRecusarTokenAlteradoOuDeChaveRemovida() throws Exception {
+		TokenService emissor = new TokenServiceImpl(criarKeystore("chave-1"), SENHA, "chave-1", 60,
+				Clock.systemUTC());
+		String token = emissor.gerar(7L);
+		String[] partes = token.split("\\.");
+		String alterado = partes[0] + "." + emissor.gerar(8L).split("\\.")[1] + "." + partes[2];
+
+		assertThatThrownBy(() -> emissor.validar(alterado)).isInstanceOf(ErroAutentiacao.class);
+		assertThatThrownBy(() -> emissor.validar("nao-e-um-token")).isInstanceOf(ErroAutentiacao.class);
+
+		TokenService semAChave = new TokenServiceImpl(criarKeystore("chave-2"), SENHA, "chave-2", 60,
+				Clock.systemUTC());
+		assertThatThrownBy(() -> semAChave.validar(token)).isInstanceOf(ErroAutentiacao.class);
+	}
+
+	@Test
+	public void deveRecusarTokenExpirado() throws Exception {
+		Instant emissao = Instant.parse("2020-01-01T00:00:00Z");
+		String keystore = criarKeystore("chave-1");
+		String token = new TokenServiceImpl(keystore, SENHA, "chave-1", 60, Clock.fixed(emissao, ZoneOffset.UTC))
+				.gerar(7L);
+
+		TokenService umaHoraDepois = new TokenServiceImpl(keystore, SENHA, "chave-1", 60,
+				Clock.fixed(emissao.plusSeconds(3600), ZoneOffset.UTC));
+
+		assertThatThrownBy(() -> umaHoraDepois.validar(token)).isInstanceOf(ErroAutentiacao.class)
+				.hasMessage("Token expirado");
+	}
+
+	private String criarKeystore(String... aliases) throws Exception {
+		KeyStore keystore = KeyStore.getInstance("JCEKS");
+		keystore.load(null, SENHA.toCharArray());
+		KeyGenerator gerador = KeyGenerator.getInstance("HmacSHA256");
+		for (String alias : aliases) {
+			keystore.setEntry(alias, new KeyStore.SecretKeyEntry(gerador.generateKey()),
+					new KeyStore.PasswordProtection(SENHA.toCharArray()));
+		}
+
+		File arquivo = File.createTempFile("tokens", ".jceks", diretorio.toFile());
+		try (OutputStream saida = new FileOutputStream(arquivo)) {
+			keystore.store(saida, SENHA.toCharArray());
+		}
+		return arquivo.getAbsolutePath();
+	}
+}
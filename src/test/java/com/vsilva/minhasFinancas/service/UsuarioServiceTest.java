@@ -1,6 +1,7 @@
 package com.vsilva.minhasFinancas.service;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
@@ -26,6 +27,9 @@ public class UsuarioServiceTest {
 	@MockBean
 	UsuarioRepository repository;
 
+	@MockBean
+	SenhaService senhaService;
+
 
 	@Test (expected = Test.None.class)
 	public void deveSalvarUmUsuario() {
@@ -58,6 +62,7 @@ public class UsuarioServiceTest {
 
 		Usuario usuario = Usuario.builder().email(email).senha(senha).id(1l).build();
 		Mockito.when(repository.findByEmail(email) ).thenReturn(Optional.of(usuario));
+		Mockito.when(senhaService.conferir(senha, senha)).thenReturn(CompletableFuture.completedFuture(true));
 
 		//acao
 		Usuario result = service.autenticar(email, senha);
@@ -100,6 +105,7 @@ public class UsuarioServiceTest {
 		String senha = "senha";
 		Usuario usuario = Usuario.builder().email("teste@teste.com").senha(senha).build();
 		Mockito.when(repository.findByEmail(Mockito.anyString())).thenReturn(Optional.of(usuario));
+		Mockito.when(senhaService.conferir("1234", senha)).thenReturn(CompletableFuture.completedFuture(false));
 
 		//acao
 		Throwable exception = Assertions.catchThrowable( () -> service.autenticar("email@teste.com", "1234") );